@@ -0,0 +1,35 @@
+package com.example.imgurapp.reactive.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Tuning properties for the reactive HTTP client used to call the Imgur API, bound from
+ * <code>imgur.http.*</code>
+ * */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "imgur.http")
+public class ImgurHttpProperties {
+
+    /** Maximum number of pooled connections to Imgur */
+    private int maxConnections = 500;
+
+    /** Maximum number of requests waiting for a pooled connection before new ones are rejected */
+    private int pendingAcquireMaxCount = 2000;
+
+    /** Time to wait for a free connection from the pool */
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(30);
+
+    /** Time allowed to establish a TCP/TLS connection */
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    /** Time allowed for Imgur to answer once the request is sent */
+    private Duration responseTimeout = Duration.ofSeconds(60);
+
+    /** Idle connections older than this are evicted from the pool */
+    private Duration idleTimeout = Duration.ofMinutes(1);
+}
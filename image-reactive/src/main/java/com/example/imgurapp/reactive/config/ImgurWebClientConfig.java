@@ -0,0 +1,45 @@
+package com.example.imgurapp.reactive.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Configures the non-blocking client used to call the Imgur API. Requests share the event loop
+ * of the server, so a request waiting on Imgur holds a pooled connection but no thread.
+ * */
+@Configuration
+@EnableConfigurationProperties(ImgurHttpProperties.class)
+public class ImgurWebClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider imgurConnectionProvider(ImgurHttpProperties properties) {
+        return ConnectionProvider.builder("imgur")
+                .maxConnections(properties.getMaxConnections())
+                .pendingAcquireMaxCount(properties.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(properties.getPendingAcquireTimeout())
+                .maxIdleTime(properties.getIdleTimeout())
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public WebClient imgurWebClient(WebClient.Builder builder, ConnectionProvider imgurConnectionProvider,
+                                    ImgurHttpProperties properties,
+                                    @Value("${imgur.client.id}") String clientId,
+                                    @Value("${imgur.api.base-url:https://api.imgur.com/3}") String baseUrl) {
+        HttpClient httpClient = HttpClient.create(imgurConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .responseTimeout(properties.getResponseTimeout());
+        return builder.baseUrl(baseUrl)
+                .defaultHeader("Authorization", "Client-ID " + clientId)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
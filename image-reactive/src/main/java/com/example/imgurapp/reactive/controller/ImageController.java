@@ -0,0 +1,134 @@
+package com.example.imgurapp.reactive.controller;
+
+import com.example.imgurapp.reactive.entity.Image;
+import com.example.imgurapp.reactive.entity.User;
+import com.example.imgurapp.reactive.service.ImageService;
+import com.example.imgurapp.reactive.service.UserService;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/v1/images")
+public class ImageController {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private static final String FILE_PART = "file";
+
+    private final UserService userService;
+
+    private final ImageService imageService;
+
+    public ImageController(UserService userService, ImageService imageService) {
+        this.userService = userService;
+        this.imageService = imageService;
+    }
+
+    /**
+     * Uploads an Image for a User post authenticating the user. The multipart body is read as a
+     * stream of part events, so the content of the <code>file</code> part flows straight into
+     * the Imgur request as it arrives, without being buffered in memory or on disk.
+     *
+     * @param authorization The access token as <code>Bearer &lt;token&gt;</code>
+     * @param userName The username of the user uploading the image, if no token is sent
+     * @param password The password of the user, if no token is sent
+     * @param parts The multipart body, with the image in the <code>file</code> part
+     * @return A ResponseEntity containing the uploaded image and a HttpStatus od 201 if image is
+     * uploaded successfully. It can also return HttpStatus 401, if the user authentication fails
+     * or 400 if there is no file part.
+     * */
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Mono<ResponseEntity<Image>> uploadImage(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                                   @RequestParam(required = false) String userName,
+                                                   @RequestParam(required = false) String password,
+                                                   @RequestBody Flux<PartEvent> parts) {
+        //Authenticate User
+        return authenticate(authorization, userName, password)
+                .flatMap(user -> parts.windowUntil(PartEvent::isLast)
+                        .concatMap(part -> part.switchOnFirst((first, events) -> {
+                            if (first.get() instanceof FilePartEvent filePart && FILE_PART.equals(filePart.name())) {
+                                return imageService.uploadImage(user, events.map(PartEvent::content));
+                            }
+                            return events.doOnNext(event -> DataBufferUtils.release(event.content())).then(Mono.empty());
+                        }))
+                        .next()
+                        .map(image -> new ResponseEntity<>(image, HttpStatus.CREATED))
+                        .defaultIfEmpty(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null)))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null));
+    }
+
+    /**
+     * Streams the images uploaded by the user as newline-delimited JSON. Each image is written
+     * as soon as it is read from the database, and rows are only read as fast as the client
+     * consumes them.
+     *
+     * @param authorization The access token as <code>Bearer &lt;token&gt;</code>
+     * @param userName The username of the user uploading the image
+     * @param password The password of the user, if no token is sent
+     * @param cursor The id of the last image already received, omitted to start from the beginning
+     * @param limit The maximum number of images to stream
+     * @return A ResponseEntity streaming the images of the user ordered by id, with a HttpStatus
+     * of 200. It can also return HttpStatus 401, if the user authentication fails.
+     * */
+    @GetMapping(value = "/user/{userName}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<Image>>> getImagesByUser(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                                             @PathVariable String userName,
+                                                             @RequestParam(required = false) String password,
+                                                             @RequestParam(required = false) Long cursor,
+                                                             @RequestParam(defaultValue = "1000") int limit) {
+        //Authenticate User
+        return authenticate(authorization, userName, password)
+                .filter(user -> user.getUserName().equals(userName))
+                .map(user -> ResponseEntity.ok(imageService.getImagesByUser(user, cursor, limit)))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null));
+    }
+
+    /**
+     * @param authorization The access token as <code>Bearer &lt;token&gt;</code>
+     * @param userName The username of the user uploading the image, if no token is sent
+     * @param password The password of the user, if no token is sent
+     * @param imageId The id of the image
+     * @return A ResponseEntity with HttpStatus of 204 if image is deleted successfully.
+     * It can also return HttpStatus 401, if the user authentication fails or 404 if there is no
+     * such image with such image id.
+     * */
+    @DeleteMapping("/delete/{imageId}")
+    public Mono<ResponseEntity<Void>> deleteImage(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                                  @RequestParam(required = false) String userName,
+                                                  @RequestParam(required = false) String password,
+                                                  @PathVariable Long imageId) {
+        //Authenticate User
+        return authenticate(authorization, userName, password)
+                .flatMap(user -> imageService.getImageForUser(user, imageId)
+                        .flatMap(image -> imageService.deleteImage(image)
+                                .thenReturn(ResponseEntity.noContent().<Void>build()))
+                        .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND).<Void>body(null)))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null));
+    }
+
+    /**
+     * Authenticates the caller by its access token or, during the migration to tokens, by its
+     * userName and password
+     *
+     * @param authorization The Authorization header, if any
+     * @param userName The userName of the user, if any
+     * @param password The password of the user, if any
+     * @return The authenticated User, or empty
+     * */
+    private Mono<User> authenticate(String authorization, String userName, String password) {
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            return userService.authenticateToken(authorization.substring(BEARER_PREFIX.length()));
+        }
+        if (userName == null || password == null) {
+            return Mono.empty();
+        }
+        return userService.authenticateUser(userName, password);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.imgurapp.reactive.controller;
+
+import com.example.imgurapp.reactive.dto.AuthTokenResponse;
+import com.example.imgurapp.reactive.entity.User;
+import com.example.imgurapp.reactive.service.UserService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * A Controller class to create, authenticate and fetch user
+ * */
+@RestController
+@RequestMapping("/api/v1/users")
+public class UserController {
+
+    private final UserService userService;
+
+    public UserController(UserService userService) {
+        this.userService = userService;
+    }
+
+    /**
+     * Registers a new user
+     *
+     * @param user The user object from the user body, validated by using @Valid
+     * @return A Response Entity containing the newly created user and an HTTP Status of 201
+     * */
+    @PostMapping("/register")
+    public Mono<ResponseEntity<User>> registerUser(@Valid @RequestBody User user) {
+        return userService.registerUser(user.getName(), user.getUserName(), user.getEmail(), user.getPassword())
+                .map(newUser -> new ResponseEntity<>(newUser, HttpStatus.CREATED));
+    }
+
+    /**
+     * Authenticates a user and issues a signed access token for the image APIs
+     *
+     * @param userName The userName of the user
+     * @param password The password of the user
+     * @return A ResponseEntity containing the access token and HttpStatus of 200 if the user
+     *         exists. If not, then an HttpStatus of 401
+     * */
+    @PostMapping("/authenticate")
+    public Mono<ResponseEntity<AuthTokenResponse>> authenticateUser(@RequestParam String userName,
+                                                                    @RequestParam String password) {
+        return userService.authenticateUser(userName, password)
+                .map(user -> ResponseEntity.ok(new AuthTokenResponse(userService.issueToken(user),
+                        "Bearer", userService.getTokenTtl().toSeconds())))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null));
+    }
+
+    /**
+     * Fetches user details
+     *
+     * @param userName The userName of the user
+     * @return A ResponseEntity containing the user object and HttpStatus of 200, if the user exists.
+     *         If it doesn't a HttpStatus of 404 is returned
+     * */
+    @GetMapping("/{userName}")
+    public Mono<ResponseEntity<User>> getUserProfile(@PathVariable String userName) {
+        return userService.getUserByUserName(userName)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.imgurapp.reactive.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * An image uploaded to Imgur. R2DBC has no lazy associations, so the owner is referenced by its
+ * id only.
+ * */
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "IMAGE")
+public class Image {
+
+    @Id
+    @Column("ID")
+    private Long id;
+
+    @Column("IMAGE_URL")
+    private String url;
+
+    @Column("IMAGE_ID")
+    private String imageId;
+
+    @JsonIgnore
+    @Column("USER_ID")
+    private Long userId;
+
+}
@@ -0,0 +1,41 @@
+package com.example.imgurapp.reactive.entity;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "APP_USER")
+public class User {
+
+    @Id
+    @Column("USER_ID")
+    private Long userId;
+
+    @NotBlank(message = "Name cannot be blank")
+    @Column("NAME")
+    private String name;
+
+    @NotBlank(message = "User name cannot be blank")
+    @Column("USER_NAME")
+    private String userName;
+
+    @Email(message = "Invalid email address")
+    @NotBlank(message = "Email cannot be blank")
+    @Column("EMAIL")
+    private String email;
+
+    /** Accepted on registration, never written back out */
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    @Column("PASSWORD")
+    private String password;
+
+}
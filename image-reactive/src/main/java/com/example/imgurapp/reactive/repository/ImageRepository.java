@@ -0,0 +1,32 @@
+package com.example.imgurapp.reactive.repository;
+
+import com.example.imgurapp.reactive.entity.Image;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ImageRepository extends ReactiveCrudRepository<Image, Long> {
+
+    /**
+     * Streams the images of a user that come after a cursor, ordered by id. Rows are emitted as
+     * the driver reads them, on the demand of the subscriber.
+     *
+     * @param userId The id of the user
+     * @param afterId The id of the last image already sent, or 0 to start from the beginning
+     * @param limit The maximum number of images to emit
+     * @return The images, ordered by id
+     * */
+    Flux<Image> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long afterId, Limit limit);
+
+    /**
+     * Looks up an image owned by a user
+     *
+     * @param id The database id of the image
+     * @param userId The id of the user who must own the image
+     * @return The image, or empty if it does not exist or belongs to someone else
+     * */
+    Mono<Image> findByIdAndUserId(Long id, Long userId);
+}
@@ -0,0 +1,12 @@
+package com.example.imgurapp.reactive.repository;
+
+import com.example.imgurapp.reactive.entity.User;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface UserRepository extends ReactiveCrudRepository<User, Long> {
+
+    Mono<User> findByUserName(String userName);
+}
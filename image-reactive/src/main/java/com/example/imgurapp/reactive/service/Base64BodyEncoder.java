@@ -0,0 +1,94 @@
+package com.example.imgurapp.reactive.service;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes a stream of buffers as the JSON upload body <code>{"image":"&lt;base64&gt;"}</code>
+ * one buffer at a time. Base64 works on groups of three bytes, so up to two bytes of each buffer
+ * are carried over to the next one; only the last group is padded. Every input buffer is released
+ * as soon as it is encoded, so memory use is bounded by the buffers in flight and not by the size
+ * of the file.
+ * */
+final class Base64BodyEncoder {
+
+    private static final byte[] UPLOAD_BODY_PREFIX = "{\"image\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] UPLOAD_BODY_SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
+
+    private final DataBufferFactory bufferFactory;
+
+    /** The bytes of the last buffer that did not fill a whole group of three */
+    private final byte[] carry = new byte[2];
+
+    private int carryLength;
+
+    private Base64BodyEncoder(DataBufferFactory bufferFactory) {
+        this.bufferFactory = bufferFactory;
+    }
+
+    /**
+     * @param content The raw file content
+     * @param bufferFactory The factory of the outbound request, so encoded buffers need no copy
+     * @return The JSON upload body, produced on the demand of the subscriber
+     * */
+    static Flux<DataBuffer> encode(Flux<DataBuffer> content, DataBufferFactory bufferFactory) {
+        return Flux.defer(() -> {
+            Base64BodyEncoder encoder = new Base64BodyEncoder(bufferFactory);
+            Flux<DataBuffer> encoded = content
+                    .<DataBuffer>handle((buffer, sink) -> {
+                        DataBuffer chunk = encoder.encodeChunk(buffer);
+                        if (chunk != null) {
+                            sink.next(chunk);
+                        }
+                    })
+                    .concatWith(Mono.fromSupplier(encoder::encodeLast));
+            return Flux.concat(Mono.fromSupplier(() -> bufferFactory.wrap(UPLOAD_BODY_PREFIX.clone())),
+                    encoded,
+                    Mono.fromSupplier(() -> bufferFactory.wrap(UPLOAD_BODY_SUFFIX.clone())));
+        }).doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    /**
+     * Encodes the carried bytes and the whole groups of a buffer, then releases the buffer
+     *
+     * @return The encoded buffer, or null if there is not yet a whole group to encode
+     * */
+    private DataBuffer encodeChunk(DataBuffer buffer) {
+        byte[] input;
+        try {
+            int readable = buffer.readableByteCount();
+            input = new byte[carryLength + readable];
+            System.arraycopy(carry, 0, input, 0, carryLength);
+            buffer.read(input, carryLength, readable);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+
+        int whole = input.length - input.length % 3;
+        carryLength = input.length - whole;
+        System.arraycopy(input, whole, carry, 0, carryLength);
+        if (whole == 0) {
+            return null;
+        }
+        ByteBuffer encoded = Base64.getEncoder().encode(ByteBuffer.wrap(input, 0, whole));
+        return bufferFactory.wrap(encoded);
+    }
+
+    /**
+     * @return The padded encoding of the carried bytes, or null if none are left
+     * */
+    private DataBuffer encodeLast() {
+        if (carryLength == 0) {
+            return null;
+        }
+        ByteBuffer encoded = Base64.getEncoder().encode(ByteBuffer.wrap(carry, 0, carryLength));
+        return bufferFactory.wrap(encoded);
+    }
+}
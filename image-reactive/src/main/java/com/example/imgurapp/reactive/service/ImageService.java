@@ -0,0 +1,84 @@
+package com.example.imgurapp.reactive.service;
+
+import com.example.imgurapp.reactive.entity.Image;
+import com.example.imgurapp.reactive.entity.User;
+import com.example.imgurapp.reactive.repository.ImageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Slf4j
+@Service
+public class ImageService {
+
+    /** Listings are streamed rather than buffered, so they can be far longer than a servlet page */
+    public static final int MAX_STREAM_SIZE = 10_000;
+
+    private final ImgurAPIService imgurAPIService;
+
+    private final ImageRepository imageRepository;
+
+    public ImageService(ImgurAPIService imgurAPIService, ImageRepository imageRepository) {
+        this.imgurAPIService = imgurAPIService;
+        this.imageRepository = imageRepository;
+    }
+
+    /**
+     * Uploads an image to Imgur and associates it with a user
+     *
+     * @param user The user associated with the image
+     * @param content The content of the image file, streamed from the inbound request
+     * @return The saved image object after successful upload.
+     * @throws RuntimeException If the upload fails
+     * */
+    public Mono<Image> uploadImage(User user, Flux<DataBuffer> content) {
+        log.info("Uploading image for user: {}", user.getUserName());
+        return imgurAPIService.uploadImage(content)
+                .flatMap(data -> {
+                    Image image = new Image();
+                    image.setUrl((String) data.get("link"));
+                    image.setImageId((String) data.get("id"));
+                    image.setUserId(user.getUserId());
+                    return imageRepository.save(image);
+                })
+                .doOnNext(image -> log.info("Image uploaded successfully with id: {}", image.getImageId()));
+    }
+
+    /**
+     * Streams the images of a user, ordered by id
+     *
+     * @param user The user whose images needs to be fetched
+     * @param cursor The id of the last image already received, or null to start from the beginning
+     * @param limit The maximum number of images, capped at {@value #MAX_STREAM_SIZE}
+     * @return The images, emitted as they are read from the database
+     * */
+    public Flux<Image> getImagesByUser(User user, Long cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_STREAM_SIZE));
+        return imageRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(user.getUserId(),
+                cursor == null ? 0L : cursor, Limit.of(size));
+    }
+
+    /**
+     * @param user The user who must own the image
+     * @param imageId The database id of the image
+     * @return The image, if it exists and belongs to the user
+     * */
+    public Mono<Image> getImageForUser(User user, Long imageId) {
+        return imageRepository.findByIdAndUserId(imageId, user.getUserId());
+    }
+
+    /**
+     * Deletes an image from Imgur and then from the database
+     *
+     * @param image The image to be deleted
+     * @return Completes once the image is deleted
+     * */
+    public Mono<Void> deleteImage(Image image) {
+        return imgurAPIService.deleteImage(image.getImageId())
+                .then(imageRepository.delete(image))
+                .doOnSuccess(done -> log.info("Image with id {} is deleted", image.getId()));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.imgurapp.reactive.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Calls the Imgur API without blocking. No thread is held while a request is in flight: the
+ * event loop writes the request body as the connection can take it and resumes the pipeline
+ * when Imgur answers.
+ * */
+@Slf4j
+@Service
+public class ImgurAPIService {
+
+    private static final ParameterizedTypeReference<Map<String, Object>> RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final WebClient imgurWebClient;
+
+    public ImgurAPIService(WebClient imgurWebClient) {
+        this.imgurWebClient = imgurWebClient;
+    }
+
+    /**
+     * Uploads an image to Imgur by encoding it as a Base64 string in the request body. The
+     * content is encoded buffer by buffer straight into the outbound request, and is only pulled
+     * from the caller as fast as Imgur accepts it, so a slow Imgur slows the inbound upload down
+     * instead of filling the heap. The length of a streamed multipart part is not known up
+     * front, so the body is sent with chunked encoding.
+     *
+     * @param content The image content
+     * @return A map containing the details of the uploaded image
+     * @throws RuntimeException If the upload operation fails.
+     * */
+    public Mono<Map<String, Object>> uploadImage(Flux<DataBuffer> content) {
+        return imgurWebClient.post()
+                .uri("/image")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body((outputMessage, context) ->
+                        outputMessage.writeWith(Base64BodyEncoder.encode(content, outputMessage.bufferFactory())))
+                .retrieve()
+                .bodyToMono(RESPONSE_TYPE)
+                .doOnSubscribe(subscription -> log.info("Image upload request sent to Imgur"))
+                .flatMap(body -> body.get("data") instanceof Map<?, ?> data
+                        ? Mono.just((Map<String, Object>) data)
+                        : Mono.error(new RuntimeException("Failed to upload image to Imgur")))
+                .doOnNext(data -> log.info("Image uploaded successfully to Imgur."))
+                .onErrorMap(e -> {
+                    log.error("Error during image upload operation to Imgur.", e);
+                    return new RuntimeException("Error during Imgur upload operation", e);
+                });
+    }
+
+    /**
+     * Deletes an image from Imgur by its imageId
+     *
+     * @param imageId The ID of the image obtained from Imgur
+     * @return Completes once Imgur has deleted the image
+     * @throws RuntimeException if the deletion fails.
+     * */
+    public Mono<Void> deleteImage(String imageId) {
+        return imgurWebClient.delete()
+                .uri("/image/{imageId}", imageId)
+                .retrieve()
+                .toBodilessEntity()
+                .doOnSubscribe(subscription ->
+                        log.info("An image delete request has been sent out for Imgur image Id: {}", imageId))
+                .doOnNext(response -> log.info("Image deleted successfully."))
+                .onErrorMap(e -> {
+                    log.error("Error during image deletion operation", e);
+                    return new RuntimeException("Error thrown during deletion", e);
+                })
+                .then();
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.imgurapp.reactive.service;
+
+import com.example.imgurapp.reactive.config.TokenProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Issues and verifies HMAC-SHA256 signed tokens in the compact JWT format. Verifying a token
+ * costs a single HMAC computation, instead of a BCrypt comparison per request. This is a copy of
+ * the servlet application's TokenService, kept identical so that each application accepts the
+ * tokens of the other; change both together.
+ * */
+@Slf4j
+@Service
+@EnableConfigurationProperties(TokenProperties.class)
+public class TokenService {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final String HEADER = base64Url("{\"alg\":\"HS256\",\"typ\":\"JWT\"}"
+            .getBytes(StandardCharsets.UTF_8));
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final SecretKeySpec signingKey;
+
+    private final Duration ttl;
+
+    public TokenService(TokenProperties properties) {
+        byte[] secret;
+        if (StringUtils.hasText(properties.getSecret())) {
+            secret = properties.getSecret().getBytes(StandardCharsets.UTF_8);
+        } else {
+            log.warn("No auth.token.secret configured. Issued tokens will not survive a restart.");
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+        }
+        this.signingKey = new SecretKeySpec(secret, HMAC_ALGORITHM);
+        this.ttl = properties.getTtl();
+    }
+
+    /**
+     * Issues a signed token for a user
+     *
+     * @param userName The userName the token is issued for
+     * @return The signed token
+     * */
+    public String issueToken(String userName) {
+        try {
+            long issuedAt = Instant.now().getEpochSecond();
+            byte[] claims = OBJECT_MAPPER.writeValueAsBytes(Map.of(
+                    "sub", userName,
+                    "iat", issuedAt,
+                    "exp", issuedAt + ttl.toSeconds()));
+            String signingInput = HEADER + "." + base64Url(claims);
+            return signingInput + "." + base64Url(sign(signingInput));
+        } catch (Exception e) {
+            log.error("Unable to issue token for user: {}", userName, e);
+            throw new RuntimeException("Token could not be issued", e);
+        }
+    }
+
+    /**
+     * Verifies the signature and expiry of a token
+     *
+     * @param token The token presented by the client
+     * @return An optional containing the userName the token was issued for, otherwise an empty
+     * optional if the token is malformed, tampered with or expired
+     * */
+    public Optional<String> verifyToken(String token) {
+        try {
+            int lastDot = token.lastIndexOf('.');
+            int firstDot = token.indexOf('.');
+            if (firstDot <= 0 || lastDot == firstDot) {
+                return Optional.empty();
+            }
+            String signingInput = token.substring(0, lastDot);
+            byte[] signature = Base64.getUrlDecoder().decode(token.substring(lastDot + 1));
+            if (!MessageDigest.isEqual(signature, sign(signingInput))) {
+                return Optional.empty();
+            }
+
+            JsonNode claims = OBJECT_MAPPER.readTree(
+                    Base64.getUrlDecoder().decode(token.substring(firstDot + 1, lastDot)));
+            if (claims.path("exp").asLong() <= Instant.now().getEpochSecond()) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable(claims.path("sub").textValue());
+        } catch (Exception e) {
+            log.debug("Rejected malformed token: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return The lifetime of issued tokens
+     * */
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    private byte[] sign(String signingInput) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(signingKey);
+        return mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
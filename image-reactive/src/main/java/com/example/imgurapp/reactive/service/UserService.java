@@ -0,0 +1,118 @@
+package com.example.imgurapp.reactive.service;
+
+import com.example.imgurapp.reactive.entity.User;
+import com.example.imgurapp.reactive.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+/**
+ * Registers and authenticates users. BCrypt is CPU-bound and deliberately slow, so hashing and
+ * verifying passwords runs on the bounded elastic scheduler rather than on an event-loop thread.
+ * */
+@Slf4j
+@Service
+public class UserService {
+
+    private final UserRepository userRepository;
+
+    private final BCryptPasswordEncoder passwordEncoder;
+
+    private final TokenService tokenService;
+
+    public UserService(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder,
+                       TokenService tokenService) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.tokenService = tokenService;
+    }
+
+    /**
+     * Registers a user by checking if the username already exists or not
+     *
+     * @param name The name of the user
+     * @param userName The username for the user. It should be unique
+     * @param email The email of the user
+     * @param password The password for the user
+     * @return The created User object
+     * @throws RuntimeException If the username provided by the user already exists.
+     * */
+    public Mono<User> registerUser(String name, String userName, String email, String password) {
+        log.info("Creating an user with userName: {}", userName);
+        return userRepository.findByUserName(userName)
+                .flatMap(existing -> {
+                    log.error("User with this username already exists. Provide a new user name.");
+                    return Mono.<User>error(new RuntimeException("Username already exists."));
+                })
+                .switchIfEmpty(Mono.fromCallable(() -> passwordEncoder.encode(password))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .flatMap(hash -> {
+                            User user = new User();
+                            user.setName(name);
+                            user.setUserName(userName);
+                            user.setEmail(email);
+                            user.setPassword(hash);
+                            return userRepository.save(user);
+                        }))
+                .doOnNext(savedUser -> log.info("User with username {} is created.", userName));
+    }
+
+    /**
+     * Authenticates an user by its userName and password
+     *
+     * @param userName The userName of the user
+     * @param password The password provided by the user
+     * @return The User if it is successfully authenticated, otherwise empty
+     * */
+    public Mono<User> authenticateUser(String userName, String password) {
+        log.info("Authenticating user: {}", userName);
+        return userRepository.findByUserName(userName)
+                .filterWhen(user -> Mono.fromCallable(() -> passwordEncoder.matches(password, user.getPassword()))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .switchIfEmpty(Mono.fromRunnable(() -> log.error("Authentication failed for user: {}", userName)));
+    }
+
+    /**
+     * Retrieves a user by its userName
+     *
+     * @param userName The user name of the user
+     * @return The User object if found, otherwise empty
+     * */
+    public Mono<User> getUserByUserName(String userName) {
+        return userRepository.findByUserName(userName);
+    }
+
+    /**
+     * Issues a signed access token for an authenticated user
+     *
+     * @param user The authenticated user
+     * @return The signed token
+     * */
+    public String issueToken(User user) {
+        return tokenService.issueToken(user.getUserName());
+    }
+
+    /**
+     * @return The lifetime of issued access tokens
+     * */
+    public Duration getTokenTtl() {
+        return tokenService.getTtl();
+    }
+
+    /**
+     * Authenticates an user by a token previously issued by {@link #issueToken(User)}. Verifying
+     * the token is a single HMAC, cheap enough to run on the event loop.
+     *
+     * @param token The token presented by the user
+     * @return The User if the token is valid, otherwise empty
+     * */
+    public Mono<User> authenticateToken(String token) {
+        return Mono.justOrEmpty(tokenService.verifyToken(token))
+                .flatMap(userRepository::findByUserName)
+                .switchIfEmpty(Mono.fromRunnable(() -> log.error("Token authentication failed")));
+    }
+}
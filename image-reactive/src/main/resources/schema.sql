@@ -0,0 +1,16 @@
+CREATE TABLE IF NOT EXISTS APP_USER (
+    USER_ID BIGINT AUTO_INCREMENT PRIMARY KEY,
+    NAME VARCHAR(255) NOT NULL,
+    USER_NAME VARCHAR(255) NOT NULL UNIQUE,
+    EMAIL VARCHAR(255) NOT NULL,
+    PASSWORD VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS IMAGE (
+    ID BIGINT AUTO_INCREMENT PRIMARY KEY,
+    IMAGE_URL VARCHAR(255) NOT NULL,
+    IMAGE_ID VARCHAR(255) NOT NULL,
+    USER_ID BIGINT NOT NULL REFERENCES APP_USER (USER_ID)
+);
+
+CREATE INDEX IF NOT EXISTS IDX_IMAGE_USER_ID_ID ON IMAGE (USER_ID, ID);
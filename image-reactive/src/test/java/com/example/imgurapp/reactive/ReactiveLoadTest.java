@@ -0,0 +1,150 @@
+package com.example.imgurapp.reactive;
+
+import com.example.imgurapp.reactive.entity.User;
+import com.example.imgurapp.reactive.service.UserService;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The reactive counterpart of the servlet application's VirtualThreadLoadTest, with the same
+ * stub and the same request. The stub Imgur server only answers once every upload has reached
+ * it, so all uploads are held in flight at once, here on the handful of event-loop threads
+ * Reactor Netty starts instead of a thread per request. Both tests assert that every upload is in
+ * flight at once within the same heap growth budget, this one also on the number of event-loop
+ * threads:
+ *
+ * <pre>
+ * mvn test -Dtest=ReactiveLoadTest                      (image-reactive)
+ * mvn -Pjava21 test -Dtest=VirtualThreadLoadTest        (image)
+ * </pre>
+ * */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "imgur.http.max-connections=2000",
+        "imgur.http.pending-acquire-max-count=2000"
+})
+public class ReactiveLoadTest {
+
+    private static final int CONCURRENT_UPLOADS = 1000;
+
+    /** The same budget as VirtualThreadLoadTest, for twice the uploads */
+    private static final long MAX_HEAP_GROWTH = 128L * 1024 * 1024;
+
+    private static final AtomicInteger inFlight = new AtomicInteger();
+
+    private static final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private static final CountDownLatch allArrived = new CountDownLatch(CONCURRENT_UPLOADS);
+
+    private static HttpServer stubServer;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserService userService;
+
+    @DynamicPropertySource
+    static void imgurStub(DynamicPropertyRegistry registry) throws IOException {
+        stubServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), CONCURRENT_UPLOADS * 2);
+        stubServer.setExecutor(Executors.newCachedThreadPool());
+        stubServer.createContext("/3/image", exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try (exchange) {
+                exchange.getRequestBody().readAllBytes();
+                allArrived.countDown();
+                allArrived.await(60, TimeUnit.SECONDS);
+
+                byte[] response = """
+                        {"data":{"id":"abc123","link":"https://i.imgur.com/abc123.png"},"success":true,"status":200}"""
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, response.length);
+                exchange.getResponseBody().write(response);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+        stubServer.start();
+        registry.add("imgur.api.base-url",
+                () -> "http://127.0.0.1:" + stubServer.getAddress().getPort() + "/3");
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stubServer.stop(0);
+    }
+
+    @Test
+    public void testInFlightUploadsOnEventLoop() {
+        User user = userService.registerUser("Load Test", "loadtest", "load@example.com", "password123").block();
+        String token = userService.issueToken(user);
+        String boundary = "load-test-boundary";
+        byte[] body = multipartBody(boundary);
+        HttpClient client = HttpClient.newHttpClient();
+        long heapBefore = usedHeap();
+
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_UPLOADS; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/images/upload"))
+                    .header("Authorization", "Bearer " + token)
+                    .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            assertEquals(201, response.join().statusCode());
+        }
+        long eventLoopThreads = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("reactor-http-"))
+                .count();
+        long heapGrowth = usedHeap() - heapBefore;
+        assertEquals(CONCURRENT_UPLOADS, maxInFlight.get());
+        assertTrue(eventLoopThreads <= Math.max(4, Runtime.getRuntime().availableProcessors()),
+                "Event-loop threads: " + eventLoopThreads);
+        assertTrue(heapGrowth < MAX_HEAP_GROWTH, "Heap growth: " + heapGrowth / (1024 * 1024) + " MB");
+    }
+
+    private static byte[] multipartBody(String boundary) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"image.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(new byte[16 * 1024]);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return body.toByteArray();
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.imgurapp.reactive.controller;
+
+import com.example.imgurapp.reactive.dto.AuthTokenResponse;
+import com.example.imgurapp.reactive.entity.Image;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Registers a user, uploads through the streaming multipart endpoint to a stub Imgur and reads
+ * the images back as NDJSON
+ * */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ImageControllerTest {
+
+    private static final AtomicInteger uploads = new AtomicInteger();
+
+    private static final byte[] CONTENT = "not really a png".getBytes(StandardCharsets.US_ASCII);
+
+    private static HttpServer stubServer;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @DynamicPropertySource
+    static void imgurStub(DynamicPropertyRegistry registry) throws IOException {
+        stubServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stubServer.createContext("/3/image", exchange -> {
+            try (exchange) {
+                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.US_ASCII);
+                int status = body.equals("{\"image\":\"" + Base64.getEncoder().encodeToString(CONTENT) + "\"}") ? 200 : 400;
+                int id = uploads.incrementAndGet();
+                byte[] response = ("{\"data\":{\"id\":\"img" + id + "\",\"link\":\"https://i.imgur.com/img" + id
+                        + ".png\"},\"success\":true,\"status\":" + status + "}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, response.length);
+                exchange.getResponseBody().write(response);
+            }
+        });
+        stubServer.start();
+        registry.add("imgur.api.base-url",
+                () -> "http://127.0.0.1:" + stubServer.getAddress().getPort() + "/3");
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stubServer.stop(0);
+    }
+
+    @Test
+    public void testUploadAndStreamImages() {
+        webTestClient.post().uri("/api/v1/users/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("name", "Reactive User", "userName", "reactive",
+                        "email", "reactive@example.com", "password", "password123"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().jsonPath("$.userName").isEqualTo("reactive");
+        AuthTokenResponse token = webTestClient.post()
+                .uri("/api/v1/users/authenticate?userName=reactive&password=password123")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(AuthTokenResponse.class)
+                .returnResult().getResponseBody();
+
+        for (int i = 0; i < 3; i++) {
+            webTestClient.post().uri("/api/v1/images/upload")
+                    .header("Authorization", "Bearer " + token.token())
+                    .body(BodyInserters.fromMultipartData(multipartBody()))
+                    .exchange()
+                    .expectStatus().isCreated()
+                    .expectBody()
+                    .jsonPath("$.url").value(url -> assertTrue(((String) url).startsWith("https://i.imgur.com/img")));
+        }
+
+        List<Image> images = webTestClient.get().uri("/api/v1/images/user/reactive?limit=2")
+                .header("Authorization", "Bearer " + token.token())
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Image.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+        assertEquals(2, images.size());
+        assertTrue(images.get(0).getId() < images.get(1).getId());
+
+        List<Image> rest = webTestClient.get()
+                .uri("/api/v1/images/user/reactive?cursor=" + images.get(1).getId())
+                .header("Authorization", "Bearer " + token.token())
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .returnResult(Image.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+        assertEquals(1, rest.size());
+    }
+
+    @Test
+    public void testUploadRejectsUnauthenticatedUser() {
+        webTestClient.post().uri("/api/v1/images/upload")
+                .header("Authorization", "Bearer not-a-token")
+                .body(BodyInserters.fromMultipartData(multipartBody()))
+                .exchange()
+                .expectStatus().isUnauthorized()
+                .expectBody().isEmpty();
+    }
+
+    private static MultiValueMap<String, HttpEntity<?>> multipartBody() {
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("file", new ByteArrayResource(CONTENT) {
+            @Override
+            public String getFilename() {
+                return "image.png";
+            }
+        }).contentType(MediaType.IMAGE_PNG);
+        return builder.build();
+    }
+}
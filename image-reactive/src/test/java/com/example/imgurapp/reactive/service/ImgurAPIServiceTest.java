@@ -0,0 +1,172 @@
+package com.example.imgurapp.reactive.service;
+
+import com.example.imgurapp.reactive.config.ImgurHttpProperties;
+import com.example.imgurapp.reactive.config.ImgurWebClientConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exercises ImgurAPIService against a local stub of the Imgur API. The surefire heap is capped
+ * (see pom.xml), so the large upload only passes if the content is streamed rather than buffered.
+ * */
+public class ImgurAPIServiceTest {
+
+    private static final long LARGE_FILE_SIZE = 128L * 1024 * 1024;
+
+    /** Not a multiple of three, so every buffer leaves bytes to carry over to the next */
+    private static final int CHUNK_SIZE = 8191;
+
+    private HttpServer stubServer;
+
+    private ConnectionProvider connectionProvider;
+
+    private ImgurAPIService imgurAPIService;
+
+    private final AtomicLong receivedBytes = new AtomicLong();
+
+    private final AtomicReference<byte[]> receivedDigest = new AtomicReference<>();
+
+    private final AtomicReference<String> receivedAuthorization = new AtomicReference<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        stubServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stubServer.createContext("/3/image", this::handleUpload);
+        stubServer.start();
+
+        ImgurWebClientConfig config = new ImgurWebClientConfig();
+        ImgurHttpProperties properties = new ImgurHttpProperties();
+        connectionProvider = config.imgurConnectionProvider(properties);
+        WebClient webClient = config.imgurWebClient(WebClient.builder(), connectionProvider, properties,
+                "test-client", "http://127.0.0.1:" + stubServer.getAddress().getPort() + "/3");
+        imgurAPIService = new ImgurAPIService(webClient);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        connectionProvider.dispose();
+        stubServer.stop(0);
+    }
+
+    @Test
+    public void testUploadImageStreamsLargeFile() throws Exception {
+        Map<String, Object> result = imgurAPIService.uploadImage(content(LARGE_FILE_SIZE))
+                .block(Duration.ofMinutes(2));
+
+        assertEquals("abc123", result.get("id"));
+        assertEquals("https://i.imgur.com/abc123.png", result.get("link"));
+        assertEquals("Client-ID test-client", receivedAuthorization.get());
+        assertEquals(LARGE_FILE_SIZE, receivedBytes.get());
+        assertArrayEquals(expectedDigest(LARGE_FILE_SIZE), receivedDigest.get());
+    }
+
+    @Test
+    public void testUploadImagePadsLastGroup() throws Exception {
+        for (long size : new long[]{1, 2, 3, CHUNK_SIZE + 1}) {
+            imgurAPIService.uploadImage(content(size)).block(Duration.ofSeconds(10));
+
+            assertEquals(size, receivedBytes.get());
+            assertArrayEquals(expectedDigest(size), receivedDigest.get());
+        }
+    }
+
+    /**
+     * Decodes the <code>{"image":"..."}</code> body, which arrives chunked, and records the size
+     * and digest of the decoded payload.
+     * */
+    private void handleUpload(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            receivedAuthorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            byte[] prefix = in.readNBytes(10);
+            assertEquals("{\"image\":\"", new String(prefix, StandardCharsets.US_ASCII));
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long decodedBytes = 0;
+            byte[] group = new byte[4 * 2048];
+            byte[] pending = new byte[0];
+            int read;
+            while ((read = in.readNBytes(group, 0, group.length)) > 0) {
+                ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+                chunk.writeBytes(pending);
+                chunk.write(group, 0, read);
+                byte[] encoded = chunk.toByteArray();
+                int end = encoded.length;
+                if (encoded[end - 1] == '}') {
+                    end -= 2;
+                }
+                int whole = end - end % 4;
+                byte[] decoded = Base64.getDecoder().decode(Arrays.copyOf(encoded, whole));
+                decodedBytes += decoded.length;
+                digest.update(decoded);
+                pending = Arrays.copyOfRange(encoded, whole, encoded.length);
+            }
+            assertEquals("\"}", new String(pending, StandardCharsets.US_ASCII));
+            receivedBytes.set(decodedBytes);
+            receivedDigest.set(digest.digest());
+
+            byte[] response = """
+                    {"data":{"id":"abc123","link":"https://i.imgur.com/abc123.png"},"success":true,"status":200}"""
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+        } catch (Exception e) {
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Generates a deterministic byte pattern one buffer at a time, on demand
+     * */
+    private static Flux<DataBuffer> content(long size) {
+        return Flux.generate(() -> 0L, (position, sink) -> {
+            int count = (int) Math.min(CHUNK_SIZE, size - position);
+            byte[] chunk = new byte[count];
+            for (int i = 0; i < count; i++) {
+                chunk[i] = patternByte(position + i);
+            }
+            sink.next(DefaultDataBufferFactory.sharedInstance.wrap(chunk));
+            if (position + count >= size) {
+                sink.complete();
+            }
+            return position + count;
+        });
+    }
+
+    private static byte[] expectedDigest(long size) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (long position = 0; position < size; position++) {
+            digest.update(patternByte(position));
+        }
+        return digest.digest();
+    }
+
+    private static byte patternByte(long index) {
+        return (byte) (index * 31 + (index >>> 11));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.imgurapp.image.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Size and expiry settings of the in-process caches, bound from <code>app.cache.*</code>
+ * */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.cache")
+public class AppCacheProperties {
+
+    /** Imgur image metadata keyed by Imgur image id */
+    private Spec imageDetails = new Spec(Duration.ofMinutes(5), 10_000);
+
+    /** Last known Imgur image metadata, served while Imgur is unavailable */
+    private Spec imageDetailsStale = new Spec(Duration.ofHours(24), 50_000);
+
+    /** Fingerprints of recently BCrypt-verified credentials keyed by userName */
+    private Spec verifiedCredentials = new Spec(Duration.ofMinutes(1), 10_000);
+
+    /** Profiles of existing users keyed by userName */
+    private Spec userProfiles = new Spec(Duration.ofMinutes(10), 10_000);
+
+    /** userNames found not to exist. Kept briefly, as another node may register them meanwhile. */
+    private Spec unknownUserNames = new Spec(Duration.ofSeconds(30), 10_000);
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Spec {
+
+        /** Time after which an entry is reloaded from its source */
+        private Duration ttl;
+
+        /** Maximum number of entries kept before the least valuable ones are evicted */
+        private long maxEntries;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.imgurapp.image.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the properties used for token based authentication
+ * */
+@Configuration
+@EnableConfigurationProperties(TokenProperties.class)
+public class AuthConfig {
+}
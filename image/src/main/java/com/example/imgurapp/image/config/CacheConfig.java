@@ -0,0 +1,57 @@
+package com.example.imgurapp.image.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configures the bounded Caffeine caches used by the service layer. Each cache records
+ * statistics, so hit, miss, eviction and load-time metrics are published through the actuator.
+ * */
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(AppCacheProperties.class)
+public class CacheConfig {
+
+    public static final String IMAGE_DETAILS_CACHE = "imageDetails";
+
+    public static final String IMAGE_DETAILS_STALE_CACHE = "imageDetailsStale";
+
+    public static final String VERIFIED_CREDENTIALS_CACHE = "verifiedCredentials";
+
+    public static final String USER_PROFILES_CACHE = "userProfiles";
+
+    public static final String UNKNOWN_USER_NAMES_CACHE = "unknownUserNames";
+
+    /**
+     * Creates the cache manager with one explicitly sized cache per use case
+     *
+     * @param properties The cache size and expiry settings
+     * @return A Caffeine cache manager that does not create caches on demand
+     * */
+    @Bean
+    public CacheManager cacheManager(AppCacheProperties properties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(IMAGE_DETAILS_CACHE, buildCache(properties.getImageDetails()));
+        cacheManager.registerCustomCache(IMAGE_DETAILS_STALE_CACHE,
+                buildCache(properties.getImageDetailsStale()));
+        cacheManager.registerCustomCache(VERIFIED_CREDENTIALS_CACHE,
+                buildCache(properties.getVerifiedCredentials()));
+        cacheManager.registerCustomCache(USER_PROFILES_CACHE, buildCache(properties.getUserProfiles()));
+        cacheManager.registerCustomCache(UNKNOWN_USER_NAMES_CACHE, buildCache(properties.getUnknownUserNames()));
+        return cacheManager;
+    }
+
+    private static Cache<Object, Object> buildCache(AppCacheProperties.Spec spec) {
+        return Caffeine.newBuilder()
+                .maximumSize(spec.getMaxEntries())
+                .expireAfterWrite(spec.getTtl())
+                .recordStats()
+                .build();
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.imgurapp.image.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of upload deduplication, bound from <code>app.upload.dedup.*</code>
+ * */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.upload.dedup")
+public class DedupProperties {
+
+    /** Whether uploads of content that is already on Imgur reuse the existing Imgur image */
+    private boolean enabled = true;
+
+    /** Whose earlier uploads are searched for the same content */
+    private Scope scope = Scope.USER;
+
+    public enum Scope {
+        /** Only the uploading user's images; a match returns the existing image */
+        USER,
+        /** Images of all users; a match of another user's image is linked as a new image */
+        GLOBAL
+    }
+}
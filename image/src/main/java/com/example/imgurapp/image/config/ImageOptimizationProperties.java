@@ -0,0 +1,49 @@
+package com.example.imgurapp.image.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of the image optimization applied to uploads before they are sent to Imgur, bound
+ * from <code>app.upload.optimize.*</code>
+ * */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.upload.optimize")
+public class ImageOptimizationProperties {
+
+    /** Whether JPEG and PNG uploads are re-encoded. Re-encoding always drops their metadata, EXIF included. */
+    private boolean enabled = false;
+
+    /** Length in pixels the longer side of an image is scaled down to, 0 to keep the dimensions */
+    private int maxDimension = 2048;
+
+    /** JPEG compression quality, between 0 and 1 */
+    private float quality = 0.85f;
+
+    /** Format images are converted to, jpeg or png. Empty keeps the format of each upload. */
+    private String format = "";
+
+    /** Smaller uploads are sent as they are */
+    private DataSize minSize = DataSize.ofKilobytes(256);
+
+    /** Uploads with more pixels than this are sent as they are, rather than decoded */
+    private long maxInputPixels = 100_000_000;
+
+    /** Number of threads re-encoding images */
+    private int threads = 2;
+
+    /** Maximum number of images waiting for a thread. Further uploads are sent as they are. */
+    private int queueCapacity = 32;
+
+    /** Longest an upload waits for its image to be re-encoded. Slower images are sent as they are. */
+    private Duration timeout = Duration.ofSeconds(10);
+
+    /** Directory re-encoded images are written to until they have been sent */
+    private Path spoolDirectory = Path.of(System.getProperty("java.io.tmpdir"), "imgur-optimize-spool");
+}
@@ -0,0 +1,33 @@
+package com.example.imgurapp.image.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Settings of the local image store, bound from <code>app.store.*</code>
+ * */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.store")
+public class ImageStoreProperties {
+
+    /** Whether image content is kept locally. When disabled, content requests are redirected to Imgur. */
+    private boolean enabled = false;
+
+    /** Directory originals and thumbnails are stored in, named by the SHA-256 of the original */
+    private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "imgur-image-store");
+
+    /** Total size of the store; least recently used files are deleted beyond it */
+    private DataSize maxSize = DataSize.ofGigabytes(1);
+
+    /** Thumbnail sizes, in pixels of the longer side, that may be requested */
+    private List<Integer> thumbnailSizes = List.of(160, 640);
+
+    /** Originals with more pixels than this get no thumbnail, rather than being decoded */
+    private long maxThumbnailSourcePixels = 100_000_000;
+}
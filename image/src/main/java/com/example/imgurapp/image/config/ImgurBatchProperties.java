@@ -0,0 +1,23 @@
+package com.example.imgurapp.image.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the batch upload and delete endpoints, bound from <code>app.batch.*</code>
+ * */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.batch")
+public class ImgurBatchProperties {
+
+    /** Maximum number of Imgur calls in flight across all batches */
+    private int parallelism = 4;
+
+    /** Maximum number of items accepted in a single batch request; no larger than app.rate-limit.capacity while uploads are rate limited */
+    private int maxItems = 10;
+
+    /** Number of requests kept in reserve from the Imgur budget; batches stop dispatching below it */
+    private long rateLimitReserve = 10;
+}
@@ -0,0 +1,156 @@
+package com.example.imgurapp.image.config;
+
+import com.example.imgurapp.image.service.ImgurAPIService;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Configures a pooled, keep-alive HTTP client for the Imgur API so that connections and TLS
+ * sessions are reused across requests instead of being opened for every call.
+ * */
+@Configuration
+@EnableConfigurationProperties(ImgurHttpProperties.class)
+public class ImgurHttpClientConfig {
+
+    /**
+     * Creates the connection pool shared by all Imgur requests
+     *
+     * @param properties The Imgur HTTP client properties
+     * @return A pooling connection manager sized and timed out according to the properties
+     * */
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager imgurConnectionManager(ImgurHttpProperties properties) {
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+                .setSocketTimeout(Timeout.of(properties.getReadTimeout()))
+                .setValidateAfterInactivity(TimeValue.of(properties.getValidateAfterInactivity()))
+                .setTimeToLive(TimeValue.of(properties.getConnectionTimeToLive()))
+                .build();
+
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnections())
+                .setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(connectionConfig)
+                .build();
+    }
+
+    /**
+     * Creates the HTTP client on top of the shared connection pool.
+     *
+     * <p>The Imgur calls are blocking, so rather than running them on another thread under a
+     * Resilience4j TimeLimiter, each call gets the timeout of its time limiter instance as its
+     * response timeout. The call then fails on the calling thread and the connection is released
+     * instead of being left behind by an abandoned future. ImgurAPIService names the operation of
+     * each request in the <code>X-Imgur-Operation</code> header, which is replaced by the request
+     * config of the operation in the HTTP context before the request is sent.
+     *
+     * @param imgurConnectionManager The pool the client leases connections from
+     * @param properties The Imgur HTTP client properties
+     * @param timeLimiterRegistry The registry holding the per-operation time limits
+     * @return A keep-alive HTTP client that evicts expired and idle connections. It does not retry
+     * on its own; retries are left to the Resilience4j policies of ImgurAPIService.
+     * */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient imgurHttpClient(PoolingHttpClientConnectionManager imgurConnectionManager,
+                                               ImgurHttpProperties properties, TimeLimiterRegistry timeLimiterRegistry) {
+        Map<String, RequestConfig> operationConfigs = Stream.of(ImgurAPIService.UPLOAD, ImgurAPIService.DELETE,
+                        ImgurAPIService.DETAILS, ImgurAPIService.DOWNLOAD)
+                .collect(Collectors.toMap(Function.identity(),
+                        operation -> requestConfig(properties, timeLimiterRegistry, operation)));
+
+        return HttpClients.custom()
+                .setConnectionManager(imgurConnectionManager)
+                .setDefaultRequestConfig(requestConfig(properties).build())
+                .addRequestInterceptorFirst((request, entity, context) -> {
+                    Header operation = request.getFirstHeader(ImgurAPIService.OPERATION_HEADER);
+                    if (operation != null) {
+                        request.removeHeaders(ImgurAPIService.OPERATION_HEADER);
+                        RequestConfig operationConfig = operationConfigs.get(operation.getValue());
+                        if (operationConfig != null) {
+                            HttpClientContext.adapt(context).setRequestConfig(operationConfig);
+                        }
+                    }
+                })
+                .disableAutomaticRetries()
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(properties.getIdleTimeout()))
+                .build();
+    }
+
+    /**
+     * Creates the RestTemplate used by ImgurAPIService. It is built through the Boot builder so
+     * outbound calls are observed like any other client request.
+     *
+     * @param builder The auto-configured RestTemplate builder
+     * @param imgurHttpClient The pooled HTTP client
+     * @return A RestTemplate backed by the pooled HTTP client
+     * */
+    @Bean
+    public RestTemplate imgurRestTemplate(RestTemplateBuilder builder, CloseableHttpClient imgurHttpClient) {
+        return builder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(imgurHttpClient))
+                .build();
+    }
+
+    /**
+     * Builds the request settings shared by every Imgur call
+     *
+     * @param properties The Imgur HTTP client properties
+     * @return A request config builder with the pool, response and keep-alive timeouts set
+     * */
+    private static RequestConfig.Builder requestConfig(ImgurHttpProperties properties) {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(properties.getConnectionRequestTimeout()))
+                .setResponseTimeout(Timeout.of(properties.getResponseTimeout()))
+                .setConnectionKeepAlive(TimeValue.of(properties.getKeepAlive()));
+    }
+
+    /**
+     * Builds the request settings of one Imgur operation, using the timeout of its time limiter
+     *
+     * @param properties The Imgur HTTP client properties
+     * @param timeLimiterRegistry The registry holding the per-operation time limits
+     * @param operation The Resilience4j instance name of the operation
+     * @return The request config for the operation
+     * */
+    private static RequestConfig requestConfig(ImgurHttpProperties properties,
+                                               TimeLimiterRegistry timeLimiterRegistry, String operation) {
+        return requestConfig(properties)
+                .setResponseTimeout(Timeout.of(
+                        timeLimiterRegistry.timeLimiter(operation).getTimeLimiterConfig().getTimeoutDuration()))
+                .build();
+    }
+
+    /**
+     * Publishes leased, available and pending connection counts of the Imgur pool
+     *
+     * @param imgurConnectionManager The pool to be measured
+     * @return A meter binder registered with the application's meter registry
+     * */
+    @Bean
+    public MeterBinder imgurConnectionPoolMetrics(PoolingHttpClientConnectionManager imgurConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(imgurConnectionManager, "imgur");
+    }
+}
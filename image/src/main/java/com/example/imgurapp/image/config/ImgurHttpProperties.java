@@ -0,0 +1,47 @@
+package com.example.imgurapp.image.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Tuning properties for the outbound HTTP client used to call the Imgur API, bound from
+ * <code>imgur.http.*</code>
+ * */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "imgur.http")
+public class ImgurHttpProperties {
+
+    /** Maximum number of pooled connections across all routes */
+    private int maxConnections = 100;
+
+    /** Maximum number of pooled connections to a single host */
+    private int maxConnectionsPerRoute = 20;
+
+    /** Time allowed to establish a TCP/TLS connection */
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    /** Maximum inactivity between two data packets once connected */
+    private Duration readTimeout = Duration.ofSeconds(30);
+
+    /** Time allowed for Imgur to start answering once the request is sent */
+    private Duration responseTimeout = Duration.ofSeconds(30);
+
+    /** Time to wait for a free connection from the pool */
+    private Duration connectionRequestTimeout = Duration.ofSeconds(5);
+
+    /** Keep-alive applied when Imgur does not send a Keep-Alive header */
+    private Duration keepAlive = Duration.ofMinutes(1);
+
+    /** Idle connections older than this are evicted from the pool */
+    private Duration idleTimeout = Duration.ofMinutes(1);
+
+    /** Idle time after which a pooled connection is re-validated before it is leased */
+    private Duration validateAfterInactivity = Duration.ofSeconds(10);
+
+    /** Maximum lifetime of a pooled connection, regardless of activity */
+    private Duration connectionTimeToLive = Duration.ofMinutes(10);
+}
@@ -0,0 +1,41 @@
+package com.example.imgurapp.image.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the background job that deletes images from Imgur after their rows are deleted,
+ * bound from <code>app.outbox.*</code>
+ * */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.outbox")
+public class OutboxProperties {
+
+    /** Whether the job runs on this node. Deletions keep piling up in the outbox while it is off everywhere. */
+    private boolean enabled = true;
+
+    /** Time between two batches, as an ISO-8601 duration */
+    private Duration interval = Duration.ofSeconds(5);
+
+    /** Number of deletions read per batch */
+    private int batchSize = 50;
+
+    /** Number of Imgur deletions in flight at once */
+    private int concurrency = 4;
+
+    /** Number of failed attempts after which a deletion is given up on */
+    private int maxAttempts = 10;
+
+    /** Delay before the second attempt, doubled after each further failure */
+    private Duration initialBackoff = Duration.ofSeconds(30);
+
+    /** Upper bound of the delay between two attempts */
+    private Duration maxBackoff = Duration.ofHours(1);
+
+    /** Time a claimed deletion is held by a dispatcher before another one may attempt it */
+    private Duration claimTimeout = Duration.ofMinutes(5);
+}
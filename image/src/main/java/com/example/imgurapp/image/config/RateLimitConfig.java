@@ -0,0 +1,38 @@
+package com.example.imgurapp.image.config;
+
+import com.example.imgurapp.image.service.InMemoryRateLimitStore;
+import com.example.imgurapp.image.service.RateLimitStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Provides the store of the upload rate limits. Declaring another RateLimitStore bean, such as
+ * one shared by all nodes, replaces the in-memory store.
+ * */
+@Configuration
+@EnableConfigurationProperties({RateLimitProperties.class, ImgurBatchProperties.class})
+public class RateLimitConfig {
+
+    /**
+     * Refuses to start if a batch upload of the largest accepted size could never be granted by
+     * the rate limit
+     * */
+    public RateLimitConfig(RateLimitProperties properties, ImgurBatchProperties batchProperties) {
+        if (properties.isEnabled() && batchProperties.getMaxItems() > properties.getCapacity()) {
+            throw new IllegalStateException("app.batch.max-items (" + batchProperties.getMaxItems()
+                    + ") must not be larger than app.rate-limit.capacity (" + properties.getCapacity() + ")");
+        }
+    }
+
+    /**
+     * @param properties The rate limit properties
+     * @return A store keeping the buckets and counters of this node in memory
+     * */
+    @Bean
+    @ConditionalOnMissingBean(RateLimitStore.class)
+    public RateLimitStore rateLimitStore(RateLimitProperties properties) {
+        return new InMemoryRateLimitStore(properties.getMaxTrackedKeys());
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.imgurapp.image.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Per-user upload rate limit and daily quotas, bound from <code>app.rate-limit.*</code>
+ * */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    /** Whether uploads are rate limited. When disabled, no rate limit headers are sent either. */
+    private boolean enabled = true;
+
+    /** Size of each user's token bucket: the number of uploads that can be made in a burst, and the largest batch */
+    private long capacity = 10;
+
+    /** Time it takes a bucket to regain one upload */
+    private Duration refillPeriod = Duration.ofSeconds(6);
+
+    /** Number of images a user can upload per UTC day */
+    private long dailyUploads = 500;
+
+    /** Total size of the images a user can upload per UTC day */
+    private DataSize dailyBytes = DataSize.ofGigabytes(1);
+
+    /** Maximum number of buckets and counters the in-memory store keeps; the least recently used are dropped */
+    private long maxTrackedKeys = 100_000;
+}
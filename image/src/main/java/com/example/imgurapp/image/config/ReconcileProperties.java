@@ -0,0 +1,38 @@
+package com.example.imgurapp.image.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the background job that checks the IMAGE rows against their storage backends, bound from
+ * <code>app.reconcile.*</code>
+ * */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.reconcile")
+public class ReconcileProperties {
+
+    /** Whether the job runs on this node */
+    private boolean enabled = false;
+
+    /** Time between two chunks, as an ISO-8601 duration. Each chunk costs up to chunk-size backend requests. */
+    private Duration interval = Duration.ofSeconds(30);
+
+    /** Time before the first chunk after startup, as an ISO-8601 duration */
+    private Duration initialDelay = Duration.ofMinutes(1);
+
+    /** Number of rows checked per chunk */
+    private int chunkSize = 100;
+
+    /** Number of backend lookups in flight at once */
+    private int concurrency = 2;
+
+    /** Time between the end of a pass over the table and the start of the next one */
+    private Duration passInterval = Duration.ofHours(24);
+
+    /** Whether drift is repaired. When false, it is only counted and logged. */
+    private boolean repair = true;
+}
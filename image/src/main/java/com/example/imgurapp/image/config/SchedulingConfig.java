@@ -0,0 +1,12 @@
+package com.example.imgurapp.image.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the @Scheduled background jobs, each of which is switched on or off in its own settings
+ * */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
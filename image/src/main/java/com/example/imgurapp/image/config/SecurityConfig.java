@@ -0,0 +1,30 @@
+package com.example.imgurapp.image.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+
+/**
+ * Spring Security is only on the classpath through the OAuth2 client starter. The APIs
+ * authenticate callers themselves (see UserService), so the default HTTP Basic and CSRF
+ * protection is replaced by a stateless chain that lets through the APIs, the health endpoint
+ * and the error page they forward to. Everything else, the other actuator endpoints and the
+ * H2 console included, is refused.
+ * */
+@Configuration
+public class SecurityConfig {
+
+    @Bean
+    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+        return http
+                .csrf(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authorizeHttpRequests(requests -> requests
+                        .requestMatchers("/api/**", "/actuator/health", "/actuator/health/**", "/error").permitAll()
+                        .anyRequest().denyAll())
+                .build();
+    }
+}
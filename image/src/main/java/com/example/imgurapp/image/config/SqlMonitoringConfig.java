@@ -0,0 +1,74 @@
+package com.example.imgurapp.image.config;
+
+import com.example.imgurapp.image.jdbc.QueryMetricsListener;
+import com.example.imgurapp.image.jdbc.RepositoryMethodTracker;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the data source in a datasource-proxy that times every statement and logs slow ones
+ * (see QueryMetricsListener), in place of Hibernate's show-sql, which formats and prints every
+ * statement on the request thread.
+ * */
+@Configuration
+@ConditionalOnProperty(prefix = "app.sql", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(SqlMonitoringProperties.class)
+public class SqlMonitoringConfig {
+
+    /**
+     * Proxies every data source bean, result sets included, so that queries can be timed until
+     * their rows have been read
+     *
+     * @param meterRegistry The registry the statement timer is published to
+     * @param properties The SQL monitoring properties
+     * @return A post processor replacing data sources with their proxy
+     * */
+    @Bean
+    public static BeanPostProcessor dataSourceProxyPostProcessor(ObjectProvider<MeterRegistry> meterRegistry,
+                                                                 ObjectProvider<SqlMonitoringProperties> properties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(beanName, dataSource)
+                            .listener(new QueryMetricsListener(meterRegistry.getObject(), properties.getObject()))
+                            .proxyResultSet()
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Adds a RepositoryMethodTracker in front of every Spring Data repository, so that statements
+     * can be attributed to the repository method that ran them
+     *
+     * @return A post processor customising the repository factories
+     * */
+    @Bean
+    public static BeanPostProcessor repositoryMethodTrackerPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactoryBean) {
+                    repositoryFactoryBean.addRepositoryFactoryCustomizer(repositoryFactory ->
+                            repositoryFactory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                                    proxyFactory.addAdvice(0,
+                                            new RepositoryMethodTracker(repositoryInformation.getRepositoryInterface()))));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.imgurapp.image.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the SQL statement monitoring, bound from <code>app.sql.*</code>
+ * */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.sql")
+public class SqlMonitoringProperties {
+
+    /** Whether statements are timed and slow ones logged. When disabled, the data source is not proxied. */
+    private boolean enabled = true;
+
+    /** Statements taking at least this long, including reading their results, are logged */
+    private Duration slowQueryThreshold = Duration.ofMillis(200);
+
+    /**
+     * Whether the bound parameters are included in the slow query log. Off by default, since they
+     * include personal data such as e-mail addresses and password hashes.
+     * */
+    private boolean logParameters = false;
+}
@@ -0,0 +1,71 @@
+package com.example.imgurapp.image.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+
+import java.time.Duration;
+
+/**
+ * Configures the clients of the image storage backends, and serves the images of the local
+ * backend under its base path. Stored images never change, so they are cached for a year.
+ * */
+@Configuration
+@EnableConfigurationProperties(StorageProperties.class)
+public class StorageConfig implements WebMvcConfigurer {
+
+    private final StorageProperties properties;
+
+    public StorageConfig(StorageProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Creates the client of the S3 backend
+     *
+     * @param properties The storage settings
+     * @return An S3 client on the configured endpoint and region
+     * */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.storage.s3", name = "enabled")
+    public S3Client storageS3Client(StorageProperties properties) {
+        StorageProperties.S3 settings = properties.getS3();
+        AwsCredentialsProvider credentials = StringUtils.hasText(settings.getAccessKey())
+                ? StaticCredentialsProvider.create(AwsBasicCredentials.create(settings.getAccessKey(), settings.getSecretKey()))
+                : DefaultCredentialsProvider.create();
+        S3ClientBuilder builder = S3Client.builder()
+                .httpClientBuilder(UrlConnectionHttpClient.builder())
+                .region(Region.of(settings.getRegion()))
+                .credentialsProvider(credentials)
+                .forcePathStyle(settings.isPathStyleAccess());
+        if (settings.getEndpoint() != null) {
+            builder.endpointOverride(settings.getEndpoint());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        StorageProperties.Local local = properties.getLocal();
+        if (local.isEnabled() && local.getBaseUrl().startsWith("/")) {
+            String basePath = local.getBaseUrl().endsWith("/") ? local.getBaseUrl() : local.getBaseUrl() + "/";
+            String location = local.getDirectory().toAbsolutePath().toUri().toString();
+            registry.addResourceHandler(basePath + "**")
+                    .addResourceLocations(location.endsWith("/") ? location : location + "/")
+                    .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable());
+        }
+    }
+}
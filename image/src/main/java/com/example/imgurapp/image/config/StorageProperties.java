@@ -0,0 +1,84 @@
+package com.example.imgurapp.image.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of the image storage backends, bound from <code>app.storage.*</code>
+ * */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.storage")
+public class StorageProperties {
+
+    /** Backend new uploads go to, unless the user is in a tier with a backend of its own: imgur, local or s3 */
+    private String backend = "imgur";
+
+    /** User tiers by name, each with the backend its users upload to */
+    private Map<String, Tier> tiers = new LinkedHashMap<>();
+
+    private Local local = new Local();
+
+    private S3 s3 = new S3();
+
+    @Getter
+    @Setter
+    public static class Tier {
+
+        /** Backend the uploads of the tier go to */
+        private String backend;
+
+        /** User names in the tier */
+        private List<String> users = List.of();
+    }
+
+    @Getter
+    @Setter
+    public static class Local {
+
+        /** Whether images can be kept on the local file system */
+        private boolean enabled = false;
+
+        /** Directory the images are stored in */
+        private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "imgur-app-images");
+
+        /** Path the images are served from by this application, or an absolute URL of a server sharing the directory */
+        private String baseUrl = "/files";
+    }
+
+    @Getter
+    @Setter
+    public static class S3 {
+
+        /** Whether images can be kept in an S3-compatible object store */
+        private boolean enabled = false;
+
+        /** Endpoint of an S3-compatible store such as MinIO; AWS is used when not set */
+        private URI endpoint;
+
+        private String region = "us-east-1";
+
+        private String bucket;
+
+        /** Prefix of the object keys */
+        private String prefix = "images/";
+
+        /** Whether the bucket is addressed in the path rather than in the host name, as MinIO expects */
+        private boolean pathStyleAccess = false;
+
+        /** Credentials; the default AWS credential chain is used when not set */
+        private String accessKey;
+
+        private String secretKey;
+
+        /** Base URL of the public links to the objects; the bucket URL on the endpoint when not set */
+        private String publicUrl;
+    }
+}
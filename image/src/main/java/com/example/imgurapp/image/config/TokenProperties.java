@@ -0,0 +1,23 @@
+package com.example.imgurapp.image.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the signed access tokens issued on authentication, bound from
+ * <code>auth.token.*</code>
+ * */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "auth.token")
+public class TokenProperties {
+
+    /** HMAC-SHA256 signing secret. When empty, a random secret is generated on startup. */
+    private String secret;
+
+    /** Lifetime of an issued token */
+    private Duration ttl = Duration.ofHours(1);
+}
@@ -0,0 +1,29 @@
+package com.example.imgurapp.image.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of the asynchronous upload pipeline, bound from <code>app.upload.async.*</code>
+ * */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.upload.async")
+public class UploadProperties {
+
+    /** Number of workers sending spooled uploads to Imgur */
+    private int workers = 4;
+
+    /** Maximum number of uploads waiting for a worker. Further uploads are rejected. */
+    private int queueCapacity = 100;
+
+    /** Directory accepted uploads are spooled to until a worker picks them up */
+    private Path spoolDirectory = Path.of(System.getProperty("java.io.tmpdir"), "imgur-upload-spool");
+
+    /** How long the status of a finished job stays available for polling, for at most ten times queue-capacity plus workers jobs; queued and running jobs are always kept */
+    private Duration jobRetention = Duration.ofHours(1);
+}
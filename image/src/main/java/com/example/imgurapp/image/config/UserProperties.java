@@ -0,0 +1,56 @@
+package com.example.imgurapp.image.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of user registration and bulk import, bound from <code>app.users.*</code>
+ * */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.users")
+public class UserProperties {
+
+    private Hashing hashing = new Hashing();
+
+    private Registration registration = new Registration();
+
+    private Import bulkImport = new Import();
+
+    @Getter
+    @Setter
+    public static class Hashing {
+
+        /** Number of threads hashing passwords with BCrypt. BCrypt is CPU bound, so one per core. */
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        /** Maximum number of passwords waiting for a thread. Further registrations get a 429. */
+        private int queueCapacity = 256;
+    }
+
+    @Getter
+    @Setter
+    public static class Registration {
+
+        /**
+         * Number of threads inserting registered users once their password is hashed. Each holds a
+         * database connection while inserting, so keep it within the connection pool.
+         */
+        private int threads = 10;
+    }
+
+    @Getter
+    @Setter
+    public static class Import {
+
+        /** Key expected in the X-Import-Key header of bulk imports. Empty disables the import endpoint. */
+        private String key = "";
+
+        /** Number of rows sent to the database in one JDBC batch */
+        private int batchSize = 1000;
+
+        /** Maximum number of users accepted in one import request */
+        private int maxUsers = 100_000;
+    }
+}
@@ -1,15 +1,29 @@
 package com.example.imgurapp.image.controller;
 
+import com.example.imgurapp.image.dto.BatchItemResult;
+import com.example.imgurapp.image.dto.ImageContent;
+import com.example.imgurapp.image.dto.ImagePage;
+import com.example.imgurapp.image.dto.RateLimitDecision;
+import com.example.imgurapp.image.dto.UploadJob;
 import com.example.imgurapp.image.entity.Image;
 import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.service.BatchImageService;
+import com.example.imgurapp.image.service.ImageContentService;
 import com.example.imgurapp.image.service.ImageService;
+import com.example.imgurapp.image.service.UploadJobService;
+import com.example.imgurapp.image.service.UploadRateLimiter;
 import com.example.imgurapp.image.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,86 +31,353 @@ import java.util.Optional;
 @RequestMapping("/api/v1/images")
 public class ImageController {
 
+    private static final String BEARER_PREFIX = "Bearer ";
+
     @Autowired
     private UserService userService;
 
     @Autowired
     private ImageService imageService;
 
+    @Autowired
+    private UploadJobService uploadJobService;
+
+    @Autowired
+    private BatchImageService batchImageService;
+
+    @Autowired
+    private ImageContentService imageContentService;
+
+    @Autowired
+    private UploadRateLimiter uploadRateLimiter;
+
     /**
      * Uploads an Image for a User post authenticating the user
      *
-     * @param userName The username of the user uploading the image
-     * @param password The password of the user
+     * @param authorization The access token as <code>Bearer &lt;token&gt;</code>
+     * @param userName The username of the user uploading the image, if no token is sent
+     * @param password The password of the user, if no token is sent
      * @param file The image file to be uploaded
      * @return A ResponseEntity containing the uploaded image and a HttpStatus od 201 if image is
-     * uploaded successfully. It can also return HttpStatus 401, if the user authentication fails.
+     * uploaded successfully, with the rate limit headers. It can also return HttpStatus 401, if the
+     * user authentication fails or 429 with a Retry-After header if the user's rate limit or daily
+     * quota is used up.
      * */
     @PostMapping("/upload")
-    public ResponseEntity<Image> uploadImage(@RequestParam String userName,
-                                             @RequestParam String password,
+    public ResponseEntity<Image> uploadImage(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                             @RequestParam(required = false) String userName,
+                                             @RequestParam(required = false) String password,
                                              @RequestParam("file") MultipartFile file) {
         //Authenticate User
-        Optional<User> userOpt = userService.authenticateUser(userName, password);
+        Optional<User> userOpt = authenticate(authorization, userName, password);
         if (userOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
         }
 
         User user = userOpt.get();
+        RateLimitDecision rateLimit = uploadRateLimiter.tryAcquire(user, 1, file.getSize());
+        if (!rateLimit.allowed()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).headers(rateLimitHeaders(rateLimit)).body(null);
+        }
+
         Image uploadedImage = imageService.uploadImage(user, file);
-        return new ResponseEntity<>(uploadedImage, HttpStatus.CREATED);
+        return ResponseEntity.status(HttpStatus.CREATED).headers(rateLimitHeaders(rateLimit)).body(uploadedImage);
     }
 
     /**
-     * Fetch all the images uploaded by the user
+     * Accepts an Image for asynchronous upload post authenticating the user. The file is queued
+     * and sent to Imgur by a background worker.
      *
-     * @param userName The username of the user uploading the image
-     * @param password The password of the user
-     * @return A ResponseEntity containing the list of images uploaded by the user and a
-     * HttpStatus of 200. It can also return HttpStatus 401, if the user authentication fails.
+     * @param authorization The access token as <code>Bearer &lt;token&gt;</code>
+     * @param userName The username of the user uploading the image, if no token is sent
+     * @param password The password of the user, if no token is sent
+     * @param file The image file to be uploaded
+     * @return A ResponseEntity containing the queued job and a HttpStatus of 202, with the job
+     * status URL in the Location header and the rate limit headers. It can also return HttpStatus
+     * 401, if the user authentication fails or 429 if the user's rate limit or daily quota is used
+     * up (with a Retry-After header) or the upload queue is full.
      * */
-    @GetMapping("/user/{userName}")
-    public ResponseEntity<List<Image>> getImagesByUser(@PathVariable String userName,
-                                                       @RequestParam String password) {
+    @PostMapping("/upload/async")
+    public ResponseEntity<UploadJob> uploadImageAsync(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                                      @RequestParam(required = false) String userName,
+                                                      @RequestParam(required = false) String password,
+                                                      @RequestParam("file") MultipartFile file) {
         //Authenticate User
-        Optional<User> userOpt = userService.authenticateUser(userName, password);
+        Optional<User> userOpt = authenticate(authorization, userName, password);
         if (userOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
         }
 
         User user = userOpt.get();
-        List<Image> images = imageService.getImagesByUser(user);
-        return ResponseEntity.ok(images);
+        RateLimitDecision rateLimit = uploadRateLimiter.tryAcquire(user, 1, file.getSize());
+        if (!rateLimit.allowed()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).headers(rateLimitHeaders(rateLimit)).body(null);
+        }
+
+        Optional<UploadJob> job = uploadJobService.submit(user, file);
+        if (job.isEmpty()) {
+            //The upload never happens, so it does not count against the user's limits
+            uploadRateLimiter.release(user, 1, file.getSize());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(null);
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/images/upload/jobs/" + job.get().jobId()))
+                .headers(rateLimitHeaders(rateLimit))
+                .body(job.get());
     }
 
     /**
+     * Fetch the status of an asynchronous upload
+     *
+     * @param authorization The access token as <code>Bearer &lt;token&gt;</code>
+     * @param userName The username of the user uploading the image, if no token is sent
+     * @param password The password of the user, if no token is sent
+     * @param jobId The id of the upload job
+     * @return A ResponseEntity containing the job, including the uploaded image once completed,
+     * and a HttpStatus of 200. It can also return HttpStatus 401, if the user authentication
+     * fails or 404 if there is no such job for the user.
+     * */
+    @GetMapping("/upload/jobs/{jobId}")
+    public ResponseEntity<UploadJob> getUploadJob(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                                  @RequestParam(required = false) String userName,
+                                                  @RequestParam(required = false) String password,
+                                                  @PathVariable String jobId) {
+        //Authenticate User
+        Optional<User> userOpt = authenticate(authorization, userName, password);
+        if (userOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
+        }
+
+        return uploadJobService.getJob(userOpt.get(), jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).body(null));
+    }
+
+    /**
+     * Fetch the images uploaded by the user, one page at a time
+     *
+     * @param authorization The access token as <code>Bearer &lt;token&gt;</code>
      * @param userName The username of the user uploading the image
-     * @param password The password of the user
-     * @param imageId The imageId of the image
-     * @return A ResponseEntity with HttpStatus of 204 if image is deleted successfully.
-     * It can also return HttpStatus 401, if the user authentication fails or 404 if there is no
-     * such image with such image id.
+     * @param password The password of the user, if no token is sent
+     * @param cursor The nextCursor of the previous page, omitted for the first page
+     * @param limit The maximum number of images on the page
+     * @return A ResponseEntity containing a page of images uploaded by the user with the cursor
+     * of the next page and a HttpStatus of 200. It can also return HttpStatus 401, if the user
+     * authentication fails.
      * */
-    @DeleteMapping("/delete/{imageId}")
-    public ResponseEntity<Void> deleteImage(@RequestParam String userName,
-                                            @RequestParam String password,
-                                            @PathVariable Long imageId) {
+    @GetMapping("/user/{userName}")
+    public ResponseEntity<ImagePage> getImagesByUser(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                                     @PathVariable String userName,
+                                                     @RequestParam(required = false) String password,
+                                                     @RequestParam(required = false) Long cursor,
+                                                     @RequestParam(defaultValue = "50") int limit) {
         //Authenticate User
-        Optional<User> userOpt = userService.authenticateUser(userName, password);
+        Optional<User> userOpt = authenticate(authorization, userName, password)
+                .filter(user -> user.getUserName().equals(userName));
         if (userOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
         }
 
         User user = userOpt.get();
-        Optional<Image> imageOpt = imageService.getImagesByUser(user).stream()
-                .filter(image -> image.getId().equals(imageId))
-                .findFirst();
+        return ResponseEntity.ok(imageService.getImagesByUser(user, cursor, limit));
+    }
+
+    /**
+     * Serves the content of an image, or a thumbnail of it, from the local image store. Range
+     * requests and conditional requests on the ETag are answered from the stored file.
+     *
+     * @param authorization The access token as <code>Bearer &lt;token&gt;</code>
+     * @param userName The username of the user, if no token is sent
+     * @param password The password of the user, if no token is sent
+     * @param imageId The id of the image
+     * @param size The size of the thumbnail, omitted for the original
+     * @return A ResponseEntity containing the content and a HttpStatus of 200, 206 for a range or
+     * 304 if the content is unchanged. It redirects to the image link with a HttpStatus of 302 if the local
+     * store is disabled or does not keep the content. It can also return HttpStatus 401, if the user authentication fails, 400
+     * for an unsupported thumbnail size or 404 if there is no such image for the user or its
+     * storage backend no longer has it.
+     * */
+    @GetMapping("/{imageId}/content")
+    public ResponseEntity<Resource> getImageContent(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                                    @RequestParam(required = false) String userName,
+                                                    @RequestParam(required = false) String password,
+                                                    @PathVariable Long imageId,
+                                                    @RequestParam(required = false) Integer size) {
+        //Authenticate User
+        Optional<User> userOpt = authenticate(authorization, userName, password);
+        if (userOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
+        }
+        if (size != null && !imageContentService.isThumbnailSize(size)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
 
+        Optional<Image> imageOpt = imageService.getImageForUser(userOpt.get(), imageId);
         if (imageOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         }
+        if (!imageContentService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(imageOpt.get().getUrl())).build();
+        }
+
+        Optional<ImageContent> contentOpt = imageContentService.getContent(imageOpt.get(), size);
+        if (contentOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
 
-        imageService.deleteImage(imageOpt.get());
+        ImageContent content = contentOpt.get();
+        if (content.location() != null) {
+            return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(content.location())).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(content.eTag())
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(1)).cachePrivate())
+                .contentType(content.mediaType())
+                .body(content.resource());
+    }
+
+    /**
+     * @param authorization The access token as <code>Bearer &lt;token&gt;</code>
+     * @param userName The username of the user uploading the image, if no token is sent
+     * @param password The password of the user, if no token is sent
+     * @param imageId The imageId of the image
+     * @return A ResponseEntity with HttpStatus of 204 if image is deleted successfully; it is
+     * deleted from Imgur in the background. It can also return HttpStatus 401, if the user
+     * authentication fails or 404 if there is no such image with such image id.
+     * */
+    @DeleteMapping("/delete/{imageId}")
+    public ResponseEntity<Void> deleteImage(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                            @RequestParam(required = false) String userName,
+                                            @RequestParam(required = false) String password,
+                                            @PathVariable Long imageId) {
+        //Authenticate User
+        Optional<User> userOpt = authenticate(authorization, userName, password);
+        if (userOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
+        }
+
+        if (!imageService.deleteImage(userOpt.get(), imageId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Uploads several Images for a User post authenticating the user
+     *
+     * @param authorization The access token as <code>Bearer &lt;token&gt;</code>
+     * @param userName The username of the user uploading the images, if no token is sent
+     * @param password The password of the user, if no token is sent
+     * @param files The image files to be uploaded
+     * @return A ResponseEntity containing one result per file and a HttpStatus of 200, with the
+     * rate limit headers. It can also return HttpStatus 401, if the user authentication fails, 400
+     * if the batch is empty or too large, 413 if it is larger than the user's rate limit bucket or
+     * 429 with a Retry-After header if the user's rate limit or daily quota is used up.
+     * */
+    @PostMapping("/batch-upload")
+    public ResponseEntity<List<BatchItemResult>> uploadImages(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                                              @RequestParam(required = false) String userName,
+                                                              @RequestParam(required = false) String password,
+                                                              @RequestParam("files") List<MultipartFile> files) {
+        //Authenticate User
+        Optional<User> userOpt = authenticate(authorization, userName, password);
+        if (userOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
+        }
+        if (files.isEmpty() || files.size() > batchImageService.getMaxItems()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        if (files.size() > uploadRateLimiter.getMaxBatch()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(null);
+        }
+        long bytes = files.stream().mapToLong(MultipartFile::getSize).sum();
+        RateLimitDecision rateLimit = uploadRateLimiter.tryAcquire(userOpt.get(), files.size(), bytes);
+        if (!rateLimit.allowed()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).headers(rateLimitHeaders(rateLimit)).body(null);
+        }
+
+        return ResponseEntity.ok().headers(rateLimitHeaders(rateLimit))
+                .body(batchImageService.uploadImages(userOpt.get(), files));
+    }
+
+    /**
+     * Deletes several Images of a User post authenticating the user
+     *
+     * @param authorization The access token as <code>Bearer &lt;token&gt;</code>
+     * @param userName The username of the user, if no token is sent
+     * @param password The password of the user, if no token is sent
+     * @param imageIds The imageIds of the images
+     * @return A ResponseEntity containing one result per image id and a HttpStatus of 200. It
+     * can also return HttpStatus 401, if the user authentication fails or 400 if the batch is
+     * empty or too large.
+     * */
+    @DeleteMapping("/batch")
+    public ResponseEntity<List<BatchItemResult>> deleteImages(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                                              @RequestParam(required = false) String userName,
+                                                              @RequestParam(required = false) String password,
+                                                              @RequestParam List<Long> imageIds) {
+        //Authenticate User
+        Optional<User> userOpt = authenticate(authorization, userName, password);
+        if (userOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
+        }
+        if (imageIds.isEmpty() || imageIds.size() > batchImageService.getMaxItems()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+
+        return ResponseEntity.ok(batchImageService.deleteImages(userOpt.get(), imageIds));
+    }
+
+    /**
+     * Describes the user's rate limit and daily quotas, so that clients can pace their uploads
+     * instead of retrying blindly. Durations are in whole seconds, rounded up.
+     *
+     * @param rateLimit The decision of the rate limiter
+     * @return The X-RateLimit-* headers, and Retry-After if the upload was refused
+     * */
+    private static HttpHeaders rateLimitHeaders(RateLimitDecision rateLimit) {
+        HttpHeaders headers = new HttpHeaders();
+        if (rateLimit.limit() < 0) {
+            return headers;
+        }
+        headers.set("X-RateLimit-Limit", String.valueOf(rateLimit.limit()));
+        headers.set("X-RateLimit-Remaining", String.valueOf(rateLimit.remaining()));
+        headers.set("X-RateLimit-Reset", String.valueOf(seconds(rateLimit.reset())));
+        if (rateLimit.dailyUploadsRemaining() >= 0) {
+            headers.set("X-RateLimit-Daily-Uploads-Remaining", String.valueOf(rateLimit.dailyUploadsRemaining()));
+        }
+        if (rateLimit.dailyBytesRemaining() >= 0) {
+            headers.set("X-RateLimit-Daily-Bytes-Remaining", String.valueOf(rateLimit.dailyBytesRemaining()));
+        }
+        if (rateLimit.dailyReset() != null) {
+            headers.set("X-RateLimit-Daily-Reset", String.valueOf(seconds(rateLimit.dailyReset())));
+        }
+        if (!rateLimit.allowed()) {
+            headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, seconds(rateLimit.retryAfter()))));
+        }
+        return headers;
+    }
+
+    private static long seconds(Duration duration) {
+        return (duration.toNanos() + 999_999_999) / 1_000_000_000;
+    }
+
+    /**
+     * Authenticates the caller by its access token or, during the migration to tokens, by its
+     * userName and password
+     *
+     * @param authorization The Authorization header, if any
+     * @param userName The userName of the user, if any
+     * @param password The password of the user, if any
+     * @return An optional containing the authenticated User
+     * */
+    private Optional<User> authenticate(String authorization, String userName, String password) {
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            return userService.authenticateToken(authorization.substring(BEARER_PREFIX.length()));
+        }
+        if (userName == null || password == null) {
+            return Optional.empty();
+        }
+        return userService.authenticateUser(userName, password);
+    }
 }
@@ -1,15 +1,28 @@
 package com.example.imgurapp.image.controller;
 
+import com.example.imgurapp.image.dto.AuthTokenResponse;
+import com.example.imgurapp.image.dto.UserImportRecord;
+import com.example.imgurapp.image.dto.UserImportResult;
+import com.example.imgurapp.image.dto.UserProfile;
 import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.service.UserImportService;
+import com.example.imgurapp.image.service.UserNameTakenException;
 import com.example.imgurapp.image.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
 /**
- * A Controller class to create, authenticate and fetch user
+ * A Controller class to create, import, authenticate and fetch user
  * */
 @RestController
 @RequestMapping("/api/v1/users")
@@ -18,46 +31,93 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserImportService userImportService;
+
     /**
-     * Registers a new user
+     * Registers a new user. The request thread is released while the password is hashed.
      *
      * @param user The user object from the user body, validated by using @Valid
-     * @return A Response Entity containing the newly created user and an HTTP Status of 201
+     * @return A Response Entity containing the newly created user and an HTTP Status of 201. It
+     * can also return HttpStatus 409 if the username already exists, 400 if the user breaks another
+     * database constraint, or 429 with a Retry-After
+     * header if too many registrations are waiting for their password to be hashed.
      * */
     @PostMapping("/register")
-    public ResponseEntity<User> registerUser(@Valid @RequestBody User user) {
-        User newUser = userService.registerUser(user.getName(), user.getUserName(),
-                user.getEmail(), user.getPassword());
-        return new ResponseEntity<>(newUser, HttpStatus.CREATED);
+    public CompletableFuture<ResponseEntity<User>> registerUser(@Valid @RequestBody User user) {
+        return userService.registerUserAsync(user.getName(), user.getUserName(), user.getEmail(), user.getPassword())
+                .thenApply(newUser -> new ResponseEntity<>(newUser, HttpStatus.CREATED))
+                .exceptionally(UserController::registrationFailure);
+    }
+
+    /**
+     * Imports users in bulk, for tenant migrations. Enabled by setting app.users.bulk-import.key.
+     *
+     * @param importKey The import key, as configured
+     * @param users The users to import. Users bringing a BCrypt passwordHash are imported much
+     *              faster than users with a plain password, which has to be hashed.
+     * @return A ResponseEntity containing the number of imported users and the skipped userNames,
+     * and a HttpStatus of 200. It can also return HttpStatus 401 if the key does not match, 400 if
+     * the import is too large or 429 if plain passwords cannot be hashed right now.
+     * */
+    @PostMapping("/import")
+    public ResponseEntity<UserImportResult> importUsers(@RequestHeader(value = "X-Import-Key", required = false) String importKey,
+                                                        @RequestBody List<UserImportRecord> users) {
+        if (!userImportService.isAuthorized(importKey)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
+        }
+        if (users.size() > userImportService.getMaxUsers()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        try {
+            return ResponseEntity.ok(userImportService.importUsers(users));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").body(null);
+        }
     }
 
     /**
-     * Authenticates a user
+     * Authenticates a user and issues a signed access token for the image APIs
      *
      * @param userName The userName of the user
      * @param password The password of the user
-     * @return A ResponseEntity with a success message and HttpStatus of 200 if the user exists.
-     *         If not, then an error message with an HttpStatus of 401
+     * @return A ResponseEntity containing the access token and HttpStatus of 200 if the user
+     *         exists. If not, then an HttpStatus of 401
      * */
     @PostMapping("/authenticate")
-    public ResponseEntity<String> authenticateUser(@RequestParam String userName,
-                                                   @RequestParam String password) {
+    public ResponseEntity<AuthTokenResponse> authenticateUser(@RequestParam String userName,
+                                                              @RequestParam String password) {
         return userService.authenticateUser(userName, password)
-                .map(user -> ResponseEntity.ok("Authentication Successful"))
-                .orElse(ResponseEntity.status(401).body("Invalid userName or password"));
+                .map(user -> ResponseEntity.ok(new AuthTokenResponse(userService.issueToken(user),
+                        "Bearer", userService.getTokenTtl().toSeconds())))
+                .orElse(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null));
     }
 
     /**
-     * Fetches user details
+     * Fetches user details from the profile cache
      *
      * @param userName The userName of the user
-     * @return A ResponseEntity containing the user object and HttpStatus of 200, if the user exists.
+     * @return A ResponseEntity containing the user profile and HttpStatus of 200, if the user exists.
      *         If it doesn't a HttpStatus of 404 is returned
      * */
     @GetMapping("/{userName}")
-    public ResponseEntity<User> getUserProfile(@PathVariable String userName) {
-        return userService.getUserByUserName(userName)
+    public ResponseEntity<UserProfile> getUserProfile(@PathVariable String userName) {
+        return userService.getUserProfile(userName)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    private static ResponseEntity<User> registrationFailure(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof UserNameTakenException) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(null);
+        }
+        if (cause instanceof DataIntegrityViolationException) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        if (cause instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").body(null);
+        }
+        throw cause instanceof RuntimeException runtimeException ? runtimeException : new CompletionException(cause);
+    }
 }
@@ -0,0 +1,11 @@
+package com.example.imgurapp.image.dto;
+
+/**
+ * The body returned on successful authentication
+ *
+ * @param token The signed access token to be sent as <code>Authorization: Bearer &lt;token&gt;</code>
+ * @param tokenType The token type, always <code>Bearer</code>
+ * @param expiresIn The lifetime of the token in seconds
+ * */
+public record AuthTokenResponse(String token, String tokenType, long expiresIn) {
+}
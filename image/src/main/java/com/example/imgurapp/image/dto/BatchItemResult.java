@@ -0,0 +1,22 @@
+package com.example.imgurapp.image.dto;
+
+import com.example.imgurapp.image.entity.Image;
+
+/**
+ * The outcome of one item of a batch request
+ *
+ * @param item The file name or image id the result refers to
+ * @param status The HTTP status the item would have had as a single request
+ * @param image The uploaded image, for successful uploads
+ * @param error The failure reason, for failed items
+ * */
+public record BatchItemResult(String item, int status, Image image, String error) {
+
+    public static BatchItemResult success(String item, int status, Image image) {
+        return new BatchItemResult(item, status, image, null);
+    }
+
+    public static BatchItemResult failure(String item, int status, String error) {
+        return new BatchItemResult(item, status, null, error);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.imgurapp.image.dto;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+
+/**
+ * The locally stored content of an image or of one of its thumbnails, or the location to redirect
+ * to when it cannot be served locally
+ *
+ * @param resource The stored file, null for a redirect
+ * @param eTag The entity tag of the content, derived from the content hash
+ * @param mediaType The media type of the content
+ * @param location The link of the image to redirect to, null if the content is served
+ * */
+public record ImageContent(Resource resource, String eTag, MediaType mediaType, String location) {
+
+    public static ImageContent of(Resource resource, String eTag, MediaType mediaType) {
+        return new ImageContent(resource, eTag, mediaType, null);
+    }
+
+    public static ImageContent redirect(String location) {
+        return new ImageContent(null, null, null, location);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.imgurapp.image.dto;
+
+/**
+ * The storage side of an image row, read without loading the entity
+ *
+ * @param id The database id of the image
+ * @param backend The name of the storage backend holding the image
+ * @param imageId The id of the image within its backend
+ * @param url The link stored for the image
+ * */
+public record ImageLink(Long id, String backend, String imageId, String url) {
+}
@@ -0,0 +1,14 @@
+package com.example.imgurapp.image.dto;
+
+import com.example.imgurapp.image.entity.Image;
+
+import java.util.List;
+
+/**
+ * One page of a user's images, ordered by id
+ *
+ * @param images The images of this page
+ * @param nextCursor The cursor to request the following page with, or null on the last page
+ * */
+public record ImagePage(List<Image> images, Long nextCursor) {
+}
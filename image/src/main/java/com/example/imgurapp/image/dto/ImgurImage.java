@@ -0,0 +1,18 @@
+package com.example.imgurapp.image.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * The fields of an Imgur image the application uses. Imgur sends a few dozen more, which are
+ * skipped while parsing instead of being materialised.
+ *
+ * @param id The Imgur id of the image
+ * @param link The direct link to the image
+ * @param type The MIME type of the image
+ * @param width The width of the image in pixels
+ * @param height The height of the image in pixels
+ * @param size The size of the image in bytes
+ * */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ImgurImage(String id, String link, String type, int width, int height, long size) {
+}
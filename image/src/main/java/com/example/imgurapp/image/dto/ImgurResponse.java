@@ -0,0 +1,14 @@
+package com.example.imgurapp.image.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * The envelope Imgur wraps every image response in
+ *
+ * @param data The image
+ * @param success Whether Imgur reports the call as successful
+ * @param status The HTTP status Imgur reports
+ * */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ImgurResponse(ImgurImage data, boolean success, int status) {
+}
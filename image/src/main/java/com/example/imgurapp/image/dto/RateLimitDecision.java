@@ -0,0 +1,22 @@
+package com.example.imgurapp.image.dto;
+
+import java.time.Duration;
+
+/**
+ * The outcome of checking an upload against the user's rate limit and daily quotas
+ *
+ * @param allowed Whether the upload may go ahead
+ * @param limit The size of the user's token bucket, or -1 if uploads are not rate limited
+ * @param remaining The uploads left in the bucket
+ * @param reset How long until the bucket is full again
+ * @param retryAfter How long to wait before retrying, zero if allowed
+ * @param dailyUploadsRemaining The uploads left today, or -1 if not checked
+ * @param dailyBytesRemaining The bytes left today, or -1 if not checked
+ * @param dailyReset How long until the daily quotas start over, or null if not checked
+ * */
+public record RateLimitDecision(boolean allowed, long limit, long remaining, Duration reset, Duration retryAfter,
+                                long dailyUploadsRemaining, long dailyBytesRemaining, Duration dailyReset) {
+
+    public static final RateLimitDecision UNLIMITED =
+            new RateLimitDecision(true, -1, -1, Duration.ZERO, Duration.ZERO, -1, -1, null);
+}
@@ -0,0 +1,18 @@
+package com.example.imgurapp.image.dto;
+
+/**
+ * An image as kept by an image storage backend
+ *
+ * @param id The id of the image within its backend
+ * @param link The direct link to the image
+ * @param type The MIME type of the image
+ * @param width The width of the image in pixels, or 0 if unknown
+ * @param height The height of the image in pixels, or 0 if unknown
+ * @param size The size of the image in bytes
+ * */
+public record StoredImage(String id, String link, String type, int width, int height, long size) {
+
+    public static StoredImage of(ImgurImage image) {
+        return new StoredImage(image.id(), image.link(), image.type(), image.width(), image.height(), image.size());
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.imgurapp.image.dto;
+
+import com.example.imgurapp.image.entity.Image;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * The state of an asynchronous upload. Every transition produces a new instance.
+ *
+ * @param jobId The id to poll the job with
+ * @param userName The owner of the upload
+ * @param status The current status
+ * @param image The saved image, once the job has completed
+ * @param error The failure reason, if the job has failed
+ * */
+public record UploadJob(String jobId, @JsonIgnore String userName, Status status, Image image, String error) {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    public UploadJob withStatus(Status status) {
+        return new UploadJob(jobId, userName, status, image, error);
+    }
+
+    public UploadJob completed(Image image) {
+        return new UploadJob(jobId, userName, Status.COMPLETED, image, null);
+    }
+
+    public UploadJob failed(String error) {
+        return new UploadJob(jobId, userName, Status.FAILED, null, error);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.imgurapp.image.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * One user of a bulk import. Users migrated from another system bring their BCrypt hash, which is
+ * stored as it is; a plain password is hashed during the import instead, at BCrypt's cost.
+ *
+ * @param name The name of the user
+ * @param userName The unique user name
+ * @param email The email of the user
+ * @param password The plain password, if there is no passwordHash
+ * @param passwordHash An existing BCrypt hash of the password
+ * */
+public record UserImportRecord(@NotBlank String name,
+                               @NotBlank String userName,
+                               @NotBlank @Email String email,
+                               String password,
+                               String passwordHash) {
+}
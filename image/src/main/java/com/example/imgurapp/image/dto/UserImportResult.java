@@ -0,0 +1,13 @@
+package com.example.imgurapp.image.dto;
+
+import java.util.List;
+
+/**
+ * The outcome of a bulk user import
+ *
+ * @param imported The number of users inserted
+ * @param duplicates The userNames skipped because they already exist, or appear twice in the import
+ * @param invalid The userNames skipped because a field is missing, malformed or too long
+ * */
+public record UserImportResult(int imported, List<String> duplicates, List<String> invalid) {
+}
@@ -0,0 +1,18 @@
+package com.example.imgurapp.image.dto;
+
+import com.example.imgurapp.image.entity.User;
+
+/**
+ * The public details of a user, read without loading the User entity or its images
+ *
+ * @param userId The database id of the user
+ * @param name The name of the user
+ * @param userName The unique user name
+ * @param email The email of the user
+ * */
+public record UserProfile(Long userId, String name, String userName, String email) {
+
+    public static UserProfile of(User user) {
+        return new UserProfile(user.getUserId(), user.getName(), user.getUserName(), user.getEmail());
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.imgurapp.image.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Getter;
@@ -11,11 +12,16 @@ import lombok.Setter;
 @Setter
 @NoArgsConstructor
 @Entity
-@Table(name = "IMAGE")
+@Table(name = "IMAGE", indexes = {
+        @Index(name = "IDX_IMAGE_USER_ID_ID", columnList = "USER_ID, ID"),
+        @Index(name = "IDX_IMAGE_CONTENT_HASH_USER_ID", columnList = "CONTENT_HASH, USER_ID"),
+        @Index(name = "IDX_IMAGE_IMAGE_ID", columnList = "IMAGE_ID")
+})
 public class Image {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "image_seq")
+    @SequenceGenerator(name = "image_seq", sequenceName = "IMAGE_SEQ", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Image URL cannot be blank")
@@ -26,6 +32,16 @@ public class Image {
     @Column(name = "IMAGE_ID", nullable = false)
     private String imageId;
 
+    @JsonIgnore
+    @Column(name = "CONTENT_HASH", length = 64)
+    private String contentHash;
+
+    /** Name of the storage backend holding the image */
+    @JsonIgnore
+    @Column(name = "BACKEND", length = 32, nullable = false)
+    private String backend = "imgur";
+
+    @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "USER_ID", nullable = false)
     private User user;
@@ -0,0 +1,52 @@
+package com.example.imgurapp.image.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * An image waiting to be deleted from its storage backend, recorded in the same transaction as
+ * the deletion of its row so that neither can happen without the other
+ * */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "IMAGE_DELETION_OUTBOX")
+public class ImageDeletion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "ID")
+    private Long id;
+
+    /** Name of the storage backend holding the image */
+    @Column(name = "BACKEND", length = 32, nullable = false)
+    private String backend;
+
+    @Column(name = "IMAGE_ID", nullable = false)
+    private String imageId;
+
+    @Column(name = "CREATED_AT", nullable = false)
+    private Instant createdAt;
+
+    /** When the deletion is due, or until when a dispatcher holds it. Null once it is given up on. */
+    @Column(name = "NEXT_ATTEMPT_AT")
+    private Instant nextAttemptAt;
+
+    @Column(name = "ATTEMPTS", nullable = false)
+    private int attempts;
+
+    @Column(name = "LAST_ERROR", length = 500)
+    private String lastError;
+
+    public ImageDeletion(String backend, String imageId, Instant createdAt) {
+        this.backend = backend;
+        this.imageId = imageId;
+        this.createdAt = createdAt;
+        this.nextAttemptAt = createdAt;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.imgurapp.image.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Where a background job walking a table in id order stopped, so it resumes there after a restart.
+ * The version makes a node that raced another one for the same chunk fail instead of overwriting
+ * its progress.
+ * */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "RECONCILE_CHECKPOINT")
+public class ReconcileCheckpoint {
+
+    @Id
+    @Column(name = "NAME", length = 64)
+    private String name;
+
+    /** Rows with an id up to this one have been handled in the current pass */
+    @Column(name = "LAST_ID", nullable = false)
+    private long lastId;
+
+    /** Start of the current pass, null between passes */
+    @Column(name = "PASS_STARTED_AT")
+    private Instant passStartedAt;
+
+    @Column(name = "LAST_PASS_COMPLETED_AT")
+    private Instant lastPassCompletedAt;
+
+    @Version
+    @Column(name = "VERSION", nullable = false)
+    private long version;
+
+    public ReconcileCheckpoint(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.imgurapp.image.jdbc;
+
+import com.example.imgurapp.image.config.SqlMonitoringProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.lifecycle.JdbcLifecycleEventListenerAdapter;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Times every JDBC statement into the <code>db.query</code> timer and logs those slower than
+ * <code>app.sql.slow-query-threshold</code> with their row count and the repository method that
+ * ran them, and their bound parameters if <code>app.sql.log-parameters</code> is set.
+ *
+ * <p>A query is timed until its result set is closed, so reading the rows counts towards its
+ * duration; other statements are timed until they return their update count.</p>
+ * */
+@Slf4j
+public class QueryMetricsListener extends JdbcLifecycleEventListenerAdapter {
+
+    public static final String QUERY_TIMER = "db.query";
+
+    private static final String START_NANOS = "startNanos";
+
+    private static final int MAX_PARAMETER_LENGTH = 100;
+
+    private static final int MAX_LOGGED_BATCH_ENTRIES = 10;
+
+    private final MeterRegistry meterRegistry;
+
+    private final SqlMonitoringProperties properties;
+
+    /** Queries whose result set is still being read, by result set proxy */
+    private final Map<ResultSet, Execution> openQueries = new ConcurrentHashMap<>();
+
+    public QueryMetricsListener(MeterRegistry meterRegistry, SqlMonitoringProperties properties) {
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo executionInfo, List<QueryInfo> queryInfoList) {
+        executionInfo.addCustomValue(START_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo executionInfo, List<QueryInfo> queryInfoList) {
+        Long startNanos = executionInfo.getCustomValue(START_NANOS, Long.class);
+        Execution execution = new Execution(queryInfoList, executionInfo.getStatement(),
+                RepositoryMethodTracker.current(),
+                startNanos != null ? startNanos : System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(executionInfo.getElapsedTime()));
+
+        if (executionInfo.isSuccess() && executionInfo.getResult() instanceof ResultSet resultSet) {
+            openQueries.put(resultSet, execution);
+            return;
+        }
+        execution.rows = updateCount(executionInfo.getResult());
+        complete(execution);
+    }
+
+    @Override
+    public void afterNext(MethodExecutionContext executionContext) {
+        if (Boolean.TRUE.equals(executionContext.getResult())
+                && executionContext.getProxy() instanceof ResultSet resultSet) {
+            Execution execution = openQueries.get(resultSet);
+            if (execution != null) {
+                execution.rows++;
+            }
+        }
+    }
+
+    @Override
+    public void afterClose(MethodExecutionContext executionContext) {
+        Object target = executionContext.getTarget();
+        if (target instanceof ResultSet && executionContext.getProxy() instanceof ResultSet resultSet) {
+            Execution execution = openQueries.remove(resultSet);
+            if (execution != null) {
+                complete(execution);
+            }
+        } else if (target instanceof Statement && !openQueries.isEmpty()) {
+            //Closing a statement closes its result sets without going through their proxies
+            Iterator<Execution> iterator = openQueries.values().iterator();
+            while (iterator.hasNext()) {
+                Execution execution = iterator.next();
+                if (execution.statement == target || execution.statement == executionContext.getProxy()) {
+                    iterator.remove();
+                    complete(execution);
+                }
+            }
+        }
+    }
+
+    private void complete(Execution execution) {
+        long durationNanos = System.nanoTime() - execution.startNanos;
+        String repositoryMethod = execution.repositoryMethod != null ? execution.repositoryMethod : "none";
+
+        Timer.builder(QUERY_TIMER)
+                .description("Time taken by JDBC statements, including reading their results")
+                .tag("operation", operation(execution.queries))
+                .tag("repository.method", repositoryMethod)
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+
+        if (durationNanos >= properties.getSlowQueryThreshold().toNanos()) {
+            String sql = execution.queries.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+            if (properties.isLogParameters()) {
+                log.warn("Slow query ({} ms, {} rows) in {}: {} {}", TimeUnit.NANOSECONDS.toMillis(durationNanos),
+                        execution.rows, repositoryMethod, sql, parameters(execution.queries));
+            } else {
+                log.warn("Slow query ({} ms, {} rows) in {}: {}", TimeUnit.NANOSECONDS.toMillis(durationNanos),
+                        execution.rows, repositoryMethod, sql);
+            }
+        }
+    }
+
+    private static String operation(List<QueryInfo> queries) {
+        if (queries.isEmpty()) {
+            return "other";
+        }
+        String sql = queries.get(0).getQuery().stripLeading();
+        int end = 0;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        String keyword = sql.substring(0, end).toLowerCase(Locale.ROOT);
+        return switch (keyword) {
+            case "select", "insert", "update", "delete", "merge" -> keyword;
+            default -> "other";
+        };
+    }
+
+    private static long updateCount(Object result) {
+        if (result instanceof Integer count) {
+            return count;
+        }
+        if (result instanceof Long count) {
+            return count;
+        }
+        if (result instanceof int[] counts) {
+            long total = 0;
+            for (int count : counts) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        }
+        if (result instanceof long[] counts) {
+            long total = 0;
+            for (long count : counts) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        }
+        return -1;
+    }
+
+    private static String parameters(List<QueryInfo> queries) {
+        List<List<ParameterSetOperation>> parameterSets = queries.stream()
+                .flatMap(query -> query.getParametersList().stream())
+                .filter(parameterSet -> !parameterSet.isEmpty())
+                .toList();
+        String logged = parameterSets.stream()
+                .limit(MAX_LOGGED_BATCH_ENTRIES)
+                .map(QueryMetricsListener::parameterSet)
+                .collect(Collectors.joining(", "));
+        if (parameterSets.size() > MAX_LOGGED_BATCH_ENTRIES) {
+            logged += ", ... " + (parameterSets.size() - MAX_LOGGED_BATCH_ENTRIES) + " more";
+        }
+        return logged;
+    }
+
+    private static String parameterSet(List<ParameterSetOperation> operations) {
+        return operations.stream()
+                .sorted(Comparator.comparingInt(operation -> operation.getArgs()[0] instanceof Integer index ? index : 0))
+                .map(operation -> ParameterSetOperation.isSetNullParameterOperation(operation) || operation.getArgs().length < 2
+                        ? "null" : parameterValue(operation.getArgs()[1]))
+                .collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    private static String parameterValue(Object value) {
+        if (value instanceof byte[] bytes) {
+            return "<" + bytes.length + " bytes>";
+        }
+        String text = String.valueOf(value);
+        if (text.length() > MAX_PARAMETER_LENGTH) {
+            text = text.substring(0, MAX_PARAMETER_LENGTH) + "...";
+        }
+        return value instanceof CharSequence ? "'" + text + "'" : text;
+    }
+
+    private static final class Execution {
+
+        private final List<QueryInfo> queries;
+
+        private final Statement statement;
+
+        private final String repositoryMethod;
+
+        private final long startNanos;
+
+        private long rows;
+
+        private Execution(List<QueryInfo> queries, Statement statement, String repositoryMethod, long startNanos) {
+            this.queries = queries;
+            this.statement = statement;
+            this.repositoryMethod = repositoryMethod;
+            this.startNanos = startNanos;
+        }
+    }
+}
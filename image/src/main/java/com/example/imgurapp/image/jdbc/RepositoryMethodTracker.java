@@ -0,0 +1,42 @@
+package com.example.imgurapp.image.jdbc;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Remembers which repository method the current thread is in, so that the statements it runs
+ * can be attributed to it. Added as the outermost advice of every repository proxy, so that
+ * statements flushed when the repository's own transaction commits are attributed as well.
+ * */
+public class RepositoryMethodTracker implements MethodInterceptor {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private final String repositoryName;
+
+    public RepositoryMethodTracker(Class<?> repositoryInterface) {
+        this.repositoryName = repositoryInterface.getSimpleName();
+    }
+
+    /**
+     * @return The repository method, as <code>Repository.method</code>, the current thread is in,
+     * or null outside of repository calls
+     * */
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        //A repository calling another keeps the outermost method
+        if (CURRENT.get() != null) {
+            return invocation.proceed();
+        }
+        CURRENT.set(repositoryName + "." + invocation.getMethod().getName());
+        try {
+            return invocation.proceed();
+        } finally {
+            CURRENT.remove();
+        }
+    }
+}
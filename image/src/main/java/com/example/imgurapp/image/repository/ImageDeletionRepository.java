@@ -0,0 +1,77 @@
+package com.example.imgurapp.image.repository;
+
+import com.example.imgurapp.image.entity.ImageDeletion;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ImageDeletionRepository extends JpaRepository<ImageDeletion, Long> {
+
+    /**
+     * Fetches the deletions that are due, oldest first
+     *
+     * @param now Deletions due up to this instant are returned
+     * @param limit The maximum number of deletions to return
+     * @return The due deletions, ordered by due time
+     * */
+    List<ImageDeletion> findByNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(Instant now, Limit limit);
+
+    /**
+     * Queues the deletion of an image from its storage backend, only if the image exists and is
+     * owned by the given user. It reads the image row and writes the deletion in one statement.
+     *
+     * @param id The database id of the image
+     * @param userId The id of the owning user
+     * @param now The time of the deletion, when it is first due
+     * @return 1 if the deletion was queued, 0 if there is no such image for the user
+     * */
+    @Modifying
+    @Query("insert into ImageDeletion (backend, imageId, createdAt, nextAttemptAt, attempts) "
+            + "select i.backend, i.imageId, :now, :now, 0 from Image i where i.id = :id and i.user.userId = :userId")
+    int queueForImage(Long id, Long userId, Instant now);
+
+    /**
+     * Queues the deletion of several images from their storage backends, keeping only those
+     * owned by the given user, in one statement
+     *
+     * @param ids The database ids of the images
+     * @param userId The id of the owning user
+     * @param now The time of the deletion, when it is first due
+     * @return The number of deletions queued
+     * */
+    @Modifying
+    @Query("insert into ImageDeletion (backend, imageId, createdAt, nextAttemptAt, attempts) "
+            + "select i.backend, i.imageId, :now, :now, 0 from Image i where i.id in :ids and i.user.userId = :userId")
+    int queueForImages(Collection<Long> ids, Long userId, Instant now);
+
+    /**
+     * Claims a deletion for a dispatcher by moving its due time past the time it needs to make
+     * the attempt. Only one of several dispatchers reading the same due time gets the deletion.
+     *
+     * @param id The id of the deletion
+     * @param nextAttemptAt The due time the dispatcher read
+     * @param claimedUntil The time after which the deletion is due again if the attempt was lost
+     * @return 1 if the deletion was claimed, 0 if another dispatcher claimed it first
+     * */
+    @Modifying
+    @Query("update ImageDeletion d set d.nextAttemptAt = :claimedUntil "
+            + "where d.id = :id and d.nextAttemptAt = :nextAttemptAt")
+    int claim(Long id, Instant nextAttemptAt, Instant claimedUntil);
+
+    /**
+     * @return The number of deletions still to be made
+     * */
+    long countByNextAttemptAtIsNotNull();
+
+    /**
+     * @return The number of deletions given up on
+     * */
+    long countByNextAttemptAtIsNull();
+}
@@ -1,9 +1,121 @@
 package com.example.imgurapp.image.repository;
 
+import com.example.imgurapp.image.dto.ImageLink;
 import com.example.imgurapp.image.entity.Image;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface ImageRepository extends JpaRepository<Image, Long> {
+
+    /**
+     * Keyset pagination over a user's images, served by the (USER_ID, ID) index
+     *
+     * @param userId The id of the owning user
+     * @param afterId Only images with a greater id are returned
+     * @param limit The maximum number of images to return
+     * @return The images ordered by id
+     * */
+    List<Image> findByUserUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long afterId, Limit limit);
+
+    /**
+     * Looks up a single image only if it is owned by the given user
+     *
+     * @param id The database id of the image
+     * @param userId The id of the owning user
+     * @return An optional containing the image, if it exists and belongs to the user
+     * */
+    Optional<Image> findByIdAndUserUserId(Long id, Long userId);
+
+    /**
+     * Deletes a single image only if it is owned by the given user, without loading it
+     *
+     * @param id The database id of the image
+     * @param userId The id of the owning user
+     * @return 1 if the image was deleted, 0 if there is no such image for the user
+     * */
+    @Modifying
+    @Query("delete from Image i where i.id = :id and i.user.userId = :userId")
+    int deleteByIdAndUserId(Long id, Long userId);
+
+    /**
+     * Looks up several images at once, keeping only those owned by the given user
+     *
+     * @param userId The id of the owning user
+     * @param ids The database ids of the images
+     * @return The images that exist and belong to the user
+     * */
+    List<Image> findByUserUserIdAndIdIn(Long userId, Collection<Long> ids);
+
+    /**
+     * Looks up an image of the given user with the given content, served by the
+     * (CONTENT_HASH, USER_ID) index
+     *
+     * @param contentHash The SHA-256 of the image content
+     * @param userId The id of the owning user
+     * @return An optional containing one such image, if any
+     * */
+    Optional<Image> findFirstByContentHashAndUserUserId(String contentHash, Long userId);
+
+    /**
+     * Looks up an image of any user with the given content
+     *
+     * @param contentHash The SHA-256 of the image content
+     * @return An optional containing one such image, if any
+     * */
+    Optional<Image> findFirstByContentHash(String contentHash);
+
+    /**
+     * Looks up a row referencing an image of a storage backend
+     *
+     * @param imageId The id of the image within its backend
+     * @return An optional containing one such row, if any
+     * */
+    Optional<Image> findFirstByImageId(String imageId);
+
+    /**
+     * Tells whether any row references an image of a storage backend, in which case it must be
+     * kept there. Ids are only unique within a backend, so a row of another backend with the same
+     * id does not count.
+     *
+     * @param backend The name of the storage backend
+     * @param imageId The id of the image within the backend
+     * @return Whether a row references the image
+     * */
+    boolean existsByBackendAndImageId(String backend, String imageId);
+
+    /**
+     * Keyset pagination over all images, served by the primary key
+     *
+     * @param afterId Only images with a greater id are returned
+     * @param limit The maximum number of images to return
+     * @return The backend, id and link of each image, ordered by id
+     * */
+    @Query("select new com.example.imgurapp.image.dto.ImageLink(i.id, i.backend, i.imageId, i.url) from Image i "
+            + "where i.id > :afterId order by i.id")
+    List<ImageLink> findLinksByIdGreaterThan(Long afterId, Limit limit);
+
+    /**
+     * @return The greatest image id, or null if there are no images
+     * */
+    @Query("select max(i.id) from Image i")
+    Long findMaxId();
+
+    /**
+     * Replaces the link of every row referencing an Imgur image
+     *
+     * @param imageId The Imgur id of the image
+     * @param url The new link
+     * @return The number of rows updated
+     * */
+    @Modifying
+    @Query("update Image i set i.url = :url where i.imageId = :imageId")
+    int updateUrlByImageId(String imageId, String url);
 }
@@ -0,0 +1,9 @@
+package com.example.imgurapp.image.repository;
+
+import com.example.imgurapp.image.entity.ReconcileCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReconcileCheckpointRepository extends JpaRepository<ReconcileCheckpoint, String> {
+}
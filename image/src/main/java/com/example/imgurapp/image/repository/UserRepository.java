@@ -1,7 +1,9 @@
 package com.example.imgurapp.image.repository;
 
+import com.example.imgurapp.image.dto.UserProfile;
 import com.example.imgurapp.image.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -9,4 +11,12 @@ import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUserName(String userName);
+
+    /**
+     * Reads the profile of a user straight into the projection, so the entity and its images are
+     * never loaded
+     * */
+    @Query("select new com.example.imgurapp.image.dto.UserProfile(u.userId, u.name, u.userName, u.email) "
+            + "from User u where u.userName = :userName")
+    Optional<UserProfile> findProfileByUserName(String userName);
 }
@@ -0,0 +1,220 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.ImgurBatchProperties;
+import com.example.imgurapp.image.dto.BatchItemResult;
+import com.example.imgurapp.image.dto.StoredImage;
+import com.example.imgurapp.image.entity.Image;
+import com.example.imgurapp.image.entity.ImageDeletion;
+import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.repository.ImageDeletionRepository;
+import com.example.imgurapp.image.repository.ImageRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Uploads and deletes many images in one request. Uploads are fanned out on a shared pool of
+ * bounded size and stop being dispatched once the budget of the backend, the Imgur rate limit,
+ * runs low, while the database work for the whole batch is done in JDBC batches. Deletions go
+ * through the outbox, like single deletions.
+ * */
+@Slf4j
+@Service
+@EnableConfigurationProperties(ImgurBatchProperties.class)
+public class BatchImageService {
+
+    private final ImageStorageBackends storageBackends;
+
+    private final ImageRepository imageRepository;
+
+    private final ImageDeletionRepository imageDeletionRepository;
+
+    private final ImageBlobStore imageBlobStore;
+
+    private final ImageDeduplicator imageDeduplicator;
+
+    private final ImageOptimizer imageOptimizer;
+
+    private final ExecutorService executor;
+
+    private final int maxItems;
+
+    public BatchImageService(ImageStorageBackends storageBackends, ImageRepository imageRepository,
+                             ImageDeletionRepository imageDeletionRepository, ImageBlobStore imageBlobStore, ImageDeduplicator imageDeduplicator,
+                             ImageOptimizer imageOptimizer, ImgurBatchProperties properties) {
+        this.storageBackends = storageBackends;
+        this.imageRepository = imageRepository;
+        this.imageDeletionRepository = imageDeletionRepository;
+        this.imageBlobStore = imageBlobStore;
+        this.imageDeduplicator = imageDeduplicator;
+        this.imageOptimizer = imageOptimizer;
+        this.maxItems = properties.getMaxItems();
+        this.executor = Executors.newFixedThreadPool(properties.getParallelism(),
+                new CustomizableThreadFactory("imgur-batch-"));
+    }
+
+    /**
+     * @return The maximum number of items accepted in one batch
+     * */
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    /**
+     * Uploads several images to the storage backend of the user and stores the successful ones in
+     * a single batch insert. If the insert fails, the uploaded images are queued for deletion from
+     * their backend and reported as failed.
+     *
+     * @param user The user associated with the images
+     * @param files The image files to be uploaded
+     * @return One result per file, in the order of the files
+     * */
+    public List<BatchItemResult> uploadImages(User user, List<MultipartFile> files) {
+        log.info("Uploading a batch of {} images for user: {}", files.size(), user.getUserName());
+        List<CompletableFuture<Image>> uploads = new ArrayList<>();
+        for (MultipartFile file : files) {
+            uploads.add(CompletableFuture.supplyAsync(() -> upload(user, file), executor));
+        }
+
+        List<BatchItemResult> results = new ArrayList<>();
+        List<Image> images = new ArrayList<>();
+        List<Integer> imageItems = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            String item = files.get(i).getOriginalFilename();
+            try {
+                Image image = uploads.get(i).join();
+                if (image.getId() == null) {
+                    images.add(image);
+                    imageItems.add(i);
+                }
+                results.add(BatchItemResult.success(item, HttpStatus.CREATED.value(), image));
+            } catch (Exception e) {
+                results.add(failure(item, e));
+            }
+        }
+
+        try {
+            imageRepository.saveAll(images);
+        } catch (RuntimeException e) {
+            log.error("Unable to save a batch of {} images for user: {}", images.size(), user.getUserName(), e);
+            queueDeletions(images);
+            for (int i : imageItems) {
+                results.set(i, BatchItemResult.failure(results.get(i).item(),
+                        HttpStatus.INTERNAL_SERVER_ERROR.value(), "Unable to save the image"));
+            }
+            return results;
+        }
+        log.info("{} of {} images uploaded for user: {}", images.size(), files.size(), user.getUserName());
+        return results;
+    }
+
+    /**
+     * Deletes several images of a user from the database and queues their deletion from their
+     * storage backends in the same transaction, with one statement each, as
+     * {@link ImageService#deleteImage(User, Long)} does for a single image. {@link ImageDeletionDispatcher}
+     * deletes them from their backends afterwards, within the budget of each backend.
+     *
+     * @param user The user who must own the images
+     * @param imageIds The database ids of the images
+     * @return One result per image id, in the order of the ids
+     * */
+    @Transactional
+    public List<BatchItemResult> deleteImages(User user, List<Long> imageIds) {
+        log.info("Deleting a batch of {} images for user: {}", imageIds.size(), user.getUserName());
+        List<Image> owned = imageRepository.findByUserUserIdAndIdIn(user.getUserId(), imageIds);
+        Set<Long> ownedIds = owned.stream().map(Image::getId).collect(Collectors.toSet());
+        if (!owned.isEmpty()) {
+            imageDeletionRepository.queueForImages(ownedIds, user.getUserId(), Instant.now());
+            imageRepository.deleteAllInBatch(owned);
+        }
+
+        List<BatchItemResult> results = new ArrayList<>();
+        for (Long imageId : imageIds) {
+            results.add(ownedIds.contains(imageId)
+                    ? BatchItemResult.success(String.valueOf(imageId), HttpStatus.NO_CONTENT.value(), null)
+                    : BatchItemResult.failure(String.valueOf(imageId), HttpStatus.NOT_FOUND.value(), "Image not found"));
+        }
+        log.info("{} of {} images deleted for user: {}", owned.size(), imageIds.size(), user.getUserName());
+        return results;
+    }
+
+    private Image upload(User user, MultipartFile file) {
+        String contentHash = imageBlobStore.hashUpload(file).orElse(null);
+        Optional<Image> duplicate = imageDeduplicator.findDuplicate(user, contentHash, file.getSize());
+        if (duplicate.isPresent()) {
+            return duplicate.get();
+        }
+
+        ImageStorageBackend backend = storageBackends.forUser(user);
+        acquireRateLimit(backend);
+        MultipartFile upload = imageOptimizer.optimize(file);
+        StoredImage storedImage;
+        try {
+            storedImage = backend.upload(upload);
+        } finally {
+            imageOptimizer.discard(upload);
+        }
+        Image image = new Image();
+        image.setUrl(storedImage.link());
+        image.setImageId(storedImage.id());
+        image.setContentHash(contentHash);
+        image.setBackend(backend.getName());
+        image.setUser(user);
+        return image;
+    }
+
+    /**
+     * Queues images that were uploaded but never saved for deletion from their backend, so they are
+     * not left behind without a row
+     * */
+    private void queueDeletions(List<Image> images) {
+        Instant now = Instant.now();
+        try {
+            imageDeletionRepository.saveAll(images.stream()
+                    .map(image -> new ImageDeletion(image.getBackend(), image.getImageId(), now))
+                    .toList());
+        } catch (RuntimeException e) {
+            log.error("Unable to queue the deletion of unsaved images: {}",
+                    images.stream().map(Image::getImageId).toList(), e);
+        }
+    }
+
+    private static void acquireRateLimit(ImageStorageBackend backend) {
+        if (!backend.tryAcquire()) {
+            throw new RateLimitedException();
+        }
+    }
+
+    private static BatchItemResult failure(String item, Exception e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof RateLimitedException) {
+            return BatchItemResult.failure(item, HttpStatus.TOO_MANY_REQUESTS.value(),
+                    "Imgur rate limit reached, retry later");
+        }
+        log.error("Batch item {} failed", item, cause);
+        return BatchItemResult.failure(item, HttpStatus.BAD_GATEWAY.value(), cause.getMessage());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static class RateLimitedException extends RuntimeException {
+    }
+}
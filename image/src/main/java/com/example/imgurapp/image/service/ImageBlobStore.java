@@ -0,0 +1,292 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.ImageStoreProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * A content-addressed store of image originals and their thumbnails on local disk. Originals
+ * are named by the SHA-256 of their content, thumbnails by that hash and their size, so the same
+ * content is only stored once. Copies that must not be taken for an original, such as the
+ * content of an image as its storage backend keeps it, are named by a key instead. The store is bounded in size: once it grows past its limit, the
+ * least recently used files are deleted.
+ * */
+@Slf4j
+@Component
+@EnableConfigurationProperties(ImageStoreProperties.class)
+public class ImageBlobStore {
+
+    private static final String THUMBNAIL_FORMAT = "png";
+
+    private final ImageStoreProperties properties;
+
+    private final long maxBytes;
+
+    /** Size of every stored file by its name, in access order */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+
+    public ImageBlobStore(ImageStoreProperties properties) throws IOException {
+        this.properties = properties;
+        this.maxBytes = properties.getMaxSize().toBytes();
+        if (properties.isEnabled()) {
+            Files.createDirectories(properties.getDirectory());
+            loadEntries();
+        }
+    }
+
+    /**
+     * @return Whether image content is kept locally
+     * */
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * @param size The requested thumbnail size
+     * @return Whether thumbnails of this size are served
+     * */
+    public boolean isThumbnailSize(int size) {
+        return properties.getThumbnailSizes().contains(size);
+    }
+
+    /**
+     * Hashes the content of an uploaded file and, if the store is enabled, keeps the content in
+     * the same pass. A failure is logged and otherwise ignored, as the upload can proceed
+     * without a hash and the content can still be fetched from Imgur later.
+     *
+     * @param file The uploaded file
+     * @return An optional containing the content hash, unless the file could not be read or stored
+     * */
+    public Optional<String> hashUpload(MultipartFile file) {
+        try (InputStream in = file.getInputStream()) {
+            if (isEnabled()) {
+                return Optional.of(put(in));
+            }
+            MessageDigest digest = sha256();
+            try (DigestInputStream digestIn = new DigestInputStream(in, digest)) {
+                digestIn.transferTo(OutputStream.nullOutputStream());
+            }
+            return Optional.of(HexFormat.of().formatHex(digest.digest()));
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Unable to hash the content of {}", file.getOriginalFilename(), e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores content read from a stream, hashing it while it is written to disk
+     *
+     * @param in The content
+     * @return The SHA-256 of the content as lowercase hex
+     * @throws IOException If the content cannot be read or written
+     * */
+    public String put(InputStream in) throws IOException {
+        return store(null, in);
+    }
+
+    /**
+     * Stores content read from a stream under a name derived from a key rather than from the
+     * content, for a copy whose hash must not be taken for that of the original
+     *
+     * @param key Identifies the content, such as the storage backend and id of an image
+     * @param in The content
+     * @return The name the content is stored under, the same as keyName returns
+     * @throws IOException If the content cannot be read or written
+     * */
+    public String put(String key, InputStream in) throws IOException {
+        return store(keyName(key), in);
+    }
+
+    /**
+     * @param key Identifies content stored with put(String, InputStream)
+     * @return The name the content is stored under, to be looked up with get and getThumbnail
+     * */
+    public static String keyName(String key) {
+        return "key-" + HexFormat.of().formatHex(sha256().digest(key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Looks up a stored original and marks it as recently used
+     *
+     * @param hash The content hash of the original, or the name of keyed content
+     * @return An optional containing the path of the original, if it is stored
+     * */
+    public Optional<Path> get(String hash) {
+        return lookup(hash);
+    }
+
+    /**
+     * Looks up a thumbnail of a stored original, generating it on first use
+     *
+     * @param hash The content hash of the original, or the name of keyed content
+     * @param size The length of the longer side of the thumbnail in pixels
+     * @return An optional containing the path of the thumbnail, if the original is stored and is
+     * an image format that can be decoded, of no more than max-thumbnail-source-pixels pixels
+     * @throws IOException If the thumbnail cannot be written
+     * */
+    public Optional<Path> getThumbnail(String hash, int size) throws IOException {
+        String name = hash + "-" + size + "." + THUMBNAIL_FORMAT;
+        Optional<Path> thumbnail = lookup(name);
+        if (thumbnail.isPresent()) {
+            return thumbnail;
+        }
+        Optional<Path> original = lookup(hash);
+        if (original.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Optional<BufferedImage> source = ImageDecoder.read(original.get(), size, properties.getMaxThumbnailSourcePixels());
+        if (source.isEmpty()) {
+            return Optional.empty();
+        }
+        Path temp = Files.createTempFile(properties.getDirectory(), "thumbnail-", ".tmp");
+        try {
+            ImageIO.write(scale(source.get(), size), THUMBNAIL_FORMAT, temp.toFile());
+            Path target = properties.getDirectory().resolve(name);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            register(name, Files.size(target));
+            return Optional.of(target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @return The total size of the stored files in bytes
+     * */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private String store(String name, InputStream in) throws IOException {
+        Path temp = Files.createTempFile(properties.getDirectory(), "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                in.transferTo(out);
+            }
+            String stored = name != null ? name : HexFormat.of().formatHex(digest.digest());
+            Path target = properties.getDirectory().resolve(stored);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            register(stored, Files.size(target));
+            return stored;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Optional<Path> lookup(String name) {
+        synchronized (this) {
+            if (entries.get(name) == null) {
+                return Optional.empty();
+            }
+        }
+        Path path = properties.getDirectory().resolve(name);
+        return Files.exists(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    private synchronized void register(String name, long size) {
+        Long previous = entries.put(name, size);
+        totalBytes += size - (previous == null ? 0 : previous);
+
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(name)) {
+                continue;
+            }
+            eldest.remove();
+            totalBytes -= entry.getValue();
+            delete(entry.getKey());
+        }
+    }
+
+    private void delete(String name) {
+        try {
+            Files.deleteIfExists(properties.getDirectory().resolve(name));
+            log.debug("Evicted {} from the local image store", name);
+        } catch (IOException e) {
+            log.warn("Unable to evict {} from the local image store", name, e);
+        }
+    }
+
+    /**
+     * Rebuilds the index from the files left by a previous run, oldest access first
+     * */
+    private void loadEntries() throws IOException {
+        try (Stream<Path> files = Files.list(properties.getDirectory())) {
+            List<Path> stored = files.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().endsWith(".tmp"))
+                    .sorted(Comparator.comparing(ImageBlobStore::lastAccess))
+                    .toList();
+            for (Path path : stored) {
+                register(path.getFileName().toString(), Files.size(path));
+            }
+        }
+        log.info("Local image store holds {} files, {} bytes", entries.size(), totalBytes);
+    }
+
+    private static FileTime lastAccess(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).lastAccessTime();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int size) {
+        double ratio = Math.min(1.0, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return thumbnail;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
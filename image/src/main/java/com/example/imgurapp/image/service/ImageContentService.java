@@ -0,0 +1,109 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.dto.ImageContent;
+import com.example.imgurapp.image.entity.Image;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Serves image content from the local image store, fetching it from the storage backend of the
+ * image on a miss
+ * */
+@Slf4j
+@Service
+public class ImageContentService {
+
+    private final ImageBlobStore imageBlobStore;
+
+    private final ImageStorageBackends storageBackends;
+
+    public ImageContentService(ImageBlobStore imageBlobStore, ImageStorageBackends storageBackends) {
+        this.imageBlobStore = imageBlobStore;
+        this.storageBackends = storageBackends;
+    }
+
+    /**
+     * @return Whether image content is served locally
+     * */
+    public boolean isEnabled() {
+        return imageBlobStore.isEnabled();
+    }
+
+    /**
+     * @param size The requested thumbnail size
+     * @return Whether thumbnails of this size are served
+     * */
+    public boolean isThumbnailSize(int size) {
+        return imageBlobStore.isThumbnailSize(size);
+    }
+
+    /**
+     * Fetches the content of an image, or of one of its thumbnails, from the local store. If
+     * the original upload is not stored, the content is read from the storage backend of the
+     * image first. Content the store does not keep, such as content larger than the store
+     * itself, is redirected to instead.
+     *
+     * @param image The image whose content is to be served
+     * @param thumbnailSize The size of the thumbnail, or null for the original
+     * @return An optional containing the content, which is empty if the storage backend no longer
+     * has the image or a thumbnail is requested for content that cannot be decoded as an image
+     * @throws RuntimeException If the content cannot be fetched or stored
+     * */
+    public Optional<ImageContent> getContent(Image image, Integer thumbnailSize) {
+        try {
+            String name = image.getContentHash();
+            if (name == null || imageBlobStore.get(name).isEmpty()) {
+                //The backend may keep other bytes than were uploaded, such as an optimized copy, so they
+                //are stored under the image rather than under the content hash, which deduplication relies on
+                name = ImageBlobStore.keyName(backendKey(image));
+                if (imageBlobStore.get(name).isEmpty() && !fetch(image)) {
+                    log.warn("Image with id: {} is gone from its storage backend", image.getId());
+                    return Optional.empty();
+                }
+            }
+
+            Optional<Path> original = imageBlobStore.get(name);
+            if (original.isEmpty()) {
+                log.warn("Content of image with id: {} was evicted from the local store, redirecting", image.getId());
+                return Optional.of(ImageContent.redirect(image.getUrl()));
+            }
+
+            if (thumbnailSize == null) {
+                MediaType mediaType = MediaTypeFactory.getMediaType(image.getUrl())
+                        .orElse(MediaType.APPLICATION_OCTET_STREAM);
+                return Optional.of(ImageContent.of(new FileSystemResource(original.get()), "\"" + name + "\"", mediaType));
+            }
+            String eTag = "\"" + name + "-" + thumbnailSize + "\"";
+            return imageBlobStore.getThumbnail(name, thumbnailSize)
+                    .map(thumbnail -> ImageContent.of(new FileSystemResource(thumbnail), eTag, MediaType.IMAGE_PNG));
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Unable to serve the content of image with id: {}", image.getId(), e);
+            throw new RuntimeException("Image content unavailable", e);
+        }
+    }
+
+    /**
+     * Reads the content of the image from its storage backend into the store
+     *
+     * @param image The image to be fetched
+     * @return Whether the backend still has the image
+     * */
+    private boolean fetch(Image image) {
+        log.info("Fetching content of image with id: {} from {}", image.getId(), image.getBackend());
+        String key = backendKey(image);
+        return storageBackends.get(image.getBackend()).read(image.getImageId(), in -> imageBlobStore.put(key, in))
+                .isPresent();
+    }
+
+    private static String backendKey(Image image) {
+        return image.getBackend() + ":" + image.getImageId();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.imgurapp.image.service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * Decodes images at no more than twice the resolution they are needed at, so that a large photo
+ * never exists in memory at full size, and refuses images with more pixels than a limit before
+ * decoding them at all
+ * */
+final class ImageDecoder {
+
+    private ImageDecoder() {
+    }
+
+    /**
+     * Decodes the first image of a file
+     *
+     * @param path The file
+     * @param targetSize The length in pixels the longer side is to be scaled down to, 0 for the full size
+     * @param maxPixels The largest number of pixels decoded
+     * @return An optional containing the image, which is empty if the file is not an image format
+     * that can be decoded or has more pixels than maxPixels
+     * @throws IOException If the file cannot be read
+     * */
+    static Optional<BufferedImage> read(Path path, int targetSize, long maxPixels) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return Optional.empty();
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                if (exceeds(reader, maxPixels)) {
+                    return Optional.empty();
+                }
+                return Optional.of(decode(reader, targetSize));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * @param reader A reader set to its input
+     * @param maxPixels The largest number of pixels decoded
+     * @return Whether the first image of the reader has more pixels than maxPixels
+     * */
+    static boolean exceeds(ImageReader reader, long maxPixels) throws IOException {
+        return (long) reader.getWidth(0) * reader.getHeight(0) > maxPixels;
+    }
+
+    /**
+     * Decodes the first image of a reader, skipping rows and columns while decoding if it is at
+     * least twice the target size
+     *
+     * @param reader A reader set to its input
+     * @param targetSize The length in pixels the longer side is to be scaled down to, 0 for the full size
+     * */
+    static BufferedImage decode(ImageReader reader, int targetSize) throws IOException {
+        int longer = Math.max(reader.getWidth(0), reader.getHeight(0));
+        ImageReadParam param = reader.getDefaultReadParam();
+        int subsampling = targetSize > 0 ? longer / targetSize : 1;
+        if (subsampling > 1) {
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        }
+        return reader.read(0, param);
+    }
+}
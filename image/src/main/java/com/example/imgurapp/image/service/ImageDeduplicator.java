@@ -0,0 +1,80 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.DedupProperties;
+import com.example.imgurapp.image.entity.Image;
+import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.repository.ImageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Finds earlier uploads of the same content, so that re-uploading a file reuses its Imgur image
+ * instead of encoding and sending it again
+ * */
+@Slf4j
+@Service
+@EnableConfigurationProperties(DedupProperties.class)
+public class ImageDeduplicator {
+
+    private final ImageRepository imageRepository;
+
+    private final DedupProperties properties;
+
+    private final Counter savedUploads;
+
+    private final Counter savedBytes;
+
+    public ImageDeduplicator(ImageRepository imageRepository, DedupProperties properties, MeterRegistry meterRegistry) {
+        this.imageRepository = imageRepository;
+        this.properties = properties;
+        this.savedUploads = Counter.builder("imgur.upload.deduplicated")
+                .description("Uploads served from an existing Imgur image instead of an Imgur call")
+                .register(meterRegistry);
+        this.savedBytes = Counter.builder("imgur.upload.deduplicated.bytes")
+                .description("Bytes not sent to Imgur thanks to deduplication")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Looks for an image with the same content within the configured scope
+     *
+     * @param user The uploading user
+     * @param contentHash The SHA-256 of the uploaded content, or null if it could not be computed
+     * @param size The size of the uploaded content in bytes
+     * @return An optional containing the user's existing image, or a new unsaved image of the user
+     * linked to another user's Imgur image. It is empty if the content has not been uploaded before.
+     * */
+    public Optional<Image> findDuplicate(User user, String contentHash, long size) {
+        if (!properties.isEnabled() || contentHash == null) {
+            return Optional.empty();
+        }
+
+        Optional<Image> duplicate = imageRepository.findFirstByContentHashAndUserUserId(contentHash, user.getUserId());
+        if (duplicate.isEmpty() && properties.getScope() == DedupProperties.Scope.GLOBAL) {
+            duplicate = imageRepository.findFirstByContentHash(contentHash).map(existing -> link(user, existing));
+        }
+
+        duplicate.ifPresent(image -> {
+            log.info("Reusing Imgur image {} for an upload of user: {}", image.getImageId(), user.getUserName());
+            savedUploads.increment();
+            savedBytes.increment(size);
+        });
+        return duplicate;
+    }
+
+    private static Image link(User user, Image existing) {
+        Image image = new Image();
+        image.setUrl(existing.getUrl());
+        image.setImageId(existing.getImageId());
+        image.setContentHash(existing.getContentHash());
+        image.setBackend(existing.getBackend());
+        image.setUser(user);
+        return image;
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.CacheConfig;
+import com.example.imgurapp.image.config.OutboxProperties;
+import com.example.imgurapp.image.entity.ImageDeletion;
+import com.example.imgurapp.image.repository.ImageDeletionRepository;
+import com.example.imgurapp.image.repository.ImageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Drains the image deletion outbox: deletes from their storage backends the images whose rows
+ * were deleted by {@link ImageService#deleteImage}, in batches, off the request path.
+ *
+ * <p>Each batch is claimed before it is attempted, so several nodes can run the job without
+ * deleting an image twice. A failed deletion is attempted again with an exponential backoff, and
+ * given up on after <code>app.outbox.max-attempts</code>, or at once if Imgur refused the request
+ * itself; it then stays in the outbox with its last error. An image that is referenced by a row
+ * again needs no deletion.</p>
+ * */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "app.outbox", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(OutboxProperties.class)
+public class ImageDeletionDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final ImageDeletionRepository deletionRepository;
+
+    private final ImageRepository imageRepository;
+
+    private final ImageStorageBackends storageBackends;
+
+    private final CacheManager cacheManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final OutboxProperties properties;
+
+    private final ExecutorService executor;
+
+    private final Clock clock = Clock.systemUTC();
+
+    private final Map<Outcome, Counter> outcomes = new HashMap<>();
+
+    private final Timer latency;
+
+    private volatile long depth;
+
+    private volatile long abandoned;
+
+    public ImageDeletionDispatcher(ImageDeletionRepository deletionRepository, ImageRepository imageRepository,
+                                   ImageStorageBackends storageBackends, CacheManager cacheManager,
+                                   PlatformTransactionManager transactionManager, OutboxProperties properties,
+                                   MeterRegistry meterRegistry) {
+        this.deletionRepository = deletionRepository;
+        this.imageRepository = imageRepository;
+        this.storageBackends = storageBackends;
+        this.cacheManager = cacheManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.executor = Executors.newFixedThreadPool(properties.getConcurrency(),
+                new CustomizableThreadFactory("image-deletion-"));
+
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, Counter.builder("image.outbox.dispatched")
+                    .description("Attempts to delete an image from its storage backend")
+                    .tag("result", outcome.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        this.latency = Timer.builder("image.outbox.latency")
+                .description("Time from the deletion of an image row until its stored image is deleted")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("image.outbox.depth", this, dispatcher -> dispatcher.depth)
+                .description("Image deletions waiting in the outbox")
+                .register(meterRegistry);
+        Gauge.builder("image.outbox.abandoned", this, dispatcher -> dispatcher.abandoned)
+                .description("Image deletions given up on and left in the outbox")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Claims the deletions that are due and attempts them
+     * */
+    @Scheduled(fixedDelayString = "${app.outbox.interval:PT5S}", initialDelayString = "${app.outbox.interval:PT5S}")
+    public void dispatch() {
+        Instant now = clock.instant();
+        List<ImageDeletion> due = deletionRepository.findByNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(now,
+                Limit.of(properties.getBatchSize()));
+        if (!due.isEmpty()) {
+            Instant claimedUntil = now.plus(properties.getClaimTimeout());
+            List<ImageDeletion> claimed = transactionTemplate.execute(status -> due.stream()
+                    .filter(deletion -> deletionRepository.claim(deletion.getId(), deletion.getNextAttemptAt(), claimedUntil) == 1)
+                    .toList());
+
+            claimed.stream()
+                    .map(deletion -> CompletableFuture.runAsync(() -> attempt(deletion), executor))
+                    .toList()
+                    .forEach(CompletableFuture::join);
+        }
+        depth = deletionRepository.countByNextAttemptAtIsNotNull();
+        abandoned = deletionRepository.countByNextAttemptAtIsNull();
+    }
+
+    private void attempt(ImageDeletion deletion) {
+        String imageId = deletion.getImageId();
+        if (imageRepository.existsByBackendAndImageId(deletion.getBackend(), imageId)) {
+            //A deduplicated upload links to the image again
+            complete(deletion, Outcome.SUPERSEDED);
+            return;
+        }
+        try {
+            ImageStorageBackend backend = storageBackends.get(deletion.getBackend());
+            if (!backend.tryAcquire()) {
+                //Due again with the next batch, without counting as a failure
+                deletion.setNextAttemptAt(clock.instant());
+                deletionRepository.save(deletion);
+                outcomes.get(Outcome.THROTTLED).increment();
+                return;
+            }
+            backend.delete(imageId);
+            complete(deletion, Outcome.DELETED);
+        } catch (RuntimeException e) {
+            fail(deletion, e);
+        }
+    }
+
+    private void complete(ImageDeletion deletion, Outcome outcome) {
+        deletionRepository.deleteById(deletion.getId());
+        cacheManager.getCache(CacheConfig.IMAGE_DETAILS_CACHE).evict(deletion.getImageId());
+        cacheManager.getCache(CacheConfig.IMAGE_DETAILS_STALE_CACHE).evict(deletion.getImageId());
+        outcomes.get(outcome).increment();
+        latency.record(Duration.between(deletion.getCreatedAt(), clock.instant()));
+    }
+
+    private void fail(ImageDeletion deletion, RuntimeException e) {
+        int attempts = deletion.getAttempts() + 1;
+        deletion.setAttempts(attempts);
+        deletion.setLastError(abbreviate(String.valueOf(rootCause(e).getMessage())));
+        if (attempts >= properties.getMaxAttempts() || isRefused(e)) {
+            log.error("Giving up on deleting {} image {} after {} attempts", deletion.getBackend(),
+                    deletion.getImageId(), attempts, e);
+            deletion.setNextAttemptAt(null);
+            outcomes.get(Outcome.ABANDONED).increment();
+        } else {
+            Duration backoff = backoff(attempts);
+            log.warn("Unable to delete {} image {}, retrying in {}", deletion.getBackend(),
+                    deletion.getImageId(), backoff, e);
+            deletion.setNextAttemptAt(clock.instant().plus(backoff));
+            outcomes.get(Outcome.RETRIED).increment();
+        }
+        deletionRepository.save(deletion);
+    }
+
+    /**
+     * @return The delay after a number of failed attempts, exponential up to the configured
+     * maximum, with jitter so that deletions failed together are not attempted together again
+     * */
+    private Duration backoff(int attempts) {
+        long initial = properties.getInitialBackoff().toMillis();
+        long max = properties.getMaxBackoff().toMillis();
+        long delay = attempts > 31 ? max : Math.min(max, initial << (attempts - 1));
+        return Duration.ofMillis(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+    }
+
+    /**
+     * @return Whether Imgur refused the request itself, which no further attempt would change
+     * */
+    private static boolean isRefused(Throwable throwable) {
+        return rootCause(throwable) instanceof HttpClientErrorException clientError
+                && clientError.getStatusCode() != HttpStatus.TOO_MANY_REQUESTS;
+    }
+
+    private static Throwable rootCause(Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static String abbreviate(String message) {
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private enum Outcome {
+        DELETED, SUPERSEDED, THROTTLED, RETRIED, ABANDONED
+    }
+}
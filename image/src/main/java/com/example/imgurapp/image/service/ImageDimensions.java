@@ -0,0 +1,41 @@
+package com.example.imgurapp.image.service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * The size of an image in pixels, read from its header without decoding the pixels
+ *
+ * @param width The width in pixels, or 0 if unknown
+ * @param height The height in pixels, or 0 if unknown
+ * */
+record ImageDimensions(int width, int height) {
+
+    static final ImageDimensions UNKNOWN = new ImageDimensions(0, 0);
+
+    /**
+     * @param in The image content; only its header is read
+     * @return The dimensions, or {@link #UNKNOWN} if the content is not an image ImageIO can read
+     * */
+    static ImageDimensions read(InputStream in) {
+        try (ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = imageIn == null ? null : ImageIO.getImageReaders(imageIn);
+            if (readers == null || !readers.hasNext()) {
+                return UNKNOWN;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageIn, true, true);
+                return new ImageDimensions(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            return UNKNOWN;
+        }
+    }
+}
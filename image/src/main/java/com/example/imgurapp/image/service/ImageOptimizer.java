@@ -0,0 +1,369 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.ImageOptimizationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Shrinks uploads before they are sent to Imgur: images are scaled down to a maximum dimension,
+ * recompressed, stripped of their metadata and optionally converted to another format.
+ *
+ * <p>Images are decoded from a stream and, when they are much larger than the target, at a
+ * reduced resolution, so a 30 MB photo never exists in memory at full size. The work runs on a
+ * small pool of its own so that it cannot take CPU from request handling beyond that pool; when
+ * the pool is saturated, the image takes longer than the timeout, or the result would not be
+ * smaller, the upload is sent as it is.</p>
+ * */
+@Slf4j
+@Service
+@EnableConfigurationProperties(ImageOptimizationProperties.class)
+public class ImageOptimizer {
+
+    private static final String JPEG = "jpeg";
+
+    private static final String PNG = "png";
+
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+
+    private static final int APP1_MARKER = 0xE1;
+
+    private static final int ORIENTATION_TAG = 0x0112;
+
+    private final ImageOptimizationProperties properties;
+
+    private final Path spoolDirectory;
+
+    private final ThreadPoolExecutor executor;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter savedBytes;
+
+    private final Counter rejected;
+
+    private final Counter timedOut;
+
+    public ImageOptimizer(ImageOptimizationProperties properties, MeterRegistry meterRegistry) throws IOException {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.spoolDirectory = Files.createDirectories(properties.getSpoolDirectory());
+        this.executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                new CustomizableThreadFactory("image-optimizer-"));
+        this.savedBytes = Counter.builder("image.optimize.saved.bytes")
+                .description("Bytes not sent to Imgur thanks to image optimization")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("image.optimize.rejected")
+                .description("Uploads sent as they are because the optimization pool was saturated")
+                .register(meterRegistry);
+        this.timedOut = Counter.builder("image.optimize.timeout")
+                .description("Uploads sent as they are because their optimization took too long")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Optimizes an upload on the optimization pool, waiting for the result
+     *
+     * @param file The uploaded file
+     * @return The optimized file, to be passed to discard once sent, or the uploaded file itself if
+     * optimization is disabled, the file is not a JPEG or PNG image, could not be made smaller in
+     * time or the pool is saturated
+     * */
+    public MultipartFile optimize(MultipartFile file) {
+        if (!properties.isEnabled() || file.getSize() < properties.getMinSize().toBytes()) {
+            return file;
+        }
+
+        Future<Optional<OptimizedFile>> result;
+        try {
+            result = executor.submit(() -> process(file));
+        } catch (RejectedExecutionException e) {
+            log.warn("Image optimization is saturated, sending {} as it is", file.getOriginalFilename());
+            rejected.increment();
+            return file;
+        }
+
+        try {
+            return result.get(properties.getTimeout().toNanos(), TimeUnit.NANOSECONDS)
+                    .map(MultipartFile.class::cast).orElse(file);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            log.warn("Image optimization of {} timed out, sending it as it is", file.getOriginalFilename());
+            timedOut.increment();
+            return file;
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            return file;
+        } catch (ExecutionException e) {
+            log.warn("Unable to optimize {}, sending it as it is", file.getOriginalFilename(), e.getCause());
+            return file;
+        }
+    }
+
+    /**
+     * Deletes the file written by optimize, once it has been sent
+     *
+     * @param file The file returned by optimize. Uploaded files are left alone.
+     * */
+    public void discard(MultipartFile file) {
+        if (file instanceof OptimizedFile optimized) {
+            try {
+                Files.deleteIfExists(optimized.getPath());
+            } catch (IOException e) {
+                log.error("Unable to delete optimized upload {}", optimized.getPath(), e);
+            }
+        }
+    }
+
+    private Optional<OptimizedFile> process(MultipartFile file) throws IOException {
+        long start = System.nanoTime();
+        String outcome = "failed";
+        try (InputStream in = file.getInputStream();
+             ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageIn);
+            if (!readers.hasNext()) {
+                outcome = "unsupported";
+                return Optional.empty();
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageIn, true, false);
+                String sourceFormat = reader.getFormatName().toLowerCase(Locale.ROOT);
+                if (!JPEG.equals(sourceFormat) && !PNG.equals(sourceFormat)
+                        || ImageDecoder.exceeds(reader, properties.getMaxInputPixels())) {
+                    outcome = "unsupported";
+                    return Optional.empty();
+                }
+
+                BufferedImage image = ImageDecoder.decode(reader, properties.getMaxDimension());
+                int orientation = JPEG.equals(sourceFormat) ? orientation(reader.getImageMetadata(0)) : 1;
+                String format = StringUtils.hasText(properties.getFormat())
+                        ? properties.getFormat().toLowerCase(Locale.ROOT) : sourceFormat;
+                Path path = Files.createTempFile(spoolDirectory, "optimized-", "." + extension(format));
+                try {
+                    write(render(image, orientation, PNG.equals(format) && image.getColorModel().hasAlpha()), format, path);
+                    long size = Files.size(path);
+                    if (size >= file.getSize()) {
+                        outcome = "larger";
+                        Files.deleteIfExists(path);
+                        return Optional.empty();
+                    }
+                    if (Thread.currentThread().isInterrupted()) {
+                        //Given up on by optimize, so nobody would discard the file
+                        outcome = "cancelled";
+                        Files.deleteIfExists(path);
+                        return Optional.empty();
+                    }
+                    outcome = "optimized";
+                    savedBytes.increment(file.getSize() - size);
+                    return Optional.of(new OptimizedFile(path, file.getName(), filename(file.getOriginalFilename(), format),
+                            "image/" + format, size));
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(path);
+                    throw e;
+                }
+            } finally {
+                reader.dispose();
+            }
+        } finally {
+            Timer.builder("image.optimize")
+                    .description("Time taken to optimize an upload")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Scales an image down to the maximum dimension and turns it upright in a single pass
+     *
+     * @param image The decoded image
+     * @param orientation The EXIF orientation, from 1 to 8
+     * @param alpha Whether transparency is kept; otherwise the image is drawn on white
+     * */
+    private BufferedImage render(BufferedImage image, int orientation, boolean alpha) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int longer = Math.max(width, height);
+        if (properties.getMaxDimension() > 0 && longer > properties.getMaxDimension()) {
+            double scale = (double) properties.getMaxDimension() / longer;
+            width = Math.max(1, (int) Math.round(width * scale));
+            height = Math.max(1, (int) Math.round(height * scale));
+        }
+
+        boolean transposed = orientation >= 5 && orientation <= 8;
+        BufferedImage result = new BufferedImage(transposed ? height : width, transposed ? width : height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = result.createGraphics();
+        try {
+            if (!alpha) {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, result.getWidth(), result.getHeight());
+            }
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.transform(orientationTransform(orientation, width, height));
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return result;
+    }
+
+    /**
+     * @return The transform that turns an image of the given size, stored with the given EXIF
+     * orientation, upright
+     * */
+    private static AffineTransform orientationTransform(int orientation, int width, int height) {
+        return switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, width, 0);
+            case 3 -> new AffineTransform(-1, 0, 0, -1, width, height);
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, height);
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> new AffineTransform(0, 1, -1, 0, height, 0);
+            case 7 -> new AffineTransform(0, -1, -1, 0, height, width);
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, width);
+            default -> new AffineTransform();
+        };
+    }
+
+    private void write(BufferedImage image, String format, Path path) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for " + format);
+        }
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(path.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (JPEG.equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(properties.getQuality());
+            }
+            writer.setOutput(out);
+            //No metadata is passed on, so EXIF, comments and text chunks are dropped
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Reads the orientation tag from the EXIF segment of a JPEG
+     *
+     * @return The orientation from 1 to 8, 1 if there is none
+     * */
+    static int orientation(IIOMetadata metadata) {
+        try {
+            Node markers = ((IIOMetadataNode) metadata.getAsTree(JPEG_METADATA_FORMAT))
+                    .getElementsByTagName("markerSequence").item(0);
+            for (Node marker = markers == null ? null : markers.getFirstChild(); marker != null;
+                 marker = marker.getNextSibling()) {
+                if ("unknown".equals(marker.getNodeName())
+                        && String.valueOf(APP1_MARKER).equals(((IIOMetadataNode) marker).getAttribute("MarkerTag"))
+                        && ((IIOMetadataNode) marker).getUserObject() instanceof byte[] segment) {
+                    int orientation = exifOrientation(segment);
+                    if (orientation > 0) {
+                        return orientation;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.debug("Unable to read the EXIF orientation", e);
+        }
+        return 1;
+    }
+
+    private static int exifOrientation(byte[] segment) {
+        if (segment.length < 14 || !"Exif".equals(new String(segment, 0, 4, StandardCharsets.US_ASCII))) {
+            return 0;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(segment, 6, segment.length - 6).slice();
+        tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        int directory = tiff.getInt(4);
+        if (directory < 8 || directory + 2 > tiff.limit()) {
+            return 0;
+        }
+        int entries = Short.toUnsignedInt(tiff.getShort(directory));
+        for (int i = 0; i < entries; i++) {
+            int entry = directory + 2 + i * 12;
+            if (entry + 12 > tiff.limit()) {
+                break;
+            }
+            if (Short.toUnsignedInt(tiff.getShort(entry)) == ORIENTATION_TAG) {
+                int orientation = Short.toUnsignedInt(tiff.getShort(entry + 8));
+                return orientation >= 1 && orientation <= 8 ? orientation : 0;
+            }
+        }
+        return 0;
+    }
+
+    private static String extension(String format) {
+        return JPEG.equals(format) ? "jpg" : format;
+    }
+
+    private static String filename(String originalFilename, String format) {
+        if (originalFilename == null) {
+            return null;
+        }
+        int dot = originalFilename.lastIndexOf('.');
+        return (dot > 0 ? originalFilename.substring(0, dot) : originalFilename) + "." + extension(format);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * An optimized upload, written to the spool directory
+     * */
+    private static class OptimizedFile extends SpooledMultipartFile {
+
+        OptimizedFile(Path path, String name, String originalFilename, String contentType, long size) {
+            super(path, name, originalFilename, contentType, size);
+        }
+    }
+}
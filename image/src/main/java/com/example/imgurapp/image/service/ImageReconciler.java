@@ -0,0 +1,244 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.CacheConfig;
+import com.example.imgurapp.image.config.ReconcileProperties;
+import com.example.imgurapp.image.dto.ImageLink;
+import com.example.imgurapp.image.dto.StoredImage;
+import com.example.imgurapp.image.entity.ReconcileCheckpoint;
+import com.example.imgurapp.image.repository.ImageRepository;
+import com.example.imgurapp.image.repository.ReconcileCheckpointRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Checks the IMAGE rows against their storage backends in the background, one chunk of rows at a
+ * time in id order, and repairs the drift: rows whose image is gone from its backend are deleted,
+ * and rows whose link changed are updated. The position is kept in a {@link ReconcileCheckpoint},
+ * so a restart resumes where the job stopped, and only one chunk of rows is ever held in memory.
+ *
+ * <p>Lookups run on a small pool of their own and take their share of the budget of the backend,
+ * the Imgur rate limit for Imgur. A row whose lookup could not be made, because the budget is used
+ * up or the backend failed, ends the chunk there, and is checked again by the next one.</p>
+ * */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "app.reconcile", name = "enabled")
+@EnableConfigurationProperties(ReconcileProperties.class)
+public class ImageReconciler {
+
+    static final String CHECKPOINT_NAME = "image-reconciler";
+
+    private final ImageRepository imageRepository;
+
+    private final ReconcileCheckpointRepository checkpointRepository;
+
+    private final ImageStorageBackends storageBackends;
+
+    private final CacheManager cacheManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReconcileProperties properties;
+
+    private final ExecutorService executor;
+
+    private final Clock clock = Clock.systemUTC();
+
+    private final Map<Outcome, Counter> outcomes = new HashMap<>();
+
+    private volatile long position;
+
+    private volatile double progress;
+
+    private volatile Instant lastPassCompletedAt;
+
+    public ImageReconciler(ImageRepository imageRepository, ReconcileCheckpointRepository checkpointRepository,
+                           ImageStorageBackends storageBackends, CacheManager cacheManager,
+                           PlatformTransactionManager transactionManager, ReconcileProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.imageRepository = imageRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.storageBackends = storageBackends;
+        this.cacheManager = cacheManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.executor = Executors.newFixedThreadPool(properties.getConcurrency(),
+                new CustomizableThreadFactory("image-reconciler-"));
+
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, Counter.builder("image.reconcile.images")
+                    .description("Image rows checked against their storage backends")
+                    .tag("result", outcome.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("image.reconcile.position", this, reconciler -> reconciler.position)
+                .description("Id of the last image row checked in the current pass")
+                .register(meterRegistry);
+        Gauge.builder("image.reconcile.progress", this, reconciler -> reconciler.progress)
+                .description("Share of the image ids checked in the current pass")
+                .register(meterRegistry);
+        Gauge.builder("image.reconcile.lag", this, ImageReconciler::lagSeconds)
+                .description("Time since the last complete pass over the image rows")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks the next chunk of rows, starting a new pass once the previous one is old enough
+     * */
+    @Scheduled(fixedDelayString = "${app.reconcile.interval:PT30S}", initialDelayString = "${app.reconcile.initial-delay:PT1M}")
+    public void reconcile() {
+        ReconcileCheckpoint checkpoint = checkpointRepository.findById(CHECKPOINT_NAME)
+                .orElseGet(() -> new ReconcileCheckpoint(CHECKPOINT_NAME));
+        lastPassCompletedAt = checkpoint.getLastPassCompletedAt();
+        Instant now = clock.instant();
+        if (checkpoint.getPassStartedAt() == null) {
+            if (lastPassCompletedAt != null && now.isBefore(lastPassCompletedAt.plus(properties.getPassInterval()))) {
+                return;
+            }
+            log.info("Starting a pass over the image rows");
+            checkpoint.setLastId(0);
+            checkpoint.setPassStartedAt(now);
+        }
+
+        List<ImageLink> chunk = imageRepository.findLinksByIdGreaterThan(checkpoint.getLastId(),
+                Limit.of(properties.getChunkSize()));
+        if (chunk.isEmpty()) {
+            log.info("Pass over the image rows started at {} completed", checkpoint.getPassStartedAt());
+            checkpoint.setPassStartedAt(null);
+            checkpoint.setLastPassCompletedAt(now);
+            save(checkpoint, Map.of(), Map.of());
+            return;
+        }
+
+        Map<String, CompletableFuture<Lookup>> lookups = new HashMap<>();
+        for (ImageLink link : chunk) {
+            lookups.computeIfAbsent(link.imageId(), imageId -> CompletableFuture.supplyAsync(() -> lookup(link), executor));
+        }
+
+        Map<Long, String> missing = new HashMap<>();
+        Map<String, String> moved = new HashMap<>();
+        long lastId = checkpoint.getLastId();
+        for (ImageLink link : chunk) {
+            Lookup lookup = lookups.get(link.imageId()).join();
+            if (lookup == null) {
+                outcomes.get(Outcome.SKIPPED).increment();
+                break;
+            }
+            if (lookup.image().isEmpty()) {
+                missing.put(link.id(), link.imageId());
+                outcomes.get(Outcome.MISSING).increment();
+            } else if (lookup.image().get().link() != null && !lookup.image().get().link().equals(link.url())) {
+                moved.put(link.imageId(), lookup.image().get().link());
+                outcomes.get(Outcome.UPDATED).increment();
+            } else {
+                outcomes.get(Outcome.VERIFIED).increment();
+            }
+            lastId = link.id();
+        }
+        //Lookups left over after a skipped row are only waited for, not used
+        lookups.values().forEach(CompletableFuture::join);
+
+        if (!missing.isEmpty() || !moved.isEmpty()) {
+            log.warn("{} image rows missing from their backend, {} with a changed link{}", missing.size(), moved.size(),
+                    properties.isRepair() ? "" : " (not repaired)");
+        }
+        checkpoint.setLastId(lastId);
+        if (properties.isRepair()) {
+            save(checkpoint, missing, moved);
+        } else {
+            save(checkpoint, Map.of(), Map.of());
+        }
+    }
+
+    /**
+     * Looks an image up in its storage backend if the budget allows it
+     *
+     * @return The lookup, or null if it could not be made
+     * */
+    private Lookup lookup(ImageLink link) {
+        try {
+            ImageStorageBackend backend = storageBackends.get(link.backend());
+            if (!backend.tryAcquire()) {
+                return null;
+            }
+            return new Lookup(backend.find(link.imageId()));
+        } catch (RuntimeException e) {
+            log.warn("Unable to check {} image {}, retrying with the next chunk", link.backend(), link.imageId(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Applies the repairs of a chunk and moves the checkpoint past it in one transaction. If
+     * another node moved the checkpoint meanwhile, nothing is applied.
+     * */
+    private void save(ReconcileCheckpoint checkpoint, Map<Long, String> missing, Map<String, String> moved) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!missing.isEmpty()) {
+                    imageRepository.deleteAllByIdInBatch(missing.keySet());
+                }
+                moved.forEach(imageRepository::updateUrlByImageId);
+                checkpointRepository.save(checkpoint);
+            });
+        } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+            log.warn("Image reconciliation checkpoint was moved by another node, dropping this chunk");
+            return;
+        }
+
+        Cache imageDetails = cacheManager.getCache(CacheConfig.IMAGE_DETAILS_CACHE);
+        missing.values().forEach(imageDetails::evict);
+        moved.keySet().forEach(imageDetails::evict);
+        position = checkpoint.getLastId();
+        lastPassCompletedAt = checkpoint.getLastPassCompletedAt();
+        Long maxId = checkpoint.getPassStartedAt() == null ? null : imageRepository.findMaxId();
+        progress = maxId == null || maxId == 0 ? 0 : Math.min(1.0, (double) position / maxId);
+    }
+
+    private double lagSeconds() {
+        Instant completedAt = lastPassCompletedAt;
+        return completedAt == null ? Double.NaN : Duration.between(completedAt, clock.instant()).toMillis() / 1000.0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private enum Outcome {
+        VERIFIED, MISSING, UPDATED, SKIPPED
+    }
+
+    /**
+     * The answer of a backend for one image: its details, or empty if it no longer exists
+     * */
+    private record Lookup(Optional<StoredImage> image) {
+    }
+}
@@ -1,15 +1,23 @@
 package com.example.imgurapp.image.service;
 
+import com.example.imgurapp.image.config.CacheConfig;
+import com.example.imgurapp.image.dto.ImagePage;
+import com.example.imgurapp.image.dto.StoredImage;
 import com.example.imgurapp.image.entity.Image;
 import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.repository.ImageDeletionRepository;
 import com.example.imgurapp.image.repository.ImageRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.Instant;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
 
 /**
  * A service layer application responsible for managing image-related applications
@@ -18,14 +26,32 @@ import java.util.Map;
 @Service
 public class ImageService {
 
+    public static final int MAX_PAGE_SIZE = 200;
+
     @Autowired
     private ImageRepository imageRepository;
 
     @Autowired
-    private ImgurAPIService imgurAPIService;
+    private ImageStorageBackends storageBackends;
+
+    @Autowired
+    private ImageDeletionRepository imageDeletionRepository;
+
+    @Autowired
+    private ImageBlobStore imageBlobStore;
+
+    @Autowired
+    private ImageDeduplicator imageDeduplicator;
+
+    @Autowired
+    private ImageOptimizer imageOptimizer;
 
     /**
-     * Uploads an image to Imgur and stores the image details in the database
+     * Uploads an image to the storage backend of the user, Imgur unless configured otherwise, and
+     * stores the image details in the database. The content is hashed first: if the same content
+     * was uploaded before, the existing image is reused instead. If the local image store is
+     * enabled, the content is kept there as well. If image optimization is enabled, what is
+     * uploaded is the optimized image.
      *
      * @param user - The user associated with the image
      * @param file - The image file to be uploaded
@@ -34,13 +60,29 @@ public class ImageService {
     public Image uploadImage(User user, MultipartFile file) {
         log.info("Uploading image for user: {}", user.getUserName());
         try{
-            Map<String, Object> imgurResponse = imgurAPIService.uploadImage(file);
-            String url = (String) imgurResponse.get("link");
-            String imageId = (String) imgurResponse.get("id");
+            String contentHash = imageBlobStore.hashUpload(file).orElse(null);
+            Optional<Image> duplicate = imageDeduplicator.findDuplicate(user, contentHash, file.getSize());
+            if (duplicate.isPresent()) {
+                Image image = duplicate.get();
+                return image.getId() == null ? imageRepository.save(image) : image;
+            }
+
+            ImageStorageBackend backend = storageBackends.forUser(user);
+            MultipartFile upload = imageOptimizer.optimize(file);
+            StoredImage storedImage;
+            try {
+                storedImage = backend.upload(upload);
+            } finally {
+                imageOptimizer.discard(upload);
+            }
+            String url = storedImage.link();
+            String imageId = storedImage.id();
 
             Image image = new Image();
             image.setUrl(url);
             image.setImageId(imageId);
+            image.setContentHash(contentHash);
+            image.setBackend(backend.getName());
             image.setUser(user);
 
             Image savedImage = imageRepository.save(image);
@@ -53,42 +95,78 @@ public class ImageService {
     }
 
     /**
-     * Fetches all images associated with a specific user
+     * Fetches one page of the images associated with a specific user without loading the
+     * user's whole image collection
      *
      * @param user The user whose images needs to be fetched
-     * @return A list of images associated with the user
+     * @param cursor The cursor returned with the previous page, or null for the first page
+     * @param limit The maximum number of images on the page, capped at {@value #MAX_PAGE_SIZE}
+     * @return A page of images ordered by id, along with the cursor of the next page
      * */
-    public List<Image> getImagesByUser(User user) {
-        log.info("Fetching images for user: {}", user.getUserName());
-        return user.getImages();
+    public ImagePage getImagesByUser(User user, Long cursor, int limit) {
+        log.info("Fetching images for user: {} after cursor: {}", user.getUserName(), cursor);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Image> images = imageRepository.findByUserUserIdAndIdGreaterThanOrderByIdAsc(
+                user.getUserId(), cursor == null ? 0L : cursor, Limit.of(pageSize + 1));
+
+        if (images.size() > pageSize) {
+            List<Image> page = images.subList(0, pageSize);
+            return new ImagePage(page, page.get(pageSize - 1).getId());
+        }
+        return new ImagePage(images, null);
     }
 
     /**
-     * Deletes an image from both - Imgur platform and the database
+     * Fetches a single image of a user by its id with one indexed lookup
      *
-     * @param image The image to be deleted
+     * @param user The user who must own the image
+     * @param imageId The database id of the image
+     * @return An optional containing the image, if it exists and belongs to the user
      * */
-    public void deleteImage(Image image) {
-        log.info("Deleting image with image ID: {}", image.getId());
+    public Optional<Image> getImageForUser(User user, Long imageId) {
+        log.info("Fetching image with id: {} for user: {}", imageId, user.getUserName());
+        return imageRepository.findByIdAndUserUserId(imageId, user.getUserId());
+    }
+
+    /**
+     * Deletes an image of a user from the database and queues its deletion from its storage
+     * backend in the same transaction, with one statement each and without loading the image;
+     * {@link ImageDeletionDispatcher} deletes it from the backend afterwards, so the caller does not
+     * wait for the backend. The dispatcher keeps the stored image if a deduplicated upload of
+     * another user still links to it, and evicts its cached Imgur details once it is deleted.
+     *
+     * @param user The user who must own the image
+     * @param imageId The database id of the image
+     * @return Whether the image existed, belonged to the user and was deleted
+     * */
+    @Transactional
+    public boolean deleteImage(User user, Long imageId) {
+        log.info("Deleting image with image ID: {}", imageId);
         try {
-            imgurAPIService.deleteImage(image.getImageId());
-            imageRepository.delete(image);
-            log.info("Image deleted successfully");
+            imageDeletionRepository.queueForImage(imageId, user.getUserId(), Instant.now());
+            boolean deleted = imageRepository.deleteByIdAndUserId(imageId, user.getUserId()) > 0;
+            if (deleted) {
+                log.info("Image deleted successfully");
+            }
+            return deleted;
         } catch (Exception e) {
-            log.error("Unable to delete image with image id: {}", image.getId(), e);
+            log.error("Unable to delete image with image id: {}", imageId, e);
             throw new RuntimeException("Deletion of image unsuccessful.");
         }
-
     }
 
     /**
-     * Retrieves details of a specific image from the Imgur API
+     * Retrieves details of a specific image from the storage backend holding it. Results are
+     * cached, and concurrent misses for the same image id share a single upstream call.
      *
-     * @param imageId The ID of the image whose details are to be fetched
-     * @return A map consisting the image details
+     * @param imageId The id of the image within its storage backend
+     * @return An optional containing the image details, which is empty if no row references the
+     * image or its backend no longer has it
      * */
-    public Map<String, Object> getImageDetails(String imageId) {
+    @Cacheable(cacheNames = CacheConfig.IMAGE_DETAILS_CACHE, sync = true)
+    public Optional<StoredImage> getImageDetails(String imageId) {
         log.info("Fetching of Image with image id: {}", imageId);
-        return imgurAPIService.getImageDetails(imageId);
+        return imageRepository.findFirstByImageId(imageId)
+                .flatMap(image -> storageBackends.get(image.getBackend()).describe(imageId));
     }
 }
@@ -0,0 +1,88 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.dto.StoredImage;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * A place images are uploaded to and served from. Each image row records the backend holding its
+ * image, and {@link ImageStorageBackends} picks the backend of new uploads per deployment and user
+ * tier.
+ * */
+public interface ImageStorageBackend {
+
+    /**
+     * @return The name of the backend, as stored with the images and used in the settings
+     * */
+    String getName();
+
+    /**
+     * Stores an image, streaming its content from the file
+     *
+     * @param file The image file
+     * @return The stored image
+     * @throws RuntimeException if the image could not be stored
+     * */
+    StoredImage upload(MultipartFile file);
+
+    /**
+     * Deletes an image. Deleting an image the backend does not have succeeds.
+     *
+     * @param id The id of the image within the backend
+     * @throws RuntimeException if the image could not be deleted
+     * */
+    void delete(String id);
+
+    /**
+     * Reads the metadata of an image
+     *
+     * @param id The id of the image within the backend
+     * @return The image, or an empty optional if the backend does not have it
+     * @throws RuntimeException if the backend could not be asked
+     * */
+    Optional<StoredImage> find(String id);
+
+    /**
+     * Reads the metadata of an image to show it to users. Backends that keep a recent copy for
+     * when they cannot be reached may serve it; otherwise this is {@link #find(String)}.
+     *
+     * @param id The id of the image within the backend
+     * @return The image, or an empty optional if the backend does not have it
+     * @throws RuntimeException if the backend could not be asked
+     * */
+    default Optional<StoredImage> describe(String id) {
+        return find(id);
+    }
+
+    /**
+     * Streams the content of an image
+     *
+     * @param id The id of the image within the backend
+     * @param reader Reads the content, which is closed once the reader returns
+     * @return What the reader returned, or an empty optional if the backend does not have the image
+     * @throws RuntimeException if the content could not be read
+     * */
+    <T> Optional<T> read(String id, ContentReader<T> reader);
+
+    /**
+     * Takes one request from the budget of the backend, for callers that make many requests in
+     * the background
+     *
+     * @return Whether a request may be made now
+     * */
+    default boolean tryAcquire() {
+        return true;
+    }
+
+    /**
+     * Reads the content of an image, see {@link #read(String, ContentReader)}
+     * */
+    @FunctionalInterface
+    interface ContentReader<T> {
+
+        T read(InputStream content) throws IOException;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.StorageProperties;
+import com.example.imgurapp.image.entity.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The enabled image storage backends, and the choice among them: new uploads go to the backend of
+ * the user's tier, or to the backend of the deployment, while existing images are served by the
+ * backend recorded with them
+ * */
+@Slf4j
+@Service
+@EnableConfigurationProperties(StorageProperties.class)
+public class ImageStorageBackends {
+
+    private final Map<String, ImageStorageBackend> backends = new HashMap<>();
+
+    private final Map<String, ImageStorageBackend> backendsByUserName = new HashMap<>();
+
+    private final ImageStorageBackend defaultBackend;
+
+    public ImageStorageBackends(List<ImageStorageBackend> backends, StorageProperties properties) {
+        for (ImageStorageBackend backend : backends) {
+            this.backends.put(backend.getName(), backend);
+        }
+        this.defaultBackend = get(properties.getBackend());
+        properties.getTiers().forEach((tier, settings) -> {
+            ImageStorageBackend backend = get(settings.getBackend());
+            for (String userName : settings.getUsers()) {
+                if (backendsByUserName.put(userName, backend) != null) {
+                    throw new IllegalStateException("User " + userName + " is in more than one storage tier");
+                }
+            }
+            log.info("Storage tier {} with {} users uploads to {}", tier, settings.getUsers().size(), backend.getName());
+        });
+    }
+
+    /**
+     * @param name The name of a backend, as stored with the images
+     * @return The backend
+     * @throws IllegalStateException if no such backend is enabled
+     * */
+    public ImageStorageBackend get(String name) {
+        ImageStorageBackend backend = backends.get(name);
+        if (backend == null) {
+            throw new IllegalStateException("Image storage backend " + name + " is not enabled");
+        }
+        return backend;
+    }
+
+    /**
+     * @param user The uploading user
+     * @return The backend the uploads of the user go to
+     * */
+    public ImageStorageBackend forUser(User user) {
+        return backendsByUserName.getOrDefault(user.getUserName(), defaultBackend);
+    }
+}
@@ -1,89 +1,260 @@
 package com.example.imgurapp.image.service;
 
+import com.example.imgurapp.image.config.CacheConfig;
+import com.example.imgurapp.image.dto.ImgurImage;
+import com.example.imgurapp.image.dto.ImgurResponse;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.github.resilience4j.retry.annotation.Retry;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
-import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 
 @Slf4j
 @Service
 public class ImgurAPIService {
 
+    /** Resilience4j instance names, configured under resilience4j.*.instances.&lt;name&gt; */
+    public static final String UPLOAD = "imgurUpload";
+
+    public static final String DELETE = "imgurDelete";
+
+    public static final String DETAILS = "imgurDetails";
+
+    /** Only its time limiter is used, as the response timeout of image downloads */
+    public static final String DOWNLOAD = "imgurDownload";
+
+    /**
+     * Names the operation of a request, one of the instance names above, so that the HTTP client
+     * applies the timeout of the operation. It is removed before the request is sent.
+     * */
+    public static final String OPERATION_HEADER = "X-Imgur-Operation";
+
+    /** Observation of every Imgur round trip, published as a timer and a tracing span */
+    private static final String OBSERVATION_NAME = "imgur.api";
+
+    private static final String OPERATION_KEY = "operation";
+
+    private static final String STATUS_KEY = "status";
+
+    private static final byte[] UPLOAD_BODY_PREFIX = "{\"image\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] UPLOAD_BODY_SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Binds Imgur responses straight from the response stream to {@link ImgurResponse}. The
+     * reader is immutable and resolves its deserializer once, and the fields the records do not
+     * declare are skipped by the parser without building a tree of them.
+     * */
+    private static final ObjectReader RESPONSE_READER = new ObjectMapper().readerFor(ImgurResponse.class);
+
+    private static final TransientImgurFailure TRANSIENT_FAILURE = new TransientImgurFailure();
+
     @Value("${imgur.client.id}")
     private String clientId;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Value("${imgur.api.base-url:https://api.imgur.com/3}")
+    private String baseUrl;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ImgurRateLimitTracker rateLimitTracker;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     /**
      * Builds HTTP headers for each of the Imgur API requests
      *
+     * @param operation The Resilience4j instance name of the operation
      * @return HttpHeaders with Authorization Header.
      * */
-    private HttpHeaders buildHeaders() {
+    private HttpHeaders buildHeaders(String operation) {
         HttpHeaders headers = new HttpHeaders();
-        headers.add("Authorization", "Client-ID" + clientId);
+        headers.add("Authorization", "Client-ID " + clientId);
+        headers.add(OPERATION_HEADER, operation);
         return headers;
     }
 
     /**
      * Uploads an image to Imgur by encoding the image as a Base64 string and sending it as
-     * part of the request body.
+     * part of the request body. The file is streamed through a Base64 encoder straight into the
+     * outbound request, so neither the raw bytes nor their encoded copy are held in memory.
+     * The time spent encoding and the time spent blocked on the network are recorded apart.
      *
      * @param file The image file to upload.
-     * @return A map containing the details of the uploaded image.
+     * @return The details of the uploaded image.
      * @throws RuntimeException If the upload operation fails.
      * */
-    public Map<String, Object> uploadImage(MultipartFile file) {
-        try {
-            byte[] fileBytes = file.getBytes();
-            String encodedFile = Base64.getEncoder().encodeToString(fileBytes);
-
-            HttpHeaders headers = buildHeaders();
+    @CircuitBreaker(name = UPLOAD)
+    @Bulkhead(name = UPLOAD)
+    public ImgurImage uploadImage(MultipartFile file) {
+        Observation observation = startObservation(UPLOAD);
+        UploadTiming timing = new UploadTiming();
+        try (Observation.Scope scope = observation.openScope()) {
+            HttpHeaders headers = buildHeaders(UPLOAD);
             headers.setContentType(MediaType.APPLICATION_JSON);
-
-            Map<String, String> requestBody = Map.of("image", encodedFile);
-            HttpEntity<Map<String, String>> request = new HttpEntity<>(requestBody, headers);
+            headers.setContentLength(uploadBodyLength(file.getSize()));
 
             log.info("Image upload request sent to Imgur");
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    "https://api.imgur.com/3/image", HttpMethod.POST, request, Map.class
+            ResponseEntity<ImgurResponse> response = restTemplate.execute(
+                    baseUrl + "/image", HttpMethod.POST,
+                    request -> {
+                        request.getHeaders().putAll(headers);
+                        if (request instanceof StreamingHttpOutputMessage streamingRequest) {
+                            streamingRequest.setBody(body -> writeUploadBody(file, body, timing));
+                        } else {
+                            writeUploadBody(file, request.getBody(), timing);
+                        }
+                    },
+                    ImgurAPIService::readResponse
             );
+            rateLimitTracker.update(response != null ? response.getHeaders() : null);
+            observeStatus(observation, response);
 
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+            if (response != null && response.getStatusCode() == HttpStatus.OK && hasImage(response)) {
                 log.info("Image uploaded successfully to Imgur.");
-                Map<String, Object> responseBody = response.getBody();
-                return (Map<String, Object>) responseBody.get("data");
+                return response.getBody().data();
             } else {
-                log.error("Image upload failed with status: {}", response.getStatusCode());
+                log.error("Image upload failed with status: {}",
+                        response != null ? response.getStatusCode() : null);
                 throw new RuntimeException("Failed to upload image to Imgur");
             }
         } catch (Exception e) {
+            trackFailure(e);
+            observeFailure(observation, e);
             log.error("Error during image upload operation to Imgur.", e);
             throw new RuntimeException("Error during Imgur upload operation", e);
+        } finally {
+            recordUpload(observation, file.getSize(), timing);
+            observation.stop();
         }
     }
 
+    /**
+     * Writes the JSON upload body <code>{"image":"&lt;base64&gt;"}</code> by encoding the file
+     * on the fly. Base64 output never needs JSON escaping, so it is written as-is.
+     *
+     * @param file The image file to upload
+     * @param body The outbound request body
+     * @param timing Accumulates the time spent writing the body and blocked on the network
+     * @throws IOException If reading the file or writing the request fails
+     * */
+    private void writeUploadBody(MultipartFile file, OutputStream body, UploadTiming timing) throws IOException {
+        long start = System.nanoTime();
+        try {
+            OutputStream network = new TimedOutputStream(body, timing);
+            network.write(UPLOAD_BODY_PREFIX);
+            try (InputStream in = file.getInputStream();
+                 OutputStream encoder = Base64.getEncoder().wrap(StreamUtils.nonClosing(network))) {
+                in.transferTo(encoder);
+            }
+            network.write(UPLOAD_BODY_SUFFIX);
+        } finally {
+            timing.bodyNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Records the payload size of an upload, and how long its body took to encode and to send.
+     * The encode time is what the body writing took beyond the time blocked on the socket.
+     *
+     * @param observation The observation of the upload
+     * @param payloadSize The size of the raw file in bytes
+     * @param timing The time spent writing the body and blocked on the network
+     * */
+    private void recordUpload(Observation observation, long payloadSize, UploadTiming timing) {
+        DistributionSummary.builder("imgur.upload.payload")
+                .description("Size of the files uploaded to Imgur")
+                .baseUnit("bytes")
+                .register(meterRegistry)
+                .record(payloadSize);
+        if (timing.bodyNanos == 0) {
+            return;
+        }
+        long encodeNanos = Math.max(0, timing.bodyNanos - timing.networkNanos);
+        Timer.builder("imgur.upload.encode")
+                .description("Time spent reading and Base64-encoding upload bodies")
+                .register(meterRegistry)
+                .record(encodeNanos, TimeUnit.NANOSECONDS);
+        Timer.builder("imgur.upload.network")
+                .description("Time spent blocked writing upload bodies to the network")
+                .register(meterRegistry)
+                .record(timing.networkNanos, TimeUnit.NANOSECONDS);
+        observation.highCardinalityKeyValue("encode.ms", String.valueOf(TimeUnit.NANOSECONDS.toMillis(encodeNanos)));
+        observation.highCardinalityKeyValue("network.ms", String.valueOf(TimeUnit.NANOSECONDS.toMillis(timing.networkNanos)));
+    }
+
+    /**
+     * Computes the exact length of the JSON upload body so the request can be sent with a fixed
+     * Content-Length instead of chunked encoding.
+     *
+     * @param fileSize The size of the raw file in bytes
+     * @return The size of the encoded request body in bytes
+     * */
+    private static long uploadBodyLength(long fileSize) {
+        long encodedLength = 4 * ((fileSize + 2) / 3);
+        return UPLOAD_BODY_PREFIX.length + encodedLength + UPLOAD_BODY_SUFFIX.length;
+    }
+
     /**
      * Deletes an image from Imgur by its imageId
      *
      * @param imageId The ID of the image obtained from Imgur
      * @throws RuntimeException if the code fails.
      * */
+    @Retry(name = DELETE)
+    @CircuitBreaker(name = DELETE)
+    @Bulkhead(name = DELETE)
     public void deleteImage(String imageId) {
-        try {
-            HttpHeaders headers = buildHeaders();
+        Observation observation = startObservation(DELETE);
+        try (Observation.Scope scope = observation.openScope()) {
+            HttpHeaders headers = buildHeaders(DELETE);
             HttpEntity<Void> request = new HttpEntity<>(headers);
 
             log.info("An image delete request has been sent out for Imgur image Id: {}", imageId);
             ResponseEntity<Void> response = restTemplate.exchange(
-                    "https://api.imgur.com/3/image/" + imageId, HttpMethod.DELETE, request, Void.class
+                    baseUrl + "/image/" + imageId, HttpMethod.DELETE, request, Void.class
             );
+            rateLimitTracker.update(response.getHeaders());
+            observeStatus(observation, response);
 
             if (response.getStatusCode() != HttpStatus.OK) {
                 log.error("Deletion of image failed with status: {}", response.getStatusCode());
@@ -92,38 +263,234 @@ public class ImgurAPIService {
                 log.info("Image deleted successfully.");
             }
         } catch (Exception e) {
+            trackFailure(e);
+            observeFailure(observation, e);
             log.error("Error during image deletion operation", e);
             throw new RuntimeException("Error thrown during deletion", e);
+        } finally {
+            observation.stop();
         }
     }
 
     /**
-     * Retrieves the image details from Imgur using its imageId
+     * Retrieves the image details from Imgur using its imageId. Successful responses are kept as
+     * a long-lived stale copy, which is served if Imgur cannot be reached. A client error is
+     * rethrown, and a 404 also drops the stale copy.
      *
      * @param imageId The ID of the image whose details are to be fetched
-     * @return A map containing the details of the image
-     * @throws RuntimeException if the fetching operation fails
+     * @return The details of the image
+     * @throws RuntimeException if the fetching operation fails and no stale copy exists
      * */
-    public Map<String, Object> getImageDetails(String imageId) {
+    @Retry(name = DETAILS, fallbackMethod = "getStaleImageDetails")
+    @CircuitBreaker(name = DETAILS)
+    @Bulkhead(name = DETAILS)
+    public ImgurImage getImageDetails(String imageId) {
+        return fetchImageDetails(imageId);
+    }
+
+    /**
+     * Looks an image up on Imgur, telling an image that no longer exists apart from a failed call.
+     * Unlike {@link #getImageDetails(String)}, a stale copy is never served.
+     *
+     * @param imageId The ID of the image to look up
+     * @return The details of the image, or an empty optional if Imgur answers 404
+     * @throws RuntimeException if the lookup fails for any other reason
+     * */
+    @Retry(name = DETAILS)
+    @CircuitBreaker(name = DETAILS)
+    @Bulkhead(name = DETAILS)
+    public Optional<ImgurImage> findImage(String imageId) {
         try {
-            HttpHeaders headers = buildHeaders();
-            HttpEntity<Void> request = new HttpEntity<>(headers);
+            return Optional.of(fetchImageDetails(imageId));
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof HttpClientErrorException.NotFound) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Downloads the content of an image from its Imgur link
+     *
+     * @param link The link of the image, as found in its details
+     * @param reader Reads the content
+     * @return What the reader returned
+     * @throws RuntimeException if the content could not be downloaded or read
+     * */
+    public <T> T downloadImage(String link, ImageStorageBackend.ContentReader<T> reader) {
+        log.info("Downloading Imgur image: {}", link);
+        return restTemplate.execute(link, HttpMethod.GET,
+                request -> request.getHeaders().add(OPERATION_HEADER, DOWNLOAD),
+                response -> reader.read(response.getBody()));
+    }
+
+    private ImgurImage fetchImageDetails(String imageId) {
+        Observation observation = startObservation(DETAILS);
+        try (Observation.Scope scope = observation.openScope()) {
+            HttpHeaders headers = buildHeaders(DETAILS);
 
             log.info("Fetching image details for Imgur image id: {}", imageId);
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    "https://api.imgur.com/3/image/" + imageId, HttpMethod.GET, request, Map.class
+            ResponseEntity<ImgurResponse> response = restTemplate.execute(
+                    baseUrl + "/image/" + imageId, HttpMethod.GET,
+                    request -> request.getHeaders().putAll(headers),
+                    ImgurAPIService::readResponse
             );
+            rateLimitTracker.update(response.getHeaders());
+            observeStatus(observation, response);
 
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+            if (response.getStatusCode() == HttpStatus.OK && hasImage(response)) {
                 log.info("Image details fetched successfully.");
-                return (Map<String, Object>) response.getBody().get("data");
+                ImgurImage details = response.getBody().data();
+                cacheManager.getCache(CacheConfig.IMAGE_DETAILS_STALE_CACHE).put(imageId, details);
+                return details;
             } else {
                 log.error("Failed to retrieve image details with status code: {}", response.getStatusCode());
                 throw new RuntimeException("Failed to retrieve image details from Imgur");
             }
         } catch (Exception e) {
+            trackFailure(e);
+            observeFailure(observation, e);
             log.error("Error during fetching image information", e);
             throw new RuntimeException("Error during fetching", e);
+        } finally {
+            observation.stop();
+        }
+    }
+
+    /**
+     * Fallback of {@link #getImageDetails(String)} once retries are exhausted or the call is
+     * refused. Only a failure caused by Imgur being unavailable serves the stale copy.
+     *
+     * @param imageId The ID of the image whose details are to be fetched
+     * @param failure The reason the call was not made or failed
+     * @return The last details successfully fetched for the image
+     * @throws RuntimeException if the failure is not transient or no stale copy exists
+     * */
+    private ImgurImage getStaleImageDetails(String imageId, Throwable failure) {
+        Cache staleDetails = cacheManager.getCache(CacheConfig.IMAGE_DETAILS_STALE_CACHE);
+        boolean unavailable = failure instanceof CallNotPermittedException || failure instanceof BulkheadFullException
+                || TRANSIENT_FAILURE.test(failure);
+        if (!unavailable && failure.getCause() instanceof HttpClientErrorException.NotFound) {
+            staleDetails.evict(imageId);
+        }
+        ImgurImage details = unavailable ? staleDetails.get(imageId, ImgurImage.class) : null;
+        if (details == null) {
+            throw failure instanceof RuntimeException runtimeException
+                    ? runtimeException : new RuntimeException("Error during fetching", failure);
+        }
+        log.warn("Serving stale image details for Imgur image id: {} ({})", imageId, failure.toString());
+        return details;
+    }
+
+    /**
+     * Reads an Imgur response with {@link #RESPONSE_READER}. Error statuses have already been
+     * raised by the RestTemplate error handler at this point.
+     *
+     * @param response The response of the call
+     * @return The status, headers and parsed body of the response. The body is null if the
+     * response has none.
+     * @throws IOException If the body cannot be read or parsed
+     * */
+    private static ResponseEntity<ImgurResponse> readResponse(ClientHttpResponse response) throws IOException {
+        try (InputStream in = response.getBody();
+             JsonParser parser = RESPONSE_READER.createParser(in)) {
+            ImgurResponse body = parser.nextToken() == null ? null : RESPONSE_READER.readValue(parser);
+            return new ResponseEntity<>(body, response.getHeaders(), response.getStatusCode());
+        }
+    }
+
+    private static boolean hasImage(ResponseEntity<ImgurResponse> response) {
+        return response.getBody() != null && response.getBody().data() != null;
+    }
+
+    /**
+     * Starts the observation of an Imgur round trip. The status is filled in once known.
+     *
+     * @param operation The Resilience4j instance name of the operation
+     * @return The started observation
+     * */
+    private Observation startObservation(String operation) {
+        return Observation.createNotStarted(OBSERVATION_NAME, observationRegistry)
+                .contextualName(operation)
+                .lowCardinalityKeyValue(OPERATION_KEY, operation)
+                .lowCardinalityKeyValue(STATUS_KEY, "NONE")
+                .start();
+    }
+
+    private static void observeStatus(Observation observation, ResponseEntity<?> response) {
+        if (response != null) {
+            observation.lowCardinalityKeyValue(STATUS_KEY, String.valueOf(response.getStatusCode().value()));
+        }
+    }
+
+    private static void observeFailure(Observation observation, Exception e) {
+        if (e instanceof RestClientResponseException responseException) {
+            observation.lowCardinalityKeyValue(STATUS_KEY, String.valueOf(responseException.getStatusCode().value()));
+        } else if (e instanceof ResourceAccessException) {
+            observation.lowCardinalityKeyValue(STATUS_KEY, "IO_ERROR");
+        }
+        observation.error(e);
+    }
+
+    /**
+     * Feeds the rate-limit headers of a failed call to the tracker
+     *
+     * @param e The exception thrown by the call
+     * */
+    private void trackFailure(Exception e) {
+        if (e instanceof RestClientResponseException responseException) {
+            if (responseException.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+                rateLimitTracker.onThrottled(responseException.getResponseHeaders());
+            } else {
+                rateLimitTracker.update(responseException.getResponseHeaders());
+            }
+        }
+    }
+
+    /**
+     * Time spent writing one upload body, and the part of it spent blocked on the network
+     * */
+    private static final class UploadTiming {
+
+        private long bodyNanos;
+
+        private long networkNanos;
+    }
+
+    /**
+     * Passes writes through to the request body, adding the time they take to the network time
+     * */
+    private static final class TimedOutputStream extends OutputStream {
+
+        private final OutputStream out;
+
+        private final UploadTiming timing;
+
+        private TimedOutputStream(OutputStream out, UploadTiming timing) {
+            this.out = out;
+            this.timing = timing;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            long start = System.nanoTime();
+            out.write(b);
+            timing.networkNanos += System.nanoTime() - start;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            out.write(b, off, len);
+            timing.networkNanos += System.nanoTime() - start;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            long start = System.nanoTime();
+            out.flush();
+            timing.networkNanos += System.nanoTime() - start;
         }
     }
 }
@@ -0,0 +1,119 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.ImgurBatchProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps track of the remaining Imgur request budget, as reported by the rate-limit headers of
+ * each response, so fan-out operations stop dispatching before Imgur starts throttling.
+ * */
+@Slf4j
+@Component
+public class ImgurRateLimitTracker {
+
+    static final String USER_REMAINING = "X-RateLimit-UserRemaining";
+
+    static final String USER_RESET = "X-RateLimit-UserReset";
+
+    static final String CLIENT_REMAINING = "X-RateLimit-ClientRemaining";
+
+    static final String POST_REMAINING = "X-Post-Rate-Limit-Remaining";
+
+    static final String POST_RESET = "X-Post-Rate-Limit-Reset";
+
+    private final AtomicLong remaining = new AtomicLong(Long.MAX_VALUE);
+
+    private final AtomicReference<Instant> resetAt = new AtomicReference<>(Instant.MIN);
+
+    private final Clock clock;
+
+    private final long reserve;
+
+    @Autowired
+    public ImgurRateLimitTracker(ImgurBatchProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    ImgurRateLimitTracker(ImgurBatchProperties properties, Clock clock) {
+        this.reserve = properties.getRateLimitReserve();
+        this.clock = clock;
+    }
+
+    /**
+     * Records the budget reported by an Imgur response
+     *
+     * @param headers The response headers
+     * */
+    public void update(HttpHeaders headers) {
+        if (headers == null) {
+            return;
+        }
+        long lowest = Long.MAX_VALUE;
+        for (String header : new String[]{USER_REMAINING, CLIENT_REMAINING, POST_REMAINING}) {
+            Long value = parse(headers.getFirst(header));
+            if (value != null) {
+                lowest = Math.min(lowest, value);
+            }
+        }
+        if (lowest == Long.MAX_VALUE) {
+            return;
+        }
+
+        Instant now = clock.instant();
+        Long userReset = parse(headers.getFirst(USER_RESET));
+        Long postReset = parse(headers.getFirst(POST_RESET));
+        Instant reset = now.plusSeconds(60);
+        if (postReset != null) {
+            reset = now.plusSeconds(postReset);
+        } else if (userReset != null) {
+            reset = Instant.ofEpochSecond(userReset);
+        }
+        remaining.set(lowest);
+        resetAt.set(reset);
+    }
+
+    /**
+     * Records that Imgur rejected a request with HTTP 429
+     *
+     * @param headers The response headers, if any
+     * */
+    public void onThrottled(HttpHeaders headers) {
+        update(headers);
+        remaining.set(0);
+        resetAt.accumulateAndGet(clock.instant().plusSeconds(60), (current, fallback) ->
+                current.isAfter(clock.instant()) ? current : fallback);
+        log.error("Imgur rate limit reached, pausing until {}", resetAt.get());
+    }
+
+    /**
+     * Reserves one request from the known budget. Once the budget is down to the configured
+     * reserve, no further requests are allowed until Imgur resets it.
+     *
+     * @return true if a request may be sent now
+     * */
+    public boolean tryAcquire() {
+        if (clock.instant().isAfter(resetAt.get())) {
+            return true;
+        }
+        return remaining.getAndDecrement() > reserve;
+    }
+
+    private static Long parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.dto.StoredImage;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.Optional;
+
+/**
+ * Keeps images on Imgur through {@link ImgurAPIService}, with its retries, circuit breakers and
+ * rate limit tracking
+ * */
+@Component
+public class ImgurStorageBackend implements ImageStorageBackend {
+
+    public static final String NAME = "imgur";
+
+    private final ImgurAPIService imgurAPIService;
+
+    private final ImgurRateLimitTracker rateLimitTracker;
+
+    public ImgurStorageBackend(ImgurAPIService imgurAPIService, ImgurRateLimitTracker rateLimitTracker) {
+        this.imgurAPIService = imgurAPIService;
+        this.rateLimitTracker = rateLimitTracker;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public StoredImage upload(MultipartFile file) {
+        return StoredImage.of(imgurAPIService.uploadImage(file));
+    }
+
+    @Override
+    public void delete(String id) {
+        try {
+            imgurAPIService.deleteImage(id);
+        } catch (RuntimeException e) {
+            if (!(e.getCause() instanceof HttpClientErrorException.NotFound)) {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public Optional<StoredImage> find(String id) {
+        return imgurAPIService.findImage(id).map(StoredImage::of);
+    }
+
+    /**
+     * Reads the details through {@link ImgurAPIService#getImageDetails(String)}, which serves
+     * its stale copy while Imgur is unavailable
+     * */
+    @Override
+    public Optional<StoredImage> describe(String id) {
+        try {
+            return Optional.of(StoredImage.of(imgurAPIService.getImageDetails(id)));
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof HttpClientErrorException.NotFound) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Looks the link of the image up, then downloads it from there
+     * */
+    @Override
+    public <T> Optional<T> read(String id, ContentReader<T> reader) {
+        return describe(id).map(image -> imgurAPIService.downloadImage(image.link(), reader));
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        return rateLimitTracker.tryAcquire();
+    }
+}
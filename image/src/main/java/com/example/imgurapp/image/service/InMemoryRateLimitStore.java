@@ -0,0 +1,166 @@
+package com.example.imgurapp.image.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A RateLimitStore for a single node. Every bucket and counter is one AtomicLong updated by
+ * compare-and-set, so requests never take a lock and only contend with requests for the same key.
+ *
+ * <p>A bucket is kept as the time it will be full again (the generic cell rate algorithm): taking
+ * a token pushes that time a refill period further, and is refused when it would end up more
+ * than a full bucket ahead of now.</p>
+ * */
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final Cache<String, Bucket> buckets;
+
+    private final Cache<String, Counter> counters;
+
+    private final Clock clock;
+
+    public InMemoryRateLimitStore(long maximumKeys) {
+        this(maximumKeys, Clock.systemUTC());
+    }
+
+    InMemoryRateLimitStore(long maximumKeys, Clock clock) {
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfter(new BucketExpiry())
+                .build();
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfter(new CounterExpiry(clock))
+                .build();
+    }
+
+    @Override
+    public Consumption tryConsume(String key, long capacity, Duration refillPeriod, long tokens) {
+        if (tokens > capacity) {
+            throw new IllegalArgumentException("Cannot take " + tokens + " tokens from a bucket of " + capacity);
+        }
+        long intervalNanos = refillPeriod.toNanos();
+        long toleranceNanos = intervalNanos * capacity;
+        Bucket bucket = buckets.get(key, k -> new Bucket(new AtomicLong(Long.MIN_VALUE), toleranceNanos));
+
+        while (true) {
+            long now = nanos(clock.instant());
+            long fullAt = bucket.fullAt.get();
+            long start = Math.max(fullAt, now);
+            long newFullAt = start + intervalNanos * tokens;
+
+            if (newFullAt - now > toleranceNanos) {
+                return new Consumption(false, capacity, (toleranceNanos - (start - now)) / intervalNanos,
+                        Duration.ofNanos(newFullAt - toleranceNanos - now), Duration.ofNanos(start - now));
+            }
+            if (bucket.fullAt.compareAndSet(fullAt, newFullAt)) {
+                return new Consumption(true, capacity, (toleranceNanos - (newFullAt - now)) / intervalNanos,
+                        Duration.ZERO, Duration.ofNanos(newFullAt - now));
+            }
+        }
+    }
+
+    @Override
+    public void refund(String key, Duration refillPeriod, long tokens) {
+        Bucket bucket = buckets.getIfPresent(key);
+        if (bucket == null) {
+            return;
+        }
+        while (true) {
+            long now = nanos(clock.instant());
+            long fullAt = bucket.fullAt.get();
+            if (fullAt <= now
+                    || bucket.fullAt.compareAndSet(fullAt, Math.max(fullAt - refillPeriod.toNanos() * tokens, now))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public Consumption tryIncrement(String key, long limit, long amount, Instant resetAt) {
+        Counter counter = counters.get(key, k -> new Counter(new AtomicLong(), resetAt));
+        Duration resetAfter = Duration.between(clock.instant(), counter.resetAt);
+        if (resetAfter.isNegative()) {
+            resetAfter = Duration.ZERO;
+        }
+
+        while (true) {
+            long current = counter.value.get();
+            long next = current + amount;
+            if (next > limit) {
+                return new Consumption(false, limit, Math.max(limit - current, 0), resetAfter, resetAfter);
+            }
+            if (counter.value.compareAndSet(current, next)) {
+                return new Consumption(true, limit, limit - next, Duration.ZERO, resetAfter);
+            }
+        }
+    }
+
+    @Override
+    public void release(String key, long amount) {
+        Counter counter = counters.getIfPresent(key);
+        if (counter != null) {
+            counter.value.addAndGet(-amount);
+        }
+    }
+
+    private static long nanos(Instant instant) {
+        return TimeUnit.SECONDS.toNanos(instant.getEpochSecond()) + instant.getNano();
+    }
+
+    private record Bucket(AtomicLong fullAt, long toleranceNanos) {
+    }
+
+    private record Counter(AtomicLong value, Instant resetAt) {
+    }
+
+    /**
+     * A bucket left alone for its full refill time is full, the same as a new one
+     * */
+    private static class BucketExpiry implements Expiry<String, Bucket> {
+
+        @Override
+        public long expireAfterCreate(String key, Bucket bucket, long currentTime) {
+            return bucket.toleranceNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Bucket bucket, long currentTime, long currentDuration) {
+            return bucket.toleranceNanos;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Bucket bucket, long currentTime, long currentDuration) {
+            return bucket.toleranceNanos;
+        }
+    }
+
+    /**
+     * A counter is dropped when it starts over
+     * */
+    private record CounterExpiry(Clock clock) implements Expiry<String, Counter> {
+
+        @Override
+        public long expireAfterCreate(String key, Counter counter, long currentTime) {
+            return Math.max(Duration.between(clock.instant(), counter.resetAt).toNanos(), 0);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Counter counter, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Counter counter, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
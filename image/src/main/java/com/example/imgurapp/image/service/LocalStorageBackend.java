@@ -0,0 +1,132 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.StorageProperties;
+import com.example.imgurapp.image.dto.StoredImage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Keeps images as files in a local directory, for deployments that serve images close to their
+ * users instead of through Imgur. Files are spread over subdirectories named by the first two
+ * characters of their id, and appear under their final name only once complete.
+ * */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.storage.local", name = "enabled")
+public class LocalStorageBackend implements ImageStorageBackend {
+
+    public static final String NAME = "local";
+
+    private final Path directory;
+
+    private final String baseUrl;
+
+    public LocalStorageBackend(StorageProperties properties) throws IOException {
+        this.directory = Files.createDirectories(properties.getLocal().getDirectory());
+        String baseUrl = properties.getLocal().getBaseUrl();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public StoredImage upload(MultipartFile file) {
+        String id = StoredImageIds.newId(file.getContentType());
+        Path target = path(id);
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), id, ".tmp");
+            try {
+                try (InputStream in = file.getInputStream()) {
+                    Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            log.info("Image {} stored in {}", id, target);
+            return describe(id, target);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to store image " + id, e);
+        }
+    }
+
+    @Override
+    public void delete(String id) {
+        if (!StoredImageIds.isValid(id)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path(id));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to delete image " + id, e);
+        }
+    }
+
+    @Override
+    public Optional<StoredImage> find(String id) {
+        if (!StoredImageIds.isValid(id)) {
+            return Optional.empty();
+        }
+        Path path = path(id);
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(describe(id, path));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read image " + id, e);
+        }
+    }
+
+    @Override
+    public <T> Optional<T> read(String id, ContentReader<T> reader) {
+        if (!StoredImageIds.isValid(id)) {
+            return Optional.empty();
+        }
+        try (InputStream in = Files.newInputStream(path(id))) {
+            return Optional.of(reader.read(in));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read image " + id, e);
+        }
+    }
+
+    /**
+     * @return The directory the images are stored in
+     * */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private StoredImage describe(String id, Path path) throws IOException {
+        ImageDimensions dimensions;
+        try (InputStream in = Files.newInputStream(path)) {
+            dimensions = ImageDimensions.read(in);
+        }
+        String type = MediaTypeFactory.getMediaType(id).orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+        return new StoredImage(id, baseUrl + "/" + id.substring(0, 2) + "/" + id, type,
+                dimensions.width(), dimensions.height(), Files.size(path));
+    }
+
+    private Path path(String id) {
+        return directory.resolve(id.substring(0, 2)).resolve(id);
+    }
+}
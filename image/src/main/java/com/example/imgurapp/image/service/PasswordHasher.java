@@ -0,0 +1,87 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.UserProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashes passwords with BCrypt on a bounded pool sized to the CPU. A burst of registrations queues
+ * here instead of taking every core from request handling, and is refused once the queue is full.
+ * */
+@Slf4j
+@Service
+@EnableConfigurationProperties(UserProperties.class)
+public class PasswordHasher {
+
+    private final BCryptPasswordEncoder passwordEncoder;
+
+    private final ThreadPoolExecutor executor;
+
+    public PasswordHasher(BCryptPasswordEncoder passwordEncoder, UserProperties properties, MeterRegistry meterRegistry) {
+        UserProperties.Hashing hashing = properties.getHashing();
+        this.passwordEncoder = passwordEncoder;
+        this.executor = new ThreadPoolExecutor(hashing.getThreads(), hashing.getThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(hashing.getQueueCapacity()),
+                new CustomizableThreadFactory("password-hasher-"));
+        new ExecutorServiceMetrics(executor, "password.hasher", List.of()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Hashes a password on the hashing pool
+     *
+     * @param password The password to hash
+     * @return A future of the BCrypt hash, failed with a RejectedExecutionException if the pool's
+     * queue is full
+     * */
+    public CompletableFuture<String> encode(String password) {
+        try {
+            return CompletableFuture.supplyAsync(() -> passwordEncoder.encode(password), executor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Password hashing queue is full");
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Hashes many passwords, split into one task per hashing thread so a large import takes a
+     * handful of queue slots rather than one per password
+     *
+     * @param passwords The passwords to hash
+     * @return The BCrypt hashes, in the order of the passwords
+     * @throws RejectedExecutionException If the pool's queue is full
+     * */
+    public List<String> encodeAll(List<String> passwords) {
+        int slices = Math.min(executor.getCorePoolSize(), Math.max(passwords.size(), 1));
+        int sliceSize = (passwords.size() + slices - 1) / slices;
+        List<CompletableFuture<List<String>>> results = new ArrayList<>();
+        for (int from = 0; from < passwords.size(); from += sliceSize) {
+            List<String> slice = passwords.subList(from, Math.min(from + sliceSize, passwords.size()));
+            results.add(CompletableFuture.supplyAsync(() -> slice.stream().map(passwordEncoder::encode).toList(), executor));
+        }
+
+        List<String> hashes = new ArrayList<>(passwords.size());
+        for (CompletableFuture<List<String>> result : results) {
+            hashes.addAll(result.join());
+        }
+        return hashes;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
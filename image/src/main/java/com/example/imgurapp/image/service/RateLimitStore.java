@@ -0,0 +1,61 @@
+package com.example.imgurapp.image.service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Holds the token buckets and quota counters of UploadRateLimiter. InMemoryRateLimitStore serves
+ * a single node; a store shared by several nodes (such as Redis, with each operation as a script)
+ * implements the same operations, each of which must be atomic.
+ * */
+public interface RateLimitStore {
+
+    /**
+     * Takes tokens from a token bucket, which starts out full
+     *
+     * @param key The bucket
+     * @param capacity The size of the bucket, i.e. the largest burst
+     * @param refillPeriod The time it takes the bucket to regain one token
+     * @param tokens The number of tokens to take, at most the capacity
+     * @return The outcome. Nothing is taken if the bucket holds fewer tokens.
+     * */
+    Consumption tryConsume(String key, long capacity, Duration refillPeriod, long tokens);
+
+    /**
+     * Gives back tokens taken by tryConsume
+     *
+     * @param key The bucket
+     * @param refillPeriod The time it takes the bucket to regain one token
+     * @param tokens The number of tokens to give back. The bucket never ends up more than full.
+     * */
+    void refund(String key, Duration refillPeriod, long tokens);
+
+    /**
+     * Adds to a counter, as long as it stays within its limit
+     *
+     * @param key The counter
+     * @param limit The largest value the counter may reach
+     * @param amount The amount to add
+     * @param resetAt When the counter starts over from zero. Fixed by the first increment.
+     * @return The outcome. Nothing is added if the counter would exceed its limit.
+     * */
+    Consumption tryIncrement(String key, long limit, long amount, Instant resetAt);
+
+    /**
+     * Gives back an amount added by tryIncrement
+     *
+     * @param key The counter
+     * @param amount The amount to subtract
+     * */
+    void release(String key, long amount);
+
+    /**
+     * @param granted Whether the tokens were taken or the amount added
+     * @param limit The capacity of the bucket or limit of the counter
+     * @param remaining What is left after the operation
+     * @param retryAfter How long to wait before the same request can be granted, zero if granted
+     * @param resetAfter How long until the bucket is full again, or the counter starts over
+     * */
+    record Consumption(boolean granted, long limit, long remaining, Duration retryAfter, Duration resetAfter) {
+    }
+}
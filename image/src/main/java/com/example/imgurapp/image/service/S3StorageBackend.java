@@ -0,0 +1,148 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.StorageProperties;
+import com.example.imgurapp.image.dto.StoredImage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetUrlRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps images as objects in an S3 bucket, on AWS or on an S3-compatible store such as MinIO.
+ * The dimensions of an image are kept in the metadata of its object, so reading the metadata of
+ * an image is a single HEAD request.
+ * */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.storage.s3", name = "enabled")
+public class S3StorageBackend implements ImageStorageBackend {
+
+    public static final String NAME = "s3";
+
+    private static final String WIDTH = "width";
+
+    private static final String HEIGHT = "height";
+
+    private final S3Client s3Client;
+
+    private final String bucket;
+
+    private final String prefix;
+
+    private final String publicUrl;
+
+    public S3StorageBackend(S3Client s3Client, StorageProperties properties) {
+        StorageProperties.S3 settings = properties.getS3();
+        if (!StringUtils.hasText(settings.getBucket())) {
+            throw new IllegalStateException("app.storage.s3.bucket must be set when the S3 backend is enabled");
+        }
+        this.s3Client = s3Client;
+        this.bucket = settings.getBucket();
+        this.prefix = settings.getPrefix() == null ? "" : settings.getPrefix();
+        String publicUrl = settings.getPublicUrl();
+        if (!StringUtils.hasText(publicUrl)) {
+            this.publicUrl = null;
+        } else {
+            this.publicUrl = publicUrl.endsWith("/") ? publicUrl.substring(0, publicUrl.length() - 1) : publicUrl;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public StoredImage upload(MultipartFile file) {
+        String id = StoredImageIds.newId(file.getContentType());
+        String key = prefix + id;
+        try {
+            ImageDimensions dimensions;
+            try (InputStream in = file.getInputStream()) {
+                dimensions = ImageDimensions.read(in);
+            }
+            try (InputStream in = file.getInputStream()) {
+                s3Client.putObject(request -> request.bucket(bucket).key(key)
+                                .contentType(file.getContentType())
+                                .contentLength(file.getSize())
+                                .metadata(Map.of(WIDTH, String.valueOf(dimensions.width()),
+                                        HEIGHT, String.valueOf(dimensions.height()))),
+                        RequestBody.fromInputStream(in, file.getSize()));
+            }
+            log.info("Image {} stored in bucket {}", id, bucket);
+            return new StoredImage(id, link(key), file.getContentType(), dimensions.width(), dimensions.height(),
+                    file.getSize());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read the upload of image " + id, e);
+        }
+    }
+
+    @Override
+    public void delete(String id) {
+        if (StoredImageIds.isValid(id)) {
+            s3Client.deleteObject(request -> request.bucket(bucket).key(prefix + id));
+        }
+    }
+
+    @Override
+    public Optional<StoredImage> find(String id) {
+        if (!StoredImageIds.isValid(id)) {
+            return Optional.empty();
+        }
+        String key = prefix + id;
+        HeadObjectResponse head;
+        try {
+            head = s3Client.headObject(request -> request.bucket(bucket).key(key));
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+        return Optional.of(new StoredImage(id, link(key), head.contentType(), dimension(head, WIDTH),
+                dimension(head, HEIGHT), head.contentLength() == null ? 0 : head.contentLength()));
+    }
+
+    @Override
+    public <T> Optional<T> read(String id, ContentReader<T> reader) {
+        if (!StoredImageIds.isValid(id)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(s3Client.getObject(request -> request.bucket(bucket).key(prefix + id),
+                    (response, in) -> reader.read(in)));
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    private String link(String key) {
+        if (publicUrl != null) {
+            return publicUrl + "/" + key;
+        }
+        return s3Client.utilities().getUrl(GetUrlRequest.builder().bucket(bucket).key(key).build()).toString();
+    }
+
+    private static int dimension(HeadObjectResponse head, String name) {
+        try {
+            return Integer.parseInt(head.metadata().getOrDefault(name, "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
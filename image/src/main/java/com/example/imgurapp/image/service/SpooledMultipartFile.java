@@ -0,0 +1,83 @@
+package com.example.imgurapp.image.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A multipart file whose content has been spooled to disk, so it outlives the request it was
+ * received with
+ * */
+class SpooledMultipartFile implements MultipartFile {
+
+    private final Path path;
+
+    private final String name;
+
+    private final String originalFilename;
+
+    private final String contentType;
+
+    private final long size;
+
+    SpooledMultipartFile(Path path, MultipartFile source) {
+        this(path, source.getName(), source.getOriginalFilename(), source.getContentType(), source.getSize());
+    }
+
+    SpooledMultipartFile(Path path, String name, String originalFilename, String contentType, long size) {
+        this.path = path;
+        this.name = name;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+        this.size = size;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        Files.copy(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.imgurapp.image.service;
+
+import java.util.Locale;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Ids of the images kept by the backends that name images themselves: a random hex string with
+ * the file extension of the image type, safe to use in file names, object keys and URLs
+ * */
+final class StoredImageIds {
+
+    private static final Pattern ID = Pattern.compile("[0-9a-f]{32}\\.[a-z]{3,4}");
+
+    private StoredImageIds() {
+    }
+
+    /**
+     * @param contentType The MIME type of the image
+     * @return A new id
+     * */
+    static String newId(String contentType) {
+        return UUID.randomUUID().toString().replace("-", "") + "." + extension(contentType);
+    }
+
+    /**
+     * @param id An id received from outside
+     * @return Whether it is an id made by {@link #newId(String)}
+     * */
+    static boolean isValid(String id) {
+        return id != null && ID.matcher(id).matches();
+    }
+
+    private static String extension(String contentType) {
+        String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        return switch (type) {
+            case "image/png" -> "png";
+            case "image/jpeg", "image/jpg" -> "jpg";
+            case "image/gif" -> "gif";
+            case "image/webp" -> "webp";
+            case "image/bmp" -> "bmp";
+            case "image/tiff" -> "tiff";
+            default -> "bin";
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.imgurapp.image.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.IOException;
+import java.util.function.Predicate;
+
+/**
+ * Tells failures caused by Imgur being unavailable (I/O errors, timeouts, 5xx and 429) apart from
+ * failures caused by the request itself (other 4xx). Only the former are retried and counted by
+ * the circuit breakers.
+ * */
+public class TransientImgurFailure implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof IOException || t instanceof ResourceAccessException
+                    || t instanceof HttpServerErrorException) {
+                return true;
+            }
+            if (t instanceof RestClientResponseException responseException) {
+                return responseException.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.UploadProperties;
+import com.example.imgurapp.image.dto.UploadJob;
+import com.example.imgurapp.image.entity.Image;
+import com.example.imgurapp.image.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts uploads into a bounded queue and sends them to Imgur on a fixed pool of workers, so
+ * request threads are released as soon as the file is spooled to disk. Workers are virtual
+ * threads when <code>spring.threads.virtual.enabled</code> is set on Java 21.
+ * */
+@Slf4j
+@Service
+@EnableConfigurationProperties(UploadProperties.class)
+public class UploadJobService {
+
+    /** Finished jobs kept for polling per job that can be pending at once, queued or running */
+    private static final int RETAINED_JOBS_PER_SLOT = 10;
+
+    private final ImageService imageService;
+
+    private final Path spoolDirectory;
+
+    private final ThreadPoolExecutor executor;
+
+    /** Queued and running jobs, never evicted; there are at most as many as the queue and workers hold */
+    private final Map<String, UploadJob> pendingJobs = new ConcurrentHashMap<>();
+
+    /** Completed and failed jobs, kept for polling until they expire or are evicted */
+    private final Cache<String, UploadJob> finishedJobs;
+
+    public UploadJobService(ImageService imageService, UploadProperties properties,
+                            Environment environment) throws IOException {
+        this.imageService = imageService;
+        this.spoolDirectory = Files.createDirectories(properties.getSpoolDirectory());
+        this.executor = new ThreadPoolExecutor(properties.getWorkers(), properties.getWorkers(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                workerThreadFactory(environment));
+        this.finishedJobs = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getJobRetention())
+                .maximumSize((long) (properties.getQueueCapacity() + properties.getWorkers()) * RETAINED_JOBS_PER_SLOT)
+                .build();
+    }
+
+    /**
+     * Spools an upload to disk and queues it for a worker
+     *
+     * @param user The user associated with the image
+     * @param file The image file to be uploaded
+     * @return An optional containing the queued job, otherwise an empty optional if the queue
+     * is full
+     * */
+    public Optional<UploadJob> submit(User user, MultipartFile file) {
+        if (executor.getQueue().remainingCapacity() == 0) {
+            log.error("Upload queue is full, rejecting upload for user: {}", user.getUserName());
+            return Optional.empty();
+        }
+
+        SpooledMultipartFile spooledFile = spool(file);
+        UploadJob job = new UploadJob(UUID.randomUUID().toString(), user.getUserName(),
+                UploadJob.Status.QUEUED, null, null);
+        pendingJobs.put(job.jobId(), job);
+        try {
+            executor.execute(() -> run(job, user, spooledFile));
+        } catch (RejectedExecutionException e) {
+            log.error("Upload queue is full, rejecting upload for user: {}", user.getUserName());
+            pendingJobs.remove(job.jobId());
+            deleteSpooledFile(spooledFile);
+            return Optional.empty();
+        }
+        log.info("Upload job {} queued for user: {}", job.jobId(), user.getUserName());
+        return Optional.of(job);
+    }
+
+    /**
+     * Retrieves the state of a job owned by the given user
+     *
+     * @param user The user polling for the job
+     * @param jobId The id of the job
+     * @return An optional containing the job, if it exists and belongs to the user
+     * */
+    public Optional<UploadJob> getJob(User user, String jobId) {
+        //A finishing job is added to the finished jobs before it leaves the pending ones
+        UploadJob pending = pendingJobs.get(jobId);
+        return Optional.ofNullable(pending != null ? pending : finishedJobs.getIfPresent(jobId))
+                .filter(job -> job.userName().equals(user.getUserName()));
+    }
+
+    private void run(UploadJob job, User user, SpooledMultipartFile file) {
+        pendingJobs.put(job.jobId(), job.withStatus(UploadJob.Status.RUNNING));
+        try {
+            Image image = imageService.uploadImage(user, file);
+            finish(job.completed(image));
+            log.info("Upload job {} completed", job.jobId());
+        } catch (Exception e) {
+            log.error("Upload job {} failed", job.jobId(), e);
+            finish(job.failed(e.getMessage()));
+        } finally {
+            deleteSpooledFile(file);
+        }
+    }
+
+    private void finish(UploadJob job) {
+        finishedJobs.put(job.jobId(), job);
+        pendingJobs.remove(job.jobId());
+    }
+
+    private static ThreadFactory workerThreadFactory(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            log.info("Upload workers run on virtual threads");
+            return new VirtualThreadTaskExecutor("upload-worker-").getVirtualThreadFactory();
+        }
+        return new CustomizableThreadFactory("upload-worker-");
+    }
+
+    private SpooledMultipartFile spool(MultipartFile file) {
+        try {
+            Path path = Files.createTempFile(spoolDirectory, "upload-", ".spool");
+            file.transferTo(path);
+            return new SpooledMultipartFile(path, file);
+        } catch (IOException e) {
+            log.error("Unable to spool upload to {}", spoolDirectory, e);
+            throw new RuntimeException("Image upload FAILED", e);
+        }
+    }
+
+    private void deleteSpooledFile(SpooledMultipartFile file) {
+        try {
+            Files.deleteIfExists(file.getPath());
+        } catch (IOException e) {
+            log.error("Unable to delete spooled upload {}", file.getPath(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.RateLimitProperties;
+import com.example.imgurapp.image.dto.RateLimitDecision;
+import com.example.imgurapp.image.entity.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Limits how fast each user can upload, before any upload reaches Imgur, so that a single client
+ * cannot use up the Imgur budget of the whole application. Each user has a token bucket (one
+ * token per image) and daily quotas on the number and total size of their images.
+ * */
+@Service
+public class UploadRateLimiter {
+
+    private final RateLimitStore store;
+
+    private final RateLimitProperties properties;
+
+    private final Clock clock;
+
+    @Autowired
+    public UploadRateLimiter(RateLimitStore store, RateLimitProperties properties) {
+        this(store, properties, Clock.systemUTC());
+    }
+
+    UploadRateLimiter(RateLimitStore store, RateLimitProperties properties, Clock clock) {
+        this.store = store;
+        this.properties = properties;
+        this.clock = clock;
+    }
+
+    /**
+     * @return The largest number of images a single upload can take: the size of the bucket, or
+     * no limit when uploads are not rate limited. A larger batch could never be granted, so it is
+     * rejected rather than told to retry.
+     * */
+    public long getMaxBatch() {
+        return properties.isEnabled() ? properties.getCapacity() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Takes an upload of the user from their bucket and daily quotas
+     *
+     * @param user The uploading user
+     * @param images The number of images uploaded, at most getMaxBatch()
+     * @param bytes The total size of the images
+     * @return The decision, with what is left of the bucket and quotas. Nothing is taken from the
+     * bucket or the daily quotas if the upload is refused.
+     * @throws IllegalArgumentException If the upload is larger than the bucket
+     * */
+    public RateLimitDecision tryAcquire(User user, int images, long bytes) {
+        if (!properties.isEnabled()) {
+            return RateLimitDecision.UNLIMITED;
+        }
+        if (images > properties.getCapacity()) {
+            throw new IllegalArgumentException("An upload of " + images + " images can never fit a bucket of "
+                    + properties.getCapacity());
+        }
+        String rateKey = rateKey(user);
+
+        RateLimitStore.Consumption rate = store.tryConsume(rateKey, properties.getCapacity(),
+                properties.getRefillPeriod(), images);
+        if (!rate.granted()) {
+            return new RateLimitDecision(false, rate.limit(), rate.remaining(), rate.resetAfter(), rate.retryAfter(),
+                    -1, -1, null);
+        }
+
+        LocalDate today = today();
+        Instant resetAt = today.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        String uploadsKey = uploadsKey(user, today);
+        RateLimitStore.Consumption uploads = store.tryIncrement(uploadsKey, properties.getDailyUploads(), images, resetAt);
+        if (!uploads.granted()) {
+            store.refund(rateKey, properties.getRefillPeriod(), images);
+            return decision(false, rate, images, uploads.retryAfter(), uploads.remaining(), -1, uploads);
+        }
+
+        RateLimitStore.Consumption volume = store.tryIncrement(bytesKey(user, today),
+                properties.getDailyBytes().toBytes(), bytes, resetAt);
+        if (!volume.granted()) {
+            store.release(uploadsKey, images);
+            store.refund(rateKey, properties.getRefillPeriod(), images);
+            return decision(false, rate, images, volume.retryAfter(), uploads.remaining() + images,
+                    volume.remaining(), volume);
+        }
+        return decision(true, rate, 0, Duration.ZERO, uploads.remaining(), volume.remaining(), volume);
+    }
+
+    /**
+     * Gives back an upload granted by tryAcquire which did not go ahead after all, such as one
+     * refused by a full upload queue
+     *
+     * @param user The uploading user
+     * @param images The number of images granted
+     * @param bytes The total size of the images granted
+     * */
+    public void release(User user, int images, long bytes) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LocalDate today = today();
+        store.release(uploadsKey(user, today), images);
+        store.release(bytesKey(user, today), bytes);
+        store.refund(rateKey(user), properties.getRefillPeriod(), images);
+    }
+
+    private LocalDate today() {
+        return LocalDate.now(clock.withZone(ZoneOffset.UTC));
+    }
+
+    private static String rateKey(User user) {
+        return "upload-rate:" + user.getUserId();
+    }
+
+    private static String uploadsKey(User user, LocalDate day) {
+        return "upload-count:" + user.getUserId() + ":" + day;
+    }
+
+    private static String bytesKey(User user, LocalDate day) {
+        return "upload-bytes:" + user.getUserId() + ":" + day;
+    }
+
+    private static RateLimitDecision decision(boolean allowed, RateLimitStore.Consumption rate, long refunded,
+                                              Duration retryAfter, long uploadsRemaining, long bytesRemaining,
+                                              RateLimitStore.Consumption daily) {
+        return new RateLimitDecision(allowed, rate.limit(), rate.remaining() + refunded, rate.resetAfter(), retryAfter,
+                uploadsRemaining, bytesRemaining, daily.resetAfter());
+    }
+}
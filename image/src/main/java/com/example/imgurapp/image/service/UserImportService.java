@@ -0,0 +1,215 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.CacheConfig;
+import com.example.imgurapp.image.config.UserProperties;
+import com.example.imgurapp.image.dto.UserImportRecord;
+import com.example.imgurapp.image.dto.UserImportResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Imports users in bulk with JDBC batch inserts, bypassing the entity layer. Each chunk of
+ * batch-size users costs one lookup of the userNames that already exist and one batched insert,
+ * so an import can be run again after a failure and only inserts what is missing.
+ * */
+@Slf4j
+@Service
+@EnableConfigurationProperties(UserProperties.class)
+public class UserImportService {
+
+    private static final String INSERT_USER = "INSERT INTO APP_USER (NAME, USER_NAME, EMAIL, PASSWORD) VALUES (?, ?, ?, ?)";
+
+    private static final String EXISTING_USER_NAMES = "SELECT USER_NAME FROM APP_USER WHERE USER_NAME IN (:userNames)";
+
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}$");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final PasswordHasher passwordHasher;
+
+    private final Validator validator;
+
+    private final CacheManager cacheManager;
+
+    private final UserProperties.Import properties;
+
+    private final Counter importedUsers;
+
+    private final Counter skippedUsers;
+
+    public UserImportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             PasswordHasher passwordHasher, Validator validator, CacheManager cacheManager,
+                             UserProperties properties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.passwordHasher = passwordHasher;
+        this.validator = validator;
+        this.cacheManager = cacheManager;
+        this.properties = properties.getBulkImport();
+        this.importedUsers = Counter.builder("users.import")
+                .description("Users handled by bulk imports")
+                .tag("result", "imported")
+                .register(meterRegistry);
+        this.skippedUsers = Counter.builder("users.import")
+                .description("Users handled by bulk imports")
+                .tag("result", "skipped")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return The maximum number of users accepted in one import
+     * */
+    public int getMaxUsers() {
+        return properties.getMaxUsers();
+    }
+
+    /**
+     * Checks the key sent with an import request
+     *
+     * @param key The value of the X-Import-Key header
+     * @return true if imports are enabled and the key matches
+     * */
+    public boolean isAuthorized(String key) {
+        return StringUtils.hasText(properties.getKey()) && key != null
+                && MessageDigest.isEqual(properties.getKey().getBytes(StandardCharsets.UTF_8),
+                key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Inserts the users that do not exist yet, batch-size users at a time
+     *
+     * @param records The users to import
+     * @return The number of users inserted and the userNames that were skipped
+     * @throws java.util.concurrent.RejectedExecutionException If plain passwords have to be hashed
+     * and the hashing pool is saturated
+     * */
+    public UserImportResult importUsers(List<UserImportRecord> records) {
+        log.info("Importing {} users", records.size());
+        List<String> duplicates = new ArrayList<>();
+        List<String> invalid = new ArrayList<>();
+        Map<String, UserImportRecord> valid = new LinkedHashMap<>();
+        for (UserImportRecord record : records) {
+            if (record == null || !validator.validate(record).isEmpty() || !hasPassword(record)) {
+                invalid.add(record == null ? null : record.userName());
+            } else if (valid.putIfAbsent(record.userName(), record) != null) {
+                duplicates.add(record.userName());
+            }
+        }
+
+        int imported = 0;
+        List<UserImportRecord> pending = new ArrayList<>(valid.values());
+        for (int from = 0; from < pending.size(); from += properties.getBatchSize()) {
+            List<UserImportRecord> chunk = pending.subList(from, Math.min(from + properties.getBatchSize(), pending.size()));
+            imported += importChunk(chunk, duplicates, invalid);
+        }
+
+        importedUsers.increment(imported);
+        skippedUsers.increment(duplicates.size() + invalid.size());
+        log.info("{} of {} users imported, {} duplicates, {} invalid", imported, records.size(),
+                duplicates.size(), invalid.size());
+        return new UserImportResult(imported, duplicates, invalid);
+    }
+
+    private int importChunk(List<UserImportRecord> chunk, List<String> duplicates, List<String> invalid) {
+        Set<String> existing = new HashSet<>(namedParameterJdbcTemplate.queryForList(EXISTING_USER_NAMES,
+                new MapSqlParameterSource("userNames", chunk.stream().map(UserImportRecord::userName).toList()),
+                String.class));
+        List<UserImportRecord> missing = new ArrayList<>();
+        for (UserImportRecord record : chunk) {
+            if (existing.contains(record.userName())) {
+                duplicates.add(record.userName());
+            } else {
+                missing.add(record);
+            }
+        }
+        if (missing.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> rows = rows(missing);
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_USER, rows));
+            evictUnknown(missing);
+            return missing.size();
+        } catch (DataIntegrityViolationException e) {
+            //A user registered meanwhile, or a value is too long: the batch was rolled back, so
+            //insert the rows one by one to tell which
+            log.warn("Batch insert of {} users failed, inserting them one by one", missing.size());
+        }
+
+        int imported = 0;
+        for (int i = 0; i < missing.size(); i++) {
+            UserImportRecord record = missing.get(i);
+            try {
+                jdbcTemplate.update(INSERT_USER, rows.get(i));
+                evictUnknown(List.of(record));
+                imported++;
+            } catch (DuplicateKeyException e) {
+                duplicates.add(record.userName());
+            } catch (DataIntegrityViolationException e) {
+                invalid.add(record.userName());
+            }
+        }
+        return imported;
+    }
+
+    /**
+     * @return The insert parameters of each user, with the plain passwords hashed on the hashing pool
+     * */
+    private List<Object[]> rows(List<UserImportRecord> records) {
+        List<String> plainPasswords = records.stream()
+                .filter(record -> record.passwordHash() == null)
+                .map(UserImportRecord::password)
+                .toList();
+        List<String> hashes = plainPasswords.isEmpty() ? List.of() : passwordHasher.encodeAll(plainPasswords);
+
+        List<Object[]> rows = new ArrayList<>(records.size());
+        int hashed = 0;
+        for (UserImportRecord record : records) {
+            String passwordHash = record.passwordHash() != null ? record.passwordHash() : hashes.get(hashed++);
+            rows.add(new Object[]{record.name(), record.userName(), record.email(), passwordHash});
+        }
+        return rows;
+    }
+
+    private void evictUnknown(List<UserImportRecord> records) {
+        Cache unknownUserNames = cacheManager.getCache(CacheConfig.UNKNOWN_USER_NAMES_CACHE);
+        for (UserImportRecord record : records) {
+            unknownUserNames.evict(record.userName());
+        }
+    }
+
+    private static boolean hasPassword(UserImportRecord record) {
+        return record.passwordHash() != null ? BCRYPT_HASH.matcher(record.passwordHash()).matches()
+                : StringUtils.hasText(record.password());
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.imgurapp.image.service;
+
+/**
+ * Thrown when a user is registered with a userName that already exists, as reported by the unique
+ * constraint on USER_NAME
+ * */
+public class UserNameTakenException extends RuntimeException {
+
+    public UserNameTakenException(String userName) {
+        super("Username already exists: " + userName);
+    }
+}
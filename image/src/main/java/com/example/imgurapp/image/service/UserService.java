@@ -1,55 +1,149 @@
 package com.example.imgurapp.image.service;
 
+import com.example.imgurapp.image.config.CacheConfig;
+import com.example.imgurapp.image.config.UserProperties;
+import com.example.imgurapp.image.dto.UserProfile;
 import com.example.imgurapp.image.entity.User;
 import com.example.imgurapp.image.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
 public class UserService {
 
+    private static final String UNIQUE_VIOLATION = "23505";
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
     private BCryptPasswordEncoder passwordEncoder;
 
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserProperties userProperties;
+
+    private final SecretKeySpec credentialKey = newCredentialKey();
+
+    private ThreadPoolExecutor registrationExecutor;
+
+    /**
+     * Starts the pool inserting registered users. Registrations are already bounded by the
+     * hashing queue, so its own queue is not.
+     * */
+    @PostConstruct
+    void startRegistrationPool() {
+        int threads = userProperties.getRegistration().getThreads();
+        registrationExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("user-registration-"));
+        new ExecutorServiceMetrics(registrationExecutor, "user.registration", List.of()).bindTo(meterRegistry);
+    }
+
     /**
-     * Registers a user by checking if the username already exists or not
+     * Registers a user, waiting for the password to be hashed on the hashing pool
      *
      * @param name The name of the user
      * @param userName The username for the user. It should be unique
      * @param email The email of the user
      * @param password The password for the user
      * @return The created User object
-     * @throws RuntimeException If the username provided by the user already exists.
+     * @throws UserNameTakenException If the username provided by the user already exists.
+     * @throws RejectedExecutionException If the hashing pool is saturated
      *
      * */
     public User registerUser(String name, String userName, String email, String password) {
-        log.info("Creating an user with userName: {}", userName);
-        if (userRepository.findByUserName(userName).isPresent()) {
-            log.error("User with this username already exists. Provide a new user name.");
-            throw new RuntimeException("Username already exists.");
+        try {
+            return registerUserAsync(name, userName, email, password).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
         }
+    }
 
-        User user = new User();
-        user.setName(name);
-        user.setUserName(userName);
-        user.setEmail(email);
-        user.setPassword(passwordEncoder.encode(password));
-
-        User savedUser = userRepository.save(user);
-        log.info("User with username {} is created.", userName);
-        return savedUser;
+    /**
+     * Registers a user with a single insert: the password is hashed on the hashing pool, then the
+     * row is inserted on the registration pool and a taken username is reported by the unique
+     * constraint on USER_NAME, so concurrent registrations of the same name cannot both succeed.
+     *
+     * @param name The name of the user
+     * @param userName The username for the user. It should be unique
+     * @param email The email of the user
+     * @param password The password for the user
+     * @return A future of the created User object, failed with a UserNameTakenException if the
+     * username already exists, a DataIntegrityViolationException if the row breaks another
+     * constraint or a RejectedExecutionException if the hashing pool is saturated
+     * */
+    public CompletableFuture<User> registerUserAsync(String name, String userName, String email, String password) {
+        log.info("Creating an user with userName: {}", userName);
+        return passwordHasher.encode(password).thenApplyAsync(passwordHash -> {
+            User user = new User();
+            user.setName(name);
+            user.setUserName(userName);
+            user.setEmail(email);
+            user.setPassword(passwordHash);
+
+            User savedUser;
+            try {
+                savedUser = userRepository.save(user);
+            } catch (DataIntegrityViolationException e) {
+                if (!isUserNameTaken(e)) {
+                    throw e;
+                }
+                log.error("User with this username already exists. Provide a new user name.");
+                throw new UserNameTakenException(userName);
+            }
+            cacheManager.getCache(CacheConfig.UNKNOWN_USER_NAMES_CACHE).evict(userName);
+            cacheManager.getCache(CacheConfig.USER_PROFILES_CACHE).put(userName, UserProfile.of(savedUser));
+            log.info("User with username {} is created.", userName);
+            return savedUser;
+        }, registrationExecutor);
     }
 
     /**
-     * Authenticates an user by its userName and password
+     * Authenticates an user by its userName and password. Credentials verified recently are
+     * remembered for a short time, so repeated calls skip the BCrypt comparison.
      *
      * @param userName The userName of the user
      * @param password The password provided by the user
@@ -59,7 +153,7 @@ public class UserService {
     public Optional<User> authenticateUser(String userName, String password) {
         log.info("Authenticating user: {}", userName);
         Optional<User> userOpt = userRepository.findByUserName(userName);
-        if (userOpt.isPresent() && passwordEncoder.matches(password, userOpt.get().getPassword())) {
+        if (userOpt.isPresent() && passwordMatches(userOpt.get(), password)) {
             log.info("User found");
             return userOpt;
         } else {
@@ -77,4 +171,142 @@ public class UserService {
     public Optional<User> getUserByUserName(String userName) {
         return userRepository.findByUserName(userName);
     }
+
+    /**
+     * Retrieves the profile of a user by its userName from the profile cache, reading only the
+     * profile columns on a miss. Unknown userNames are remembered briefly as well, so lookups of
+     * names that do not exist do not reach the database every time.
+     *
+     * @param userName The user name of the user
+     * @return An optional containing the profile if the user exists
+     * */
+    public Optional<UserProfile> getUserProfile(String userName) {
+        Cache profiles = cacheManager.getCache(CacheConfig.USER_PROFILES_CACHE);
+        UserProfile profile = profiles.get(userName, UserProfile.class);
+        if (profile != null) {
+            return Optional.of(profile);
+        }
+        Cache unknownUserNames = cacheManager.getCache(CacheConfig.UNKNOWN_USER_NAMES_CACHE);
+        if (unknownUserNames.get(userName) != null) {
+            return Optional.empty();
+        }
+
+        Optional<UserProfile> profileOpt = userRepository.findProfileByUserName(userName);
+        if (profileOpt.isPresent()) {
+            profiles.put(userName, profileOpt.get());
+        } else {
+            unknownUserNames.put(userName, Boolean.TRUE);
+        }
+        return profileOpt;
+    }
+
+    /**
+     * Issues a signed access token for an authenticated user
+     *
+     * @param user The authenticated user
+     * @return The signed token
+     * */
+    public String issueToken(User user) {
+        return tokenService.issueToken(user.getUserName());
+    }
+
+    /**
+     * @return The lifetime of issued access tokens
+     * */
+    public Duration getTokenTtl() {
+        return tokenService.getTtl();
+    }
+
+    /**
+     * Authenticates an user by a token previously issued by {@link #issueToken(User)}. The user is
+     * taken from the profile cache, so a valid token usually costs no database round trip.
+     *
+     * @param token The token presented by the user
+     * @return An optional containing the User if the token is valid, otherwise an empty body is
+     * returned. The User is detached and carries only the profile, enough to refer to the user.
+     * */
+    public Optional<User> authenticateToken(String token) {
+        Optional<User> userOpt = tokenService.verifyToken(token).flatMap(this::getUserProfile).map(UserService::toUser);
+        if (userOpt.isEmpty()) {
+            log.error("Token authentication failed");
+        }
+        return userOpt;
+    }
+
+    /**
+     * Checks a password against the stored BCrypt hash, consulting the verified-credential cache
+     * first. The cache only holds a keyed fingerprint of the stored hash and the password, so a
+     * changed password never matches a stale entry.
+     *
+     * @param user The user whose password is checked
+     * @param password The password provided by the user
+     * @return true if the password matches
+     * */
+    private boolean passwordMatches(User user, String password) {
+        Cache verifiedCredentials = cacheManager.getCache(CacheConfig.VERIFIED_CREDENTIALS_CACHE);
+        byte[] fingerprint = credentialFingerprint(user.getPassword(), password);
+        byte[] verified = verifiedCredentials.get(user.getUserName(), byte[].class);
+        if (verified != null && MessageDigest.isEqual(verified, fingerprint)) {
+            return true;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean matches = passwordEncoder.matches(password, user.getPassword());
+        sample.stop(Timer.builder("auth.password.bcrypt")
+                .description("Time spent verifying passwords with BCrypt")
+                .tag("result", matches ? "match" : "mismatch")
+                .register(meterRegistry));
+
+        if (matches) {
+            verifiedCredentials.put(user.getUserName(), fingerprint);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the insert broke a unique constraint. Besides the generated primary key,
+     * the only one on APP_USER is on USER_NAME, and its name is not reported the same way by
+     * every database, so the SQL state is checked rather than the constraint name.
+     * */
+    private static boolean isUserNameTaken(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                return UNIQUE_VIOLATION.equals(sqlException.getSQLState());
+            }
+        }
+        return false;
+    }
+
+    private static User toUser(UserProfile profile) {
+        User user = new User();
+        user.setUserId(profile.userId());
+        user.setName(profile.name());
+        user.setUserName(profile.userName());
+        user.setEmail(profile.email());
+        return user;
+    }
+
+    private byte[] credentialFingerprint(String passwordHash, String password) {
+        try {
+            Mac mac = Mac.getInstance(credentialKey.getAlgorithm());
+            mac.init(credentialKey);
+            mac.update(passwordHash.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static SecretKeySpec newCredentialKey() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return new SecretKeySpec(key, "HmacSHA256");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        registrationExecutor.shutdown();
+    }
 }
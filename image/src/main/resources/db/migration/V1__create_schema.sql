@@ -0,0 +1,30 @@
+CREATE TABLE APP_USER (
+    USER_ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    NAME VARCHAR(255) NOT NULL,
+    USER_NAME VARCHAR(255) NOT NULL,
+    EMAIL VARCHAR(255) NOT NULL,
+    PASSWORD VARCHAR(255) NOT NULL,
+    CONSTRAINT UK_APP_USER_USER_NAME UNIQUE (USER_NAME)
+);
+
+-- Hibernate hands out ids in blocks of 50 (allocationSize of Image)
+CREATE SEQUENCE IMAGE_SEQ START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IMAGE (
+    ID BIGINT NOT NULL PRIMARY KEY,
+    IMAGE_URL VARCHAR(255) NOT NULL,
+    IMAGE_ID VARCHAR(255) NOT NULL,
+    CONTENT_HASH VARCHAR(64),
+    USER_ID BIGINT NOT NULL,
+    CONSTRAINT FK_IMAGE_USER_ID FOREIGN KEY (USER_ID) REFERENCES APP_USER (USER_ID)
+);
+
+-- Keyset pagination of a user's images (WHERE USER_ID = ? AND ID > ? ORDER BY ID); also serves
+-- the foreign key and the ownership lookups by USER_ID
+CREATE INDEX IDX_IMAGE_USER_ID_ID ON IMAGE (USER_ID, ID);
+
+-- Deduplication lookups by content within a user or across users
+CREATE INDEX IDX_IMAGE_CONTENT_HASH_USER_ID ON IMAGE (CONTENT_HASH, USER_ID);
+
+-- Whether an Imgur image is still referenced by another row before it is deleted
+CREATE INDEX IDX_IMAGE_IMAGE_ID ON IMAGE (IMAGE_ID);
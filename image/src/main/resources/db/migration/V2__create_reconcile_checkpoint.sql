@@ -0,0 +1,8 @@
+-- Progress of the background jobs that walk a table in id order (see ImageReconciler)
+CREATE TABLE RECONCILE_CHECKPOINT (
+    NAME VARCHAR(64) NOT NULL PRIMARY KEY,
+    LAST_ID BIGINT NOT NULL,
+    PASS_STARTED_AT TIMESTAMP(6) WITH TIME ZONE,
+    LAST_PASS_COMPLETED_AT TIMESTAMP(6) WITH TIME ZONE,
+    VERSION BIGINT NOT NULL
+);
@@ -0,0 +1,13 @@
+-- Imgur images waiting to be deleted by ImageDeletionDispatcher, written in the transaction that
+-- deletes their IMAGE row. NEXT_ATTEMPT_AT is null once the deletion is given up on.
+CREATE TABLE IMAGE_DELETION_OUTBOX (
+    ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    IMAGE_ID VARCHAR(255) NOT NULL,
+    CREATED_AT TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    NEXT_ATTEMPT_AT TIMESTAMP(6) WITH TIME ZONE,
+    ATTEMPTS INTEGER NOT NULL,
+    LAST_ERROR VARCHAR(500)
+);
+
+-- The dispatcher reads the due deletions in NEXT_ATTEMPT_AT order
+CREATE INDEX IDX_IMAGE_DELETION_OUTBOX_NEXT_ATTEMPT_AT ON IMAGE_DELETION_OUTBOX (NEXT_ATTEMPT_AT);
@@ -0,0 +1,5 @@
+-- Images are kept by one of several storage backends (see ImageStorageBackend); rows written
+-- before there was a choice are on Imgur
+ALTER TABLE IMAGE ADD COLUMN BACKEND VARCHAR(32) DEFAULT 'imgur' NOT NULL;
+
+ALTER TABLE IMAGE_DELETION_OUTBOX ADD COLUMN BACKEND VARCHAR(32) DEFAULT 'imgur' NOT NULL;
@@ -0,0 +1,81 @@
+package com.example.imgurapp.image;
+
+import com.example.imgurapp.image.entity.Image;
+import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.repository.ImageRepository;
+import com.example.imgurapp.image.service.UserService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the prod profile against an in-memory database, so that the schema is created by the
+ * Flyway migrations and Hibernate validates the entities against it
+ * */
+@ActiveProfiles("prod")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:prod_profile_test;MODE=PostgreSQL;QUERY_CACHE_SIZE=64")
+public class ProdProfileMigrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Test
+    public void testMigrationsCreateIndexes() {
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_NAME IN ('IMAGE', 'APP_USER')",
+                String.class);
+
+        assertTrue(indexes.contains("IDX_IMAGE_USER_ID_ID"), indexes.toString());
+        assertTrue(indexes.contains("IDX_IMAGE_IMAGE_ID"), indexes.toString());
+        assertTrue(indexes.contains("IDX_IMAGE_CONTENT_HASH_USER_ID"), indexes.toString());
+        assertTrue(indexes.stream().anyMatch(name -> name.startsWith("UK_APP_USER_USER_NAME")), indexes.toString());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM \"flyway_schema_history\" WHERE \"version\" = '1' AND \"success\"", Integer.class));
+    }
+
+    @Test
+    public void testHikariPoolIsConfigured() throws SQLException {
+        //The pool sits behind the statement monitoring proxy
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+
+        assertEquals("image-db", hikari.getPoolName());
+        assertEquals(20, hikari.getMaximumPoolSize());
+        assertEquals(20000, hikari.getLeakDetectionThreshold());
+    }
+
+    @Test
+    public void testImagesAreSavedAgainstMigratedSchema() {
+        User user = userService.registerUser("Prod User", "produser", "prod@example.com", "password123");
+        List<Image> images = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Image image = new Image();
+            image.setUrl("https://i.imgur.com/prod" + i + ".png");
+            image.setImageId("prod" + i);
+            image.setUser(user);
+            images.add(image);
+        }
+
+        imageRepository.saveAll(images);
+
+        assertEquals(120, imageRepository.count());
+    }
+}
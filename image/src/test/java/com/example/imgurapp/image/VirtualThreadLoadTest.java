@@ -0,0 +1,140 @@
+package com.example.imgurapp.image;
+
+import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.service.ImgurStub;
+import com.example.imgurapp.image.service.UserService;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Holds far more uploads in flight than the 200 platform threads Tomcat has by default. The stub
+ * Imgur server only answers once every upload has reached it, so the test passes only if each
+ * blocked request is parked on a virtual thread. It needs Java 21, so it is skipped by the default
+ * Java 17 build and runs with the java21 profile:
+ *
+ * <pre>mvn -Pjava21 test -Dtest=VirtualThreadLoadTest</pre>
+ * */
+@EnabledForJreRange(min = JRE.JAVA_21)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.threads.virtual.enabled=true",
+        "imgur.http.max-connections=1000",
+        "imgur.http.max-connections-per-route=1000",
+        "resilience4j.bulkhead.instances.imgurUpload.max-concurrent-calls=1000",
+        "app.rate-limit.enabled=false"
+})
+public class VirtualThreadLoadTest {
+
+    private static final int CONCURRENT_UPLOADS = 500;
+
+    /** Well under the 256 MB heap of the java21 profile, which a thread per upload would not fit in */
+    private static final long MAX_HEAP_GROWTH = 128L * 1024 * 1024;
+
+    private static final AtomicInteger inFlight = new AtomicInteger();
+
+    private static final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private static final CountDownLatch allArrived = new CountDownLatch(CONCURRENT_UPLOADS);
+
+    private static final byte[] IMGUR_RESPONSE = """
+            {"data":{"id":"abc123","link":"https://i.imgur.com/abc123.png"},"success":true,"status":200}"""
+            .getBytes(StandardCharsets.UTF_8);
+
+    @RegisterExtension
+    static final ImgurStub imgurStub = new ImgurStub(CONCURRENT_UPLOADS * 2, VirtualThreadLoadTest::handle);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserService userService;
+
+    @DynamicPropertySource
+    static void imgurStub(DynamicPropertyRegistry registry) {
+        imgurStub.register(registry);
+    }
+
+    @Test
+    public void testInFlightUploadsExceedPlatformThreadLimit() {
+        User user = userService.registerUser("Load Test", "loadtest", "load@example.com", "password123");
+        String token = userService.issueToken(user);
+        String boundary = "load-test-boundary";
+        byte[] body = multipartBody(boundary);
+        HttpClient client = HttpClient.newHttpClient();
+        long heapBefore = usedHeap();
+
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_UPLOADS; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/images/upload"))
+                    .header("Authorization", "Bearer " + token)
+                    .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            assertEquals(201, response.join().statusCode());
+        }
+        long heapGrowth = usedHeap() - heapBefore;
+        assertEquals(CONCURRENT_UPLOADS, maxInFlight.get());
+        assertTrue(heapGrowth < MAX_HEAP_GROWTH, "Heap growth: " + heapGrowth / (1024 * 1024) + " MB");
+    }
+
+    private static byte[] multipartBody(String boundary) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"image.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(new byte[16 * 1024]);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return body.toByteArray();
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Answers an upload only once every upload has arrived
+     * */
+    private static void handle(HttpExchange exchange) throws IOException {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            exchange.getRequestBody().readAllBytes();
+            allArrived.countDown();
+            allArrived.await(30, TimeUnit.SECONDS);
+            ImgurStub.respond(exchange, 200, IMGUR_RESPONSE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.imgurapp.image.benchmark;
+
+import com.example.imgurapp.image.config.CacheConfig;
+import com.example.imgurapp.image.config.AppCacheProperties;
+import com.example.imgurapp.image.config.TokenProperties;
+import com.example.imgurapp.image.dto.UserProfile;
+import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.repository.UserRepository;
+import com.example.imgurapp.image.service.TokenService;
+import com.example.imgurapp.image.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-request cost of the authentication paths of the image endpoints. Run with a
+ * single thread, the throughput score is requests per second per core.
+ *
+ * <pre>mvn -Pbenchmark test-compile exec:exec -Djmh.args=AuthenticationBenchmark</pre>
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationBenchmark {
+
+    private static final String USER_NAME = "john123";
+
+    private static final String PASSWORD = "password123";
+
+    private UserService userService;
+
+    private BCryptPasswordEncoder passwordEncoder;
+
+    private User user;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        passwordEncoder = new BCryptPasswordEncoder();
+        user = new User();
+        user.setUserName(USER_NAME);
+        user.setPassword(passwordEncoder.encode(PASSWORD));
+
+        UserRepository userRepository = Mockito.mock(UserRepository.class);
+        Mockito.when(userRepository.findByUserName(USER_NAME)).thenReturn(Optional.of(user));
+        Mockito.when(userRepository.findProfileByUserName(USER_NAME)).thenReturn(Optional.of(UserProfile.of(user)));
+
+        TokenProperties tokenProperties = new TokenProperties();
+        tokenProperties.setSecret("benchmark-secret");
+
+        userService = new UserService();
+        ReflectionTestUtils.setField(userService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userService, "passwordEncoder", passwordEncoder);
+        ReflectionTestUtils.setField(userService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(userService, "tokenService", new TokenService(tokenProperties));
+        ReflectionTestUtils.setField(userService, "cacheManager",
+                new CacheConfig().cacheManager(new AppCacheProperties()));
+
+        token = userService.issueToken(user);
+    }
+
+    /**
+     * The previous behaviour: a BCrypt comparison on every request
+     * */
+    @Benchmark
+    public boolean bcryptPerRequest() {
+        return passwordEncoder.matches(PASSWORD, user.getPassword());
+    }
+
+    /**
+     * userName and password during the migration window, served from the verified-credential cache
+     * */
+    @Benchmark
+    public Optional<User> cachedCredentials() {
+        return userService.authenticateUser(USER_NAME, PASSWORD);
+    }
+
+    /**
+     * A signed access token
+     * */
+    @Benchmark
+    public Optional<User> token() {
+        return userService.authenticateToken(token);
+    }
+}
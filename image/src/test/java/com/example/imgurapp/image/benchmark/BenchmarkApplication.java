@@ -0,0 +1,36 @@
+package com.example.imgurapp.image.benchmark;
+
+import com.example.imgurapp.image.ImageApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Starts the application for the benchmarks that go through Spring, on a random port, with an
+ * in-memory database of its own and only warnings logged. Properties are passed as command line
+ * arguments so that they override application.properties.
+ * */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    /**
+     * @param properties Properties as <code>name=value</code>, replacing the defaults of the same name
+     * */
+    static ConfigurableApplicationContext start(String... properties) {
+        Map<String, String> args = new LinkedHashMap<>();
+        args.put("server.port", "0");
+        args.put("spring.datasource.url", "jdbc:h2:mem:benchmark-" + System.nanoTime() + ";DB_CLOSE_ON_EXIT=FALSE");
+        args.put("logging.level.root", "WARN");
+        for (String property : properties) {
+            int separator = property.indexOf('=');
+            args.put(property.substring(0, separator), property.substring(separator + 1));
+        }
+        return new SpringApplicationBuilder(ImageApplication.class).run(args.entrySet().stream()
+                .map(arg -> "--" + arg.getKey() + "=" + arg.getValue())
+                .toArray(String[]::new));
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.imgurapp.image.benchmark;
+
+import com.example.imgurapp.image.dto.ImagePage;
+import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.repository.ImageRepository;
+import com.example.imgurapp.image.repository.UserRepository;
+import com.example.imgurapp.image.service.ImageService;
+import com.example.imgurapp.image.service.ImgurStorageBackend;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures listing and lookups on the prod profile, with the schema created by the Flyway
+ * migrations and a table of one million images spread over {@value #USERS} users. Every query
+ * should be answered from an index, so the latency stays that of a small table.
+ *
+ * <pre>mvn -Pbenchmark test-compile exec:exec -Djmh.args=ImageListingBenchmark</pre>
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ImageListingBenchmark {
+
+    private static final int USERS = 100;
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"1000000"})
+    private int imageCount;
+
+    private ConfigurableApplicationContext context;
+
+    private ImageService imageService;
+
+    private ImageRepository imageRepository;
+
+    private UserRepository userRepository;
+
+    private User user;
+
+    private Long lastPageCursor;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start(
+                "spring.profiles.active=prod",
+                "spring.datasource.hikari.leak-detection-threshold=0",
+                "spring.datasource.url=jdbc:h2:mem:listing-" + System.nanoTime()
+                        + ";MODE=PostgreSQL;QUERY_CACHE_SIZE=64;DB_CLOSE_ON_EXIT=FALSE");
+        imageService = context.getBean(ImageService.class);
+        imageRepository = context.getBean(ImageRepository.class);
+        userRepository = context.getBean(UserRepository.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO APP_USER (USER_ID, NAME, USER_NAME, EMAIL, PASSWORD) "
+                + "SELECT X, 'Benchmark ' || X, 'benchmark' || X, 'benchmark' || X || '@example.com', 'unused' "
+                + "FROM SYSTEM_RANGE(1, ?)", USERS);
+        jdbcTemplate.update("INSERT INTO IMAGE (ID, IMAGE_URL, IMAGE_ID, USER_ID) "
+                + "SELECT X, 'https://i.imgur.com/bench' || X || '.png', 'bench' || X, MOD(X, ?) + 1 "
+                + "FROM SYSTEM_RANGE(1, ?)", USERS, imageCount);
+        jdbcTemplate.execute("ALTER SEQUENCE IMAGE_SEQ RESTART WITH " + (imageCount + 1));
+        jdbcTemplate.execute("ANALYZE");
+
+        user = userRepository.findByUserName("benchmark1").orElseThrow();
+        lastPageCursor = jdbcTemplate.queryForObject(
+                "SELECT ID FROM IMAGE WHERE USER_ID = ? ORDER BY ID DESC OFFSET ? ROWS FETCH NEXT 1 ROWS ONLY",
+                Long.class, user.getUserId(), PAGE_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ImagePage listFirstPage() {
+        return imageService.getImagesByUser(user, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ImagePage listLastPage() {
+        return imageService.getImagesByUser(user, lastPageCursor, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Optional<User> findUserByUserName() {
+        return userRepository.findByUserName("benchmark42");
+    }
+
+    @Benchmark
+    public boolean imageIdReferenced() {
+        return imageRepository.existsByBackendAndImageId(ImgurStorageBackend.NAME, "bench500000");
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.imgurapp.image.benchmark;
+
+import com.example.imgurapp.image.dto.ImagePage;
+import com.example.imgurapp.image.entity.Image;
+import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.repository.ImageRepository;
+import com.example.imgurapp.image.service.ImageService;
+import com.example.imgurapp.image.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures saving and listing images against H2, for users with libraries of different sizes.
+ * Listing is keyset-paginated, so the first and the last page should cost the same.
+ *
+ * <pre>mvn -Pbenchmark test-compile exec:exec -Djmh.args=ImagePersistenceBenchmark</pre>
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImagePersistenceBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"100", "10000", "100000"})
+    private int librarySize;
+
+    private ConfigurableApplicationContext context;
+
+    private ImageRepository imageRepository;
+
+    private ImageService imageService;
+
+    private User user;
+
+    private Long lastPageCursor;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        imageRepository = context.getBean(ImageRepository.class);
+        imageService = context.getBean(ImageService.class);
+        user = context.getBean(UserService.class)
+                .registerUser("Benchmark", "benchmark", "benchmark@example.com", "password123");
+
+        List<Image> images = new ArrayList<>();
+        for (int i = 0; i < librarySize; i++) {
+            images.add(newImage());
+            if (images.size() == 1000) {
+                imageRepository.saveAll(images);
+                images.clear();
+            }
+        }
+        imageRepository.saveAll(images);
+
+        List<Image> library = imageRepository.findAll(Sort.by("id"));
+        lastPageCursor = library.get(Math.max(0, library.size() - PAGE_SIZE - 1)).getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Image save() {
+        return imageRepository.save(newImage());
+    }
+
+    @Benchmark
+    public ImagePage listFirstPage() {
+        return imageService.getImagesByUser(user, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ImagePage listLastPage() {
+        return imageService.getImagesByUser(user, lastPageCursor, PAGE_SIZE);
+    }
+
+    private Image newImage() {
+        long n = sequence.incrementAndGet();
+        Image image = new Image();
+        image.setUrl("https://i.imgur.com/bench" + n + ".png");
+        image.setImageId("bench" + n);
+        image.setUser(user);
+        return image;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.imgurapp.image.benchmark;
+
+import com.example.imgurapp.image.config.ImgurBatchProperties;
+import com.example.imgurapp.image.dto.ImgurImage;
+import com.example.imgurapp.image.dto.ImgurResponse;
+import com.example.imgurapp.image.service.ImgurAPIService;
+import com.example.imgurapp.image.service.ImgurRateLimitTracker;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading an Imgur image response, as returned by the image endpoint with all of its
+ * fields. <code>mapBinding</code> is what the RestTemplate message converter did when responses
+ * were read into a <code>Map</code>; <code>typedBinding</code> binds the same bytes to the typed
+ * records, skipping the fields they do not declare; <code>getImageDetails</code> is the whole
+ * service call against a canned response. Run with the GC profiler to compare the bytes
+ * allocated per response.
+ *
+ * <pre>mvn -Pbenchmark test-compile exec:exec -Djmh.args="ImgurResponseParsingBenchmark -prof gc"</pre>
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImgurResponseParsingBenchmark {
+
+    private static final byte[] IMGUR_RESPONSE = """
+            {"data":{"id":"abc123","title":"Sunset over the bay","description":"Taken from the pier at dusk",
+            "datetime":1700000000,"type":"image/png","animated":false,"width":1920,"height":1080,"size":2483019,
+            "views":12873,"bandwidth":31963962587,"vote":null,"favorite":false,"nsfw":false,"section":null,
+            "account_url":null,"account_id":0,"is_ad":false,"in_most_viral":false,"has_sound":false,"tags":[],
+            "ad_type":0,"ad_url":"","edited":"0","in_gallery":false,"deletehash":"x70po4w7BVvSUzZ",
+            "name":"sunset.png","link":"https://i.imgur.com/abc123.png",
+            "ad_config":{"safeFlags":["in_gallery","sixth_mod_safe"],"highRiskFlags":[],"unsafeFlags":[],
+            "wallUnsafeFlags":[],"showsAds":false,"showAdLevel":1,"safe_flags":["in_gallery","sixth_mod_safe"],
+            "high_risk_flags":[],"unsafe_flags":[],"wall_unsafe_flags":[],"show_ads":false,"show_ad_level":1,
+            "nsfw_score":0}},"success":true,"status":200}"""
+            .getBytes(StandardCharsets.UTF_8);
+
+    private MappingJackson2HttpMessageConverter mapConverter;
+
+    private ObjectReader typedReader;
+
+    private ImgurAPIService imgurAPIService;
+
+    @Setup
+    public void setUp() {
+        mapConverter = new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json().build());
+        typedReader = Jackson2ObjectMapperBuilder.json().build().readerFor(ImgurResponse.class);
+
+        imgurAPIService = new ImgurAPIService();
+        ReflectionTestUtils.setField(imgurAPIService, "restTemplate", new RestTemplate((uri, method) -> {
+            MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+            MockClientHttpResponse response = new MockClientHttpResponse(IMGUR_RESPONSE, HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            request.setResponse(response);
+            return request;
+        }));
+        ReflectionTestUtils.setField(imgurAPIService, "rateLimitTracker", new ImgurRateLimitTracker(new ImgurBatchProperties()));
+        ReflectionTestUtils.setField(imgurAPIService, "cacheManager", new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(imgurAPIService, "observationRegistry", ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(imgurAPIService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(imgurAPIService, "clientId", "benchmark-client");
+        ReflectionTestUtils.setField(imgurAPIService, "baseUrl", "http://imgur.invalid/3");
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public String mapBinding() throws IOException {
+        MockClientHttpResponse response = new MockClientHttpResponse(IMGUR_RESPONSE, HttpStatus.OK);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        Map<String, Object> body = (Map<String, Object>) mapConverter.read(Map.class, response);
+        Map<String, Object> data = (Map<String, Object>) body.get("data");
+        return (String) data.get("link");
+    }
+
+    @Benchmark
+    public String typedBinding() throws IOException {
+        MockClientHttpResponse response = new MockClientHttpResponse(IMGUR_RESPONSE, HttpStatus.OK);
+        ImgurResponse body = typedReader.readValue(response.getBody());
+        return body.data().link();
+    }
+
+    @Benchmark
+    public ImgurImage getImageDetails() {
+        return imgurAPIService.getImageDetails("abc123");
+    }
+}
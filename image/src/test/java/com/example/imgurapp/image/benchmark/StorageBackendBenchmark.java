@@ -0,0 +1,137 @@
+package com.example.imgurapp.image.benchmark;
+
+import com.example.imgurapp.image.dto.StoredImage;
+import com.example.imgurapp.image.service.ImageStorageBackend;
+import com.example.imgurapp.image.service.ImageStorageBackends;
+import com.example.imgurapp.image.service.ImgurStub;
+import com.example.imgurapp.image.service.S3StandIn;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.FileSystemUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the image storage backends through the same interface: storing an image and deleting
+ * it again, and reading the metadata of a stored image. Imgur and S3 are replaced by local stubs
+ * that answer immediately, so the remote backends show their client-side cost only; the latency of
+ * the real services comes on top.
+ *
+ * <pre>mvn -Pbenchmark test-compile exec:exec -Djmh.args=StorageBackendBenchmark</pre>
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class StorageBackendBenchmark {
+
+    private static final byte[] IMGUR_IMAGE = """
+            {"data":{"id":"abc123","link":"https://i.imgur.com/abc123.png","type":"image/png",\
+            "width":1024,"height":768,"size":102400},"success":true,"status":200}"""
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Param({"imgur", "local", "s3"})
+    private String backendName;
+
+    @Param({"102400", "1048576"})
+    private int fileSize;
+
+    private ImgurStub imgurStub;
+
+    private S3StandIn s3StandIn;
+
+    private Path directory;
+
+    private ConfigurableApplicationContext context;
+
+    private ImageStorageBackend backend;
+
+    private MockMultipartFile file;
+
+    private String storedId;
+
+    @Setup
+    public void setUp() throws IOException {
+        imgurStub = new ImgurStub(exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            ImgurStub.respond(exchange, 200, IMGUR_IMAGE);
+        });
+        s3StandIn = new S3StandIn();
+        directory = Files.createTempDirectory("storage-benchmark");
+
+        context = BenchmarkApplication.start(
+                "imgur.api.base-url=" + imgurStub.getBaseUrl(),
+                "app.storage.local.enabled=true",
+                "app.storage.local.directory=" + directory,
+                "app.storage.s3.enabled=true",
+                "app.storage.s3.endpoint=" + s3StandIn.getEndpoint(),
+                "app.storage.s3.bucket=benchmark",
+                "app.storage.s3.path-style-access=true",
+                "app.storage.s3.access-key=benchmark",
+                "app.storage.s3.secret-key=benchmark");
+        backend = context.getBean(ImageStorageBackends.class).get(backendName);
+        file = new MockMultipartFile("file", "image.png", "image/png", image(fileSize));
+        storedId = backend.upload(file).id();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        imgurStub.close();
+        s3StandIn.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    /**
+     * Stores the image and deletes it again, so the store does not grow during the run
+     * */
+    @Benchmark
+    public StoredImage uploadAndDelete() {
+        StoredImage stored = backend.upload(file);
+        backend.delete(stored.id());
+        return stored;
+    }
+
+    /**
+     * Reads the metadata of an image stored before the run, as the reconciler does
+     * */
+    @Benchmark
+    public StoredImage find() {
+        return backend.find(storedId).orElseThrow();
+    }
+
+    /**
+     * A PNG of noise padded to the given size, so the backends that read dimensions find a real header
+     * */
+    private static byte[] image(int size) throws IOException {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        ImageIO.write(image, "png", out);
+        byte[] padding = new byte[Math.max(0, size - out.size())];
+        random.nextBytes(padding);
+        out.writeBytes(padding);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.imgurapp.image.benchmark;
+
+import com.example.imgurapp.image.config.ImgurBatchProperties;
+import com.example.imgurapp.image.dto.ImgurImage;
+import com.example.imgurapp.image.service.ImgurAPIService;
+import com.example.imgurapp.image.service.ImgurRateLimitTracker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of turning an upload into the Imgur request body, across file sizes, with the
+ * network replaced by a sink. Run with the GC profiler to compare the bytes allocated per upload.
+ *
+ * <pre>mvn -Pbenchmark test-compile exec:exec -Djmh.args="UploadEncodingBenchmark -prof gc"</pre>
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class UploadEncodingBenchmark {
+
+    private static final byte[] IMGUR_RESPONSE = """
+            {"data":{"id":"abc123","link":"https://i.imgur.com/abc123.png"},"success":true,"status":200}"""
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Param({"102400", "1048576", "10485760", "52428800"})
+    private int fileSize;
+
+    private MockMultipartFile file;
+
+    private ImgurAPIService imgurAPIService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Setup
+    public void setUp() {
+        byte[] content = new byte[fileSize];
+        new Random(42).nextBytes(content);
+        file = new MockMultipartFile("file", "image.png", "image/png", content);
+
+        imgurAPIService = new ImgurAPIService();
+        ReflectionTestUtils.setField(imgurAPIService, "restTemplate",
+                new RestTemplate((uri, method) -> new DiscardingRequest(method, uri)));
+        ReflectionTestUtils.setField(imgurAPIService, "rateLimitTracker", new ImgurRateLimitTracker(new ImgurBatchProperties()));
+        ReflectionTestUtils.setField(imgurAPIService, "observationRegistry", ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(imgurAPIService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(imgurAPIService, "clientId", "benchmark-client");
+        ReflectionTestUtils.setField(imgurAPIService, "baseUrl", "http://imgur.invalid/3");
+    }
+
+    /**
+     * The file streamed through a Base64 encoder into the request body
+     * */
+    @Benchmark
+    public ImgurImage streamingUpload() {
+        return imgurAPIService.uploadImage(file);
+    }
+
+    /**
+     * The previous behaviour: the file, its Base64 string and the serialized JSON body are all
+     * materialised before sending
+     * */
+    @Benchmark
+    public int bufferedUpload() throws IOException {
+        String encoded = Base64.getEncoder().encodeToString(file.getBytes());
+        byte[] body = objectMapper.writeValueAsBytes(Map.of("image", encoded));
+        OutputStream.nullOutputStream().write(body);
+        return body.length;
+    }
+
+    /**
+     * A request that writes its streamed body to a sink and answers like Imgur
+     * */
+    private static class DiscardingRequest extends MockClientHttpRequest implements StreamingHttpOutputMessage {
+
+        private Body body;
+
+        DiscardingRequest(HttpMethod method, URI uri) {
+            super(method, uri);
+        }
+
+        @Override
+        public void setBody(Body body) {
+            this.body = body;
+        }
+
+        @Override
+        protected ClientHttpResponse executeInternal() throws IOException {
+            if (body != null) {
+                body.writeTo(OutputStream.nullOutputStream());
+            }
+            MockClientHttpResponse response = new MockClientHttpResponse(IMGUR_RESPONSE, HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.imgurapp.image.benchmark;
+
+import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.service.ImgurStub;
+import com.example.imgurapp.image.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures upload throughput through the running application: multipart parsing, token
+ * authentication, hashing, the streamed Imgur request and the database insert. Imgur is replaced
+ * by a local stub that reads the request body and answers immediately.
+ *
+ * <pre>mvn -Pbenchmark test-compile exec:exec -Djmh.args=UploadEndToEndBenchmark</pre>
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class UploadEndToEndBenchmark {
+
+    private static final String BOUNDARY = "benchmark-boundary";
+
+    private static final byte[] IMGUR_RESPONSE = """
+            {"data":{"id":"abc123","link":"https://i.imgur.com/abc123.png"},"success":true,"status":200}"""
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Param({"102400", "1048576"})
+    private int fileSize;
+
+    private ImgurStub imgurStub;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient client;
+
+    private URI uploadUri;
+
+    private String token;
+
+    private byte[] content;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup
+    public void setUp() throws IOException {
+        imgurStub = new ImgurStub(exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            ImgurStub.respond(exchange, 200, IMGUR_RESPONSE);
+        });
+
+        context = BenchmarkApplication.start(
+                "imgur.api.base-url=" + imgurStub.getBaseUrl(),
+                "app.rate-limit.enabled=false");
+        UserService userService = context.getBean(UserService.class);
+        User user = userService.registerUser("Benchmark", "benchmark", "benchmark@example.com", "password123");
+        token = userService.issueToken(user);
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        uploadUri = URI.create("http://127.0.0.1:" + port + "/api/v1/images/upload");
+        client = HttpClient.newHttpClient();
+        content = new byte[fileSize];
+        new Random(42).nextBytes(content);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        imgurStub.close();
+    }
+
+    /**
+     * Every upload carries new content, so each one reaches Imgur
+     * */
+    @Benchmark
+    public int uniqueUpload() throws Exception {
+        return upload(sequence.incrementAndGet());
+    }
+
+    /**
+     * The same content every time, answered by deduplication without an Imgur call
+     * */
+    @Benchmark
+    public int duplicateUpload() throws Exception {
+        return upload(0);
+    }
+
+    private int upload(long marker) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uploadUri)
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(multipartBody(marker)))
+                .build();
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status != 201) {
+            throw new IllegalStateException("Upload failed with status " + status);
+        }
+        return status;
+    }
+
+    private byte[] multipartBody(long marker) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(content.length + 256);
+        body.writeBytes(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"image.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(ByteBuffer.allocate(Long.BYTES).putLong(marker).array());
+        body.write(content, Long.BYTES, content.length - Long.BYTES);
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return body.toByteArray();
+    }
+}
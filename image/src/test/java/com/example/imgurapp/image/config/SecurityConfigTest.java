@@ -0,0 +1,40 @@
+package com.example.imgurapp.image.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:security_test")
+@AutoConfigureMockMvc
+public class SecurityConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void testHealthIsOpen() throws Exception {
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+
+    @Test
+    public void testOtherActuatorEndpointsAreRefused() throws Exception {
+        mockMvc.perform(get("/actuator/metrics")).andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/circuitbreakers")).andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void testH2ConsoleIsRefused() throws Exception {
+        mockMvc.perform(get("/h2")).andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void testApiIsOpen() throws Exception {
+        mockMvc.perform(get("/api/v1/users/nobody")).andExpect(status().isNotFound());
+    }
+}
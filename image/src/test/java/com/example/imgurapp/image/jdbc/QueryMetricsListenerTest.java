@@ -0,0 +1,82 @@
+package com.example.imgurapp.image.jdbc;
+
+import com.example.imgurapp.image.entity.Image;
+import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.repository.ImageRepository;
+import com.example.imgurapp.image.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs repository calls through the statement monitoring proxy with a threshold of zero, so that
+ * every statement is logged as slow
+ * */
+@SpringBootTest(properties = {
+        "app.sql.slow-query-threshold=0ms",
+        "app.sql.log-parameters=true"
+})
+@ExtendWith(OutputCaptureExtension.class)
+public class QueryMetricsListenerTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testQueryIsLoggedWithRowCountParametersAndRepositoryMethod(CapturedOutput output) {
+        User user = userService.registerUser("Query User", "queryuser", "query@example.com", "password123");
+        List<Image> images = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Image image = new Image();
+            image.setUrl("https://i.imgur.com/query" + i + ".png");
+            image.setImageId("query" + i);
+            image.setUser(user);
+            images.add(image);
+        }
+        imageRepository.saveAll(images);
+
+        List<Image> page = imageRepository.findByUserUserIdAndIdGreaterThanOrderByIdAsc(user.getUserId(), 0L, Limit.of(10));
+
+        assertEquals(3, page.size());
+        String logLine = output.getOut().lines()
+                .filter(line -> line.contains("Slow query") && line.contains("ImageRepository.findByUserUserIdAndIdGreaterThanOrderByIdAsc"))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError(output.getOut()));
+        assertTrue(logLine.contains("3 rows"), logLine);
+        assertTrue(logLine.contains("[" + user.getUserId() + ", 0, 10]"), logLine);
+        assertTrue(output.getOut().lines().anyMatch(line ->
+                line.contains("Slow query") && line.contains("3 rows") && line.contains("ImageRepository.saveAll")
+                        && line.contains("insert")), output.getOut());
+
+        Timer timer = meterRegistry.get(QueryMetricsListener.QUERY_TIMER)
+                .tags("operation", "select", "repository.method", "ImageRepository.findByUserUserIdAndIdGreaterThanOrderByIdAsc")
+                .timer();
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    public void testEmptyResultIsTimedAgainstRepositoryMethod() {
+        assertTrue(userService.getUserByUserName("nobody").isEmpty());
+
+        assertTrue(meterRegistry.get(QueryMetricsListener.QUERY_TIMER)
+                .tags("operation", "select").timers().stream()
+                .anyMatch(timer -> timer.getId().getTag("repository.method").startsWith("UserRepository.")));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.imgurapp.image.repository;
+
+import com.example.imgurapp.image.entity.Image;
+import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.service.ImageBlobStore;
+import com.example.imgurapp.image.service.ImageDeduplicator;
+import com.example.imgurapp.image.service.ImageOptimizer;
+import com.example.imgurapp.image.service.ImageService;
+import com.example.imgurapp.image.service.ImageStorageBackends;
+import com.example.imgurapp.image.service.ImgurAPIService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(ImageService.class)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class ImageRepositoryTest {
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private ImageDeletionRepository imageDeletionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private ImgurAPIService imgurAPIService;
+
+    @MockBean
+    private ImageBlobStore imageBlobStore;
+
+    @MockBean
+    private ImageDeduplicator imageDeduplicator;
+
+    @MockBean
+    private ImageOptimizer imageOptimizer;
+
+    @MockBean
+    private ImageStorageBackends storageBackends;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 50, 1000})
+    public void testDeleteImageQueryCountIsIndependentOfLibrarySize(int librarySize) {
+        User user = persistUserWithImages("owner" + librarySize, librarySize);
+        Long imageId = lastImageId(user);
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertTrue(imageService.deleteImage(user, imageId));
+        entityManager.flush();
+
+        //Outbox insert reading the owned row, and delete
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+        assertFalse(imageRepository.existsById(imageId));
+    }
+
+    @Test
+    public void testImageOfAnotherUserIsNotFound() {
+        User owner = persistUserWithImages("owner", 1);
+        User other = persistUserWithImages("other", 0);
+        entityManager.flush();
+        entityManager.clear();
+
+        Optional<Image> imageOpt = imageService.getImageForUser(other, lastImageId(owner));
+
+        assertFalse(imageOpt.isPresent());
+        assertFalse(imageService.deleteImage(other, lastImageId(owner)));
+        assertTrue(imageRepository.existsById(lastImageId(owner)));
+        assertEquals(0, imageDeletionRepository.count());
+    }
+
+    private User persistUserWithImages(String userName, int imageCount) {
+        User user = new User();
+        user.setName(userName);
+        user.setUserName(userName);
+        user.setEmail(userName + "@example.com");
+        user.setPassword("encodedPassword");
+        entityManager.persist(user);
+
+        for (int i = 0; i < imageCount; i++) {
+            Image image = new Image();
+            image.setUrl("https://i.imgur.com/" + userName + i + ".png");
+            image.setImageId(userName + i);
+            image.setUser(user);
+            entityManager.persist(image);
+            user.getImages().add(image);
+        }
+        return user;
+    }
+
+    private static Long lastImageId(User user) {
+        return user.getImages().get(user.getImages().size() - 1).getId();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.imgurapp.image.repository;
+
+import com.example.imgurapp.image.dto.UserProfile;
+import com.example.imgurapp.image.entity.Image;
+import com.example.imgurapp.image.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class UserRepositoryTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void testProfileIsReadWithoutLoadingTheUserOrItsImages() {
+        User user = new User();
+        user.setName("John Doe");
+        user.setUserName("john123");
+        user.setEmail("john@example.com");
+        user.setPassword("encodedPassword");
+        entityManager.persist(user);
+        for (int i = 0; i < 3; i++) {
+            Image image = new Image();
+            image.setUrl("https://i.imgur.com/john" + i + ".png");
+            image.setImageId("john" + i);
+            image.setUser(user);
+            entityManager.persist(image);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Optional<UserProfile> profile = userRepository.findProfileByUserName("john123");
+
+        assertEquals(Optional.of(new UserProfile(user.getUserId(), "John Doe", "john123", "john@example.com")), profile);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+        assertTrue(userRepository.findProfileByUserName("nobody").isEmpty());
+    }
+}
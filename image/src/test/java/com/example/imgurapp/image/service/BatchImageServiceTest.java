@@ -0,0 +1,153 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.DedupProperties;
+import com.example.imgurapp.image.config.ImageOptimizationProperties;
+import com.example.imgurapp.image.config.ImageStoreProperties;
+import com.example.imgurapp.image.config.ImgurBatchProperties;
+import com.example.imgurapp.image.config.StorageProperties;
+import com.example.imgurapp.image.dto.BatchItemResult;
+import com.example.imgurapp.image.dto.ImgurImage;
+import com.example.imgurapp.image.entity.Image;
+import com.example.imgurapp.image.entity.ImageDeletion;
+import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.repository.ImageDeletionRepository;
+import com.example.imgurapp.image.repository.ImageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class BatchImageServiceTest {
+
+    private ImgurAPIService imgurAPIService;
+
+    private ImageRepository imageRepository;
+
+    private ImageDeletionRepository imageDeletionRepository;
+
+    private ImgurRateLimitTracker rateLimitTracker;
+
+    private ImageOptimizer imageOptimizer;
+
+    private BatchImageService batchImageService;
+
+    private User user;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        ImgurBatchProperties properties = new ImgurBatchProperties();
+        imgurAPIService = mock(ImgurAPIService.class);
+        imageRepository = mock(ImageRepository.class);
+        imageDeletionRepository = mock(ImageDeletionRepository.class);
+        rateLimitTracker = new ImgurRateLimitTracker(properties);
+        imageOptimizer = new ImageOptimizer(new ImageOptimizationProperties(), new SimpleMeterRegistry());
+        ImageStorageBackends storageBackends = new ImageStorageBackends(
+                List.of(new ImgurStorageBackend(imgurAPIService, rateLimitTracker)), new StorageProperties());
+        batchImageService = new BatchImageService(storageBackends, imageRepository, imageDeletionRepository,
+                new ImageBlobStore(new ImageStoreProperties()),
+                new ImageDeduplicator(imageRepository, new DedupProperties(), new SimpleMeterRegistry()),
+                imageOptimizer, properties);
+
+        user = new User();
+        user.setUserId(7L);
+        user.setUserName("john123");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        batchImageService.shutdown();
+        imageOptimizer.shutdown();
+    }
+
+    @Test
+    public void testUploadImagesReportsEachItemAndSavesSuccessesTogether() {
+        MultipartFile first = file("first.png");
+        MultipartFile second = file("second.png");
+        when(imgurAPIService.uploadImage(first)).thenReturn(new ImgurImage("abc123", "https://i.imgur.com/abc123.png", "image/png", 1, 1, 1024));
+        when(imgurAPIService.uploadImage(second)).thenThrow(new RuntimeException("Error during Imgur upload operation"));
+
+        List<BatchItemResult> results = batchImageService.uploadImages(user, List.of(first, second));
+
+        assertEquals(201, results.get(0).status());
+        assertEquals("abc123", results.get(0).image().getImageId());
+        assertEquals(502, results.get(1).status());
+        verify(imageRepository, times(1)).saveAll(argThat(images -> ((List<Image>) images).size() == 1));
+    }
+
+    @Test
+    public void testUploadImagesQueuesUploadedImagesForDeletionWhenTheInsertFails() {
+        MultipartFile first = file("first.png");
+        MultipartFile second = file("second.png");
+        when(imgurAPIService.uploadImage(first)).thenReturn(new ImgurImage("abc123", "https://i.imgur.com/abc123.png", "image/png", 1, 1, 1024));
+        when(imgurAPIService.uploadImage(second)).thenThrow(new RuntimeException("Error during Imgur upload operation"));
+        when(imageRepository.saveAll(anyList())).thenThrow(new DataAccessResourceFailureException("Database unavailable"));
+
+        List<BatchItemResult> results = batchImageService.uploadImages(user, List.of(first, second));
+
+        assertEquals(500, results.get(0).status());
+        assertEquals(502, results.get(1).status());
+        verify(imageDeletionRepository, times(1)).saveAll(argThat(deletions -> {
+            List<ImageDeletion> queued = (List<ImageDeletion>) deletions;
+            return queued.size() == 1 && queued.get(0).getImageId().equals("abc123")
+                    && queued.get(0).getBackend().equals(ImgurStorageBackend.NAME);
+        }));
+    }
+
+    @Test
+    public void testDeleteImagesReportsImagesOfOtherUsersAsNotFound() {
+        Image owned = image(1L, "abc123");
+        when(imageRepository.findByUserUserIdAndIdIn(eq(7L), anyList())).thenReturn(List.of(owned));
+
+        List<BatchItemResult> results = batchImageService.deleteImages(user, List.of(1L, 2L));
+
+        assertEquals(204, results.get(0).status());
+        assertEquals(404, results.get(1).status());
+        verify(imageDeletionRepository, times(1)).queueForImages(eq(Set.of(1L)), eq(7L), any());
+        verify(imageRepository, times(1)).deleteAllInBatch(List.of(owned));
+    }
+
+    @Test
+    public void testDeleteImagesLeavesTheBackendToTheOutbox() {
+        when(imageRepository.findByUserUserIdAndIdIn(eq(7L), anyList())).thenReturn(List.of(image(1L, "abc123")));
+
+        List<BatchItemResult> results = batchImageService.deleteImages(user, List.of(1L));
+
+        assertEquals(204, results.get(0).status());
+        verify(imgurAPIService, never()).deleteImage(any());
+    }
+
+    @Test
+    public void testDeleteImagesOfNoOwnedImageChangesNothing() {
+        when(imageRepository.findByUserUserIdAndIdIn(eq(7L), anyList())).thenReturn(List.of());
+
+        List<BatchItemResult> results = batchImageService.deleteImages(user, List.of(1L));
+
+        assertEquals(404, results.get(0).status());
+        verify(imageDeletionRepository, never()).queueForImages(any(), any(), any());
+        verify(imageRepository, never()).deleteAllInBatch(any());
+    }
+
+    private static MultipartFile file(String name) {
+        return new MockMultipartFile("files", name, "image/png", new byte[]{1, 2, 3});
+    }
+
+    private Image image(Long id, String imageId) {
+        Image image = new Image();
+        image.setId(id);
+        image.setImageId(imageId);
+        image.setUser(user);
+        return image;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.ImageStoreProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageBlobStoreTest {
+
+    @TempDir
+    private Path directory;
+
+    private ImageStoreProperties properties;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new ImageStoreProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory);
+        properties.setMaxSize(DataSize.ofBytes(2500));
+        properties.setThumbnailSizes(List.of(16));
+    }
+
+    @Test
+    public void testSameContentIsStoredOnce() throws Exception {
+        ImageBlobStore store = new ImageBlobStore(properties);
+
+        String first = store.put(new ByteArrayInputStream(content(1000, 1)));
+        String second = store.put(new ByteArrayInputStream(content(1000, 1)));
+
+        assertEquals(first, second);
+        assertEquals(64, first.length());
+        assertEquals(1000, store.getTotalBytes());
+        assertTrue(store.get(first).isPresent());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedContentIsEvicted() throws Exception {
+        ImageBlobStore store = new ImageBlobStore(properties);
+        String first = store.put(new ByteArrayInputStream(content(1000, 1)));
+        String second = store.put(new ByteArrayInputStream(content(1000, 2)));
+        store.get(first);
+
+        String third = store.put(new ByteArrayInputStream(content(1000, 3)));
+
+        assertTrue(store.get(first).isPresent());
+        assertTrue(store.get(second).isEmpty());
+        assertTrue(store.get(third).isPresent());
+        assertFalse(Files.exists(directory.resolve(second)));
+        assertEquals(2000, store.getTotalBytes());
+    }
+
+    @Test
+    public void testThumbnailIsGeneratedAndKept() throws Exception {
+        ImageBlobStore store = new ImageBlobStore(properties);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(64, 32, BufferedImage.TYPE_INT_RGB), "png", png);
+        String hash = store.put(new ByteArrayInputStream(png.toByteArray()));
+
+        Path thumbnail = store.getThumbnail(hash, 16).orElseThrow();
+
+        BufferedImage scaled = ImageIO.read(thumbnail.toFile());
+        assertEquals(16, scaled.getWidth());
+        assertEquals(8, scaled.getHeight());
+        assertEquals(thumbnail, store.getThumbnail(hash, 16).orElseThrow());
+    }
+
+    @Test
+    public void testOriginalWithTooManyPixelsGetsNoThumbnail() throws Exception {
+        properties.setMaxThumbnailSourcePixels(64 * 32 - 1);
+        ImageBlobStore store = new ImageBlobStore(properties);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(64, 32, BufferedImage.TYPE_INT_RGB), "png", png);
+        String hash = store.put(new ByteArrayInputStream(png.toByteArray()));
+
+        assertTrue(store.getThumbnail(hash, 16).isEmpty());
+    }
+
+    @Test
+    public void testThumbnailOfUndecodableContentIsEmpty() throws Exception {
+        ImageBlobStore store = new ImageBlobStore(properties);
+        String hash = store.put(new ByteArrayInputStream(content(100, 1)));
+
+        assertTrue(store.getThumbnail(hash, 16).isEmpty());
+    }
+
+    @Test
+    public void testStoredContentSurvivesRestart() throws Exception {
+        String hash = new ImageBlobStore(properties).put(new ByteArrayInputStream(content(1000, 1)));
+
+        ImageBlobStore restarted = new ImageBlobStore(properties);
+
+        assertTrue(restarted.get(hash).isPresent());
+        assertEquals(1000, restarted.getTotalBytes());
+    }
+
+    private static byte[] content(int size, int seed) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i * seed + seed);
+        }
+        return content;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.ImageStoreProperties;
+import com.example.imgurapp.image.config.StorageProperties;
+import com.example.imgurapp.image.dto.ImageContent;
+import com.example.imgurapp.image.dto.StoredImage;
+import com.example.imgurapp.image.entity.Image;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ImageContentServiceTest {
+
+    private static final String LINK = "https://i.imgur.com/abc123.png";
+
+    private static final byte[] CONTENT = {1, 2, 3};
+
+    @TempDir
+    private Path directory;
+
+    private ImageBlobStore imageBlobStore;
+
+    private ImageStorageBackend imgur;
+
+    private LocalStorageBackend local;
+
+    private ImageContentService imageContentService;
+
+    private Image image;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        ImageStoreProperties properties = new ImageStoreProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(Files.createDirectory(directory.resolve("store")));
+        imageBlobStore = spy(new ImageBlobStore(properties));
+
+        imgur = mock(ImageStorageBackend.class);
+        when(imgur.read(eq("abc123"), any())).thenAnswer(invocation ->
+                Optional.of(invocation.<ImageStorageBackend.ContentReader<?>>getArgument(1)
+                        .read(new ByteArrayInputStream(CONTENT))));
+        StorageProperties storageProperties = new StorageProperties();
+        storageProperties.getLocal().setEnabled(true);
+        storageProperties.getLocal().setDirectory(directory.resolve("local"));
+        local = new LocalStorageBackend(storageProperties);
+        ImageStorageBackends storageBackends = mock(ImageStorageBackends.class);
+        when(storageBackends.get(ImgurStorageBackend.NAME)).thenReturn(imgur);
+        when(storageBackends.get(LocalStorageBackend.NAME)).thenReturn(local);
+        imageContentService = new ImageContentService(imageBlobStore, storageBackends);
+
+        image = new Image();
+        image.setId(1L);
+        image.setBackend(ImgurStorageBackend.NAME);
+        image.setImageId("abc123");
+        image.setUrl(LINK);
+    }
+
+    @Test
+    public void testMissingContentIsFetchedAndServedFromTheStore() throws Exception {
+        ImageContent content = imageContentService.getContent(image, null).orElseThrow();
+
+        assertNull(content.location());
+        assertArrayEquals(CONTENT, content.resource().getContentAsByteArray());
+        assertEquals(MediaType.IMAGE_PNG, content.mediaType());
+
+        imageContentService.getContent(image, null).orElseThrow();
+        verify(imgur, times(1)).read(eq("abc123"), any());
+    }
+
+    @Test
+    public void testFetchedContentDoesNotReplaceTheHashOfTheUpload() throws Exception {
+        //The upload was optimized, so the backend keeps other bytes than were hashed
+        String uploadHash = "0".repeat(64);
+        image.setContentHash(uploadHash);
+
+        ImageContent content = imageContentService.getContent(image, null).orElseThrow();
+
+        assertArrayEquals(CONTENT, content.resource().getContentAsByteArray());
+        assertEquals(uploadHash, image.getContentHash());
+        assertTrue(imageBlobStore.get(uploadHash).isEmpty());
+        imageContentService.getContent(image, null).orElseThrow();
+        verify(imgur, times(1)).read(eq("abc123"), any());
+    }
+
+    @Test
+    public void testContentOfALocalImageIsReadFromItsDirectory() throws Exception {
+        StoredImage stored = local.upload(new MockMultipartFile("file", "image.png", "image/png", CONTENT));
+        Image localImage = new Image();
+        localImage.setId(2L);
+        localImage.setBackend(LocalStorageBackend.NAME);
+        localImage.setImageId(stored.id());
+        localImage.setUrl(stored.link());
+
+        ImageContent content = imageContentService.getContent(localImage, null).orElseThrow();
+
+        assertNull(content.location());
+        assertArrayEquals(CONTENT, content.resource().getContentAsByteArray());
+        assertEquals(MediaType.IMAGE_PNG, content.mediaType());
+        verify(imgur, never()).read(anyString(), any());
+    }
+
+    @Test
+    public void testImageGoneFromItsBackendIsNotFound() {
+        image.setImageId("gone123");
+        when(imgur.read(eq("gone123"), any())).thenReturn(Optional.empty());
+
+        assertTrue(imageContentService.getContent(image, null).isEmpty());
+    }
+
+    @Test
+    public void testContentEvictedRightAfterTheFetchIsRedirectedTo() {
+        doReturn(Optional.empty()).when(imageBlobStore).get(anyString());
+
+        ImageContent content = imageContentService.getContent(image, null).orElseThrow();
+
+        assertEquals(LINK, content.location());
+        assertNull(content.resource());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.DedupProperties;
+import com.example.imgurapp.image.entity.Image;
+import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.repository.ImageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ImageDeduplicatorTest {
+
+    private ImageRepository imageRepository;
+
+    private DedupProperties properties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ImageDeduplicator imageDeduplicator;
+
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        imageRepository = mock(ImageRepository.class);
+        properties = new DedupProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        imageDeduplicator = new ImageDeduplicator(imageRepository, properties, meterRegistry);
+
+        user = new User();
+        user.setUserId(7L);
+        user.setUserName("john123");
+    }
+
+    @Test
+    public void testUserScopeReturnsOwnImageAndCountsSavings() {
+        Image own = image(1L, user);
+        when(imageRepository.findFirstByContentHashAndUserUserId("hash", 7L)).thenReturn(Optional.of(own));
+
+        Optional<Image> duplicate = imageDeduplicator.findDuplicate(user, "hash", 2048);
+
+        assertSame(own, duplicate.orElseThrow());
+        assertEquals(1.0, meterRegistry.counter("imgur.upload.deduplicated").count());
+        assertEquals(2048.0, meterRegistry.counter("imgur.upload.deduplicated.bytes").count());
+    }
+
+    @Test
+    public void testUserScopeIgnoresImagesOfOtherUsers() {
+        when(imageRepository.findFirstByContentHashAndUserUserId("hash", 7L)).thenReturn(Optional.empty());
+
+        assertTrue(imageDeduplicator.findDuplicate(user, "hash", 2048).isEmpty());
+        verify(imageRepository, never()).findFirstByContentHash("hash");
+    }
+
+    @Test
+    public void testGlobalScopeLinksImageOfAnotherUser() {
+        properties.setScope(DedupProperties.Scope.GLOBAL);
+        User other = new User();
+        other.setUserId(8L);
+        when(imageRepository.findFirstByContentHashAndUserUserId("hash", 7L)).thenReturn(Optional.empty());
+        when(imageRepository.findFirstByContentHash("hash")).thenReturn(Optional.of(image(1L, other)));
+
+        Image linked = imageDeduplicator.findDuplicate(user, "hash", 2048).orElseThrow();
+
+        assertNull(linked.getId());
+        assertSame(user, linked.getUser());
+        assertEquals("abc123", linked.getImageId());
+        assertEquals("hash", linked.getContentHash());
+    }
+
+    @Test
+    public void testDisabledOrUnhashedUploadIsNotLookedUp() {
+        assertTrue(imageDeduplicator.findDuplicate(user, null, 2048).isEmpty());
+        properties.setEnabled(false);
+        assertTrue(imageDeduplicator.findDuplicate(user, "hash", 2048).isEmpty());
+        verifyNoInteractions(imageRepository);
+    }
+
+    private static Image image(Long id, User owner) {
+        Image image = new Image();
+        image.setId(id);
+        image.setImageId("abc123");
+        image.setUrl("https://i.imgur.com/abc123.png");
+        image.setContentHash("hash");
+        image.setUser(owner);
+        return image;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.CacheConfig;
+import com.example.imgurapp.image.dto.BatchItemResult;
+import com.example.imgurapp.image.dto.ImgurImage;
+import com.example.imgurapp.image.entity.Image;
+import com.example.imgurapp.image.entity.ImageDeletion;
+import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.repository.ImageDeletionRepository;
+import com.example.imgurapp.image.repository.ImageRepository;
+import com.sun.net.httpserver.HttpExchange;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drains the image deletion outbox against a local stub of the Imgur API
+ * */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox_test",
+        "app.outbox.interval=PT1H",
+        "resilience4j.retry.configs.default.wait-duration=10ms"
+})
+public class ImageDeletionDispatcherTest {
+
+    private static final Set<String> deleted = ConcurrentHashMap.newKeySet();
+
+    private static final Map<String, Integer> statuses = new ConcurrentHashMap<>();
+
+    @RegisterExtension
+    static final ImgurStub imgurStub = new ImgurStub(ImageDeletionDispatcherTest::handle);
+
+    @Autowired
+    private ImageDeletionDispatcher dispatcher;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private BatchImageService batchImageService;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private ImageDeletionRepository deletionRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private User user;
+
+    @DynamicPropertySource
+    static void imgurStub(DynamicPropertyRegistry registry) {
+        imgurStub.register(registry);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        deleted.clear();
+        statuses.clear();
+        imageRepository.deleteAll();
+        deletionRepository.deleteAll();
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(circuitBreaker -> circuitBreaker.reset());
+        user = userService.getUserByUserName("outbox")
+                .orElseGet(() -> userService.registerUser("Outbox", "outbox", "outbox@example.com", "password123"));
+    }
+
+    @Test
+    public void testDeletedRowIsDeletedFromImgurByTheDispatcher() {
+        Image image = save("queued1");
+        Cache imageDetails = cacheManager.getCache(CacheConfig.IMAGE_DETAILS_CACHE);
+        imageDetails.put("queued1", new ImgurImage("queued1", image.getUrl(), "image/png", 1, 1, 1024));
+
+        assertTrue(imageService.deleteImage(user, image.getId()));
+
+        assertFalse(imageRepository.existsById(image.getId()));
+        assertTrue(deleted.isEmpty());
+        assertEquals(1, deletionRepository.count());
+
+        dispatcher.dispatch();
+
+        assertEquals(Set.of("queued1"), deleted);
+        assertEquals(0, deletionRepository.count());
+        assertNull(imageDetails.get("queued1"));
+        assertEquals(1, meterRegistry.get("image.outbox.latency").timer().count());
+        assertEquals(0, meterRegistry.get("image.outbox.depth").gauge().value());
+    }
+
+    @Test
+    public void testBatchDeletedRowsAreDeletedFromImgurByTheDispatcher() {
+        Image first = save("batch1");
+        Image second = save("batch2");
+
+        List<BatchItemResult> results = batchImageService.deleteImages(user, List.of(first.getId(), second.getId(), -1L));
+
+        assertEquals(List.of(204, 204, 404), results.stream().map(BatchItemResult::status).toList());
+        assertEquals(0, imageRepository.count());
+        assertTrue(deleted.isEmpty());
+        assertEquals(2, deletionRepository.count());
+
+        dispatcher.dispatch();
+
+        assertEquals(Set.of("batch1", "batch2"), deleted);
+        assertEquals(0, deletionRepository.count());
+    }
+
+    @Test
+    public void testRowOfAnotherBackendWithTheSameIdDoesNotKeepTheImage() {
+        queue("same1");
+        Image local = save("same1");
+        local.setBackend(LocalStorageBackend.NAME);
+        imageRepository.save(local);
+
+        dispatcher.dispatch();
+
+        assertEquals(Set.of("same1"), deleted);
+        assertEquals(0, deletionRepository.count());
+    }
+
+    @Test
+    public void testFailedDeletionsAreRetriedLaterOrGivenUpOn() {
+        statuses.put("down1", 503);
+        statuses.put("refused1", 403);
+        statuses.put("gone1", 404);
+        ImageDeletion down = queue("down1");
+        ImageDeletion refused = queue("refused1");
+        queue("gone1");
+        queue("relinked1");
+        save("relinked1");
+
+        Instant before = Instant.now();
+        dispatcher.dispatch();
+
+        ImageDeletion retried = deletionRepository.findById(down.getId()).orElseThrow();
+        assertEquals(1, retried.getAttempts());
+        assertTrue(retried.getNextAttemptAt().isAfter(before));
+        assertNotNull(retried.getLastError());
+
+        ImageDeletion abandoned = deletionRepository.findById(refused.getId()).orElseThrow();
+        assertNull(abandoned.getNextAttemptAt());
+
+        assertEquals(2, deletionRepository.count());
+        assertTrue(deleted.isEmpty());
+        assertEquals(1, meterRegistry.get("image.outbox.depth").gauge().value());
+        assertEquals(1, meterRegistry.get("image.outbox.abandoned").gauge().value());
+    }
+
+    private Image save(String imageId) {
+        Image image = new Image();
+        image.setImageId(imageId);
+        image.setUrl("https://i.imgur.com/" + imageId + ".png");
+        image.setUser(user);
+        return imageRepository.save(image);
+    }
+
+    private ImageDeletion queue(String imageId) {
+        return deletionRepository.save(new ImageDeletion(ImgurStorageBackend.NAME, imageId, Instant.now().minusSeconds(1)));
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        String imageId = ImgurStub.imageId(exchange);
+        int status = statuses.getOrDefault(imageId, 200);
+        if (status == 200 && exchange.getRequestMethod().equals("DELETE")) {
+            deleted.add(imageId);
+        }
+        ImgurStub.respond(exchange, status,
+                "{\"data\":" + (status == 200) + ",\"success\":" + (status == 200) + ",\"status\":" + status + "}");
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.CacheConfig;
+import com.example.imgurapp.image.dto.StoredImage;
+import com.example.imgurapp.image.entity.Image;
+import com.example.imgurapp.image.repository.ImageDeletionRepository;
+import com.example.imgurapp.image.repository.ImageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig({CacheConfig.class, ImageService.class})
+public class ImageDetailsCacheTest {
+
+    @Autowired
+    private ImageService imageService;
+
+    @MockBean
+    private ImageBlobStore imageBlobStore;
+
+    @MockBean
+    private ImageDeduplicator imageDeduplicator;
+
+    @MockBean
+    private ImageOptimizer imageOptimizer;
+
+    @MockBean
+    private ImageStorageBackends storageBackends;
+
+    @MockBean
+    private ImageRepository imageRepository;
+
+    @MockBean
+    private ImageDeletionRepository imageDeletionRepository;
+
+    @Test
+    public void testConcurrentMissesMakeOneUpstreamCall() throws Exception {
+        Image image = new Image();
+        image.setBackend(ImgurStorageBackend.NAME);
+        image.setImageId("hot123");
+        when(imageRepository.findFirstByImageId("hot123")).thenReturn(Optional.of(image));
+        ImageStorageBackend backend = mock(ImageStorageBackend.class);
+        when(storageBackends.get(ImgurStorageBackend.NAME)).thenReturn(backend);
+        CountDownLatch release = new CountDownLatch(1);
+        when(backend.describe("hot123")).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(new StoredImage("hot123", "https://i.imgur.com/hot123.png", "image/png", 1, 1, 1024));
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Optional<StoredImage>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> imageService.getImageDetails("hot123")));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<Optional<StoredImage>> result : results) {
+                assertEquals("hot123", result.get(5, TimeUnit.SECONDS).orElseThrow().id());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(backend, times(1)).describe("hot123");
+    }
+}
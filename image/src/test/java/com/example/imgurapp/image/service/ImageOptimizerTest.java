@@ -0,0 +1,233 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.ImageOptimizationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageOptimizerTest {
+
+    @TempDir
+    private Path spoolDirectory;
+
+    private final ImageOptimizationProperties properties = new ImageOptimizationProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ImageOptimizer imageOptimizer;
+
+    @BeforeEach
+    public void setUp() {
+        properties.setEnabled(true);
+        properties.setMaxDimension(400);
+        properties.setMinSize(DataSize.ofBytes(0));
+        properties.setSpoolDirectory(spoolDirectory);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (imageOptimizer != null) {
+            imageOptimizer.shutdown();
+        }
+    }
+
+    @Test
+    public void testLargeJpegIsScaledDownAndLosesItsMetadata() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "photo.JPG", "image/jpeg",
+                withOrientation(encode(photo(1600, 1200), "jpeg"), 1));
+
+        MultipartFile optimized = optimizer().optimize(file);
+
+        assertNotSame(file, optimized);
+        assertEquals("photo.jpg", optimized.getOriginalFilename());
+        assertEquals("image/jpeg", optimized.getContentType());
+        assertTrue(optimized.getSize() < file.getSize());
+        BufferedImage image = read(optimized);
+        assertEquals(400, image.getWidth());
+        assertEquals(300, image.getHeight());
+        assertFalse(containsExif(optimized.getBytes()));
+        assertEquals(file.getSize() - optimized.getSize(),
+                meterRegistry.get("image.optimize.saved.bytes").counter().count());
+    }
+
+    @Test
+    public void testExifOrientationIsAppliedToThePixels() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "photo.jpg", "image/jpeg",
+                withOrientation(encode(photo(1600, 1200), "jpeg"), 6));
+
+        BufferedImage image = read(optimizer().optimize(file));
+
+        assertEquals(300, image.getWidth());
+        assertEquals(400, image.getHeight());
+    }
+
+    @Test
+    public void testPngIsConvertedWhenAFormatIsSet() throws Exception {
+        properties.setFormat("jpeg");
+        MockMultipartFile file = new MockMultipartFile("file", "screenshot.png", "image/png",
+                encode(photo(1200, 900), "png"));
+
+        MultipartFile optimized = optimizer().optimize(file);
+
+        assertEquals("screenshot.jpg", optimized.getOriginalFilename());
+        assertEquals("image/jpeg", optimized.getContentType());
+        assertEquals(400, read(optimized).getWidth());
+    }
+
+    @Test
+    public void testUploadsThatCannotBeOptimizedAreSentAsTheyAre() throws Exception {
+        ImageOptimizer optimizer = optimizer();
+        MockMultipartFile text = new MockMultipartFile("file", "notes.txt", "text/plain", new byte[4096]);
+        //A tiny PNG only gets larger as a JPEG
+        properties.setFormat("jpeg");
+        MockMultipartFile tiny = new MockMultipartFile("file", "dot.png", "image/png",
+                encode(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), "png"));
+
+        assertSame(text, optimizer.optimize(text));
+        assertSame(tiny, optimizer.optimize(tiny));
+        try (var files = Files.list(spoolDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void testDisabledOptimizerSendsUploadsAsTheyAre() throws Exception {
+        properties.setEnabled(false);
+        MockMultipartFile file = new MockMultipartFile("file", "photo.jpg", "image/jpeg",
+                encode(photo(1600, 1200), "jpeg"));
+
+        assertSame(file, optimizer().optimize(file));
+    }
+
+    @Test
+    public void testSlowOptimizationIsCancelledAndTheUploadSentAsItIs() throws Exception {
+        properties.setTimeout(Duration.ofMillis(100));
+        CountDownLatch interrupted = new CountDownLatch(1);
+        MockMultipartFile file = new MockMultipartFile("file", "photo.jpg", "image/jpeg",
+                encode(photo(1600, 1200), "jpeg")) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw new InterruptedIOException();
+                }
+                return super.getInputStream();
+            }
+        };
+
+        assertSame(file, optimizer().optimize(file));
+        assertEquals(1, meterRegistry.get("image.optimize.timeout").counter().count());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        try (var files = Files.list(spoolDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void testDiscardDeletesTheOptimizedFile() throws Exception {
+        ImageOptimizer optimizer = optimizer();
+        MultipartFile optimized = optimizer.optimize(new MockMultipartFile("file", "photo.jpg", "image/jpeg",
+                encode(photo(1600, 1200), "jpeg")));
+        try (var files = Files.list(spoolDirectory)) {
+            assertEquals(1, files.count());
+        }
+
+        optimizer.discard(optimized);
+
+        try (var files = Files.list(spoolDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private ImageOptimizer optimizer() throws IOException {
+        imageOptimizer = new ImageOptimizer(properties, meterRegistry);
+        return imageOptimizer;
+    }
+
+    /**
+     * An image with gradients and grain, which compresses about as well as a photo
+     * */
+    static BufferedImage photo(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.ORANGE, width, height, Color.BLUE));
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(16);
+                image.setRGB(x, y, image.getRGB(x, y) ^ (noise << 16 | noise << 8 | noise));
+            }
+        }
+        return image;
+    }
+
+    static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Adds an EXIF segment holding only an orientation tag right after the JFIF segment
+     * */
+    private static byte[] withOrientation(byte[] jpeg, int orientation) {
+        byte[] exif = {
+                (byte) 0xFF, (byte) 0xE1, 0, 34,
+                'E', 'x', 'i', 'f', 0, 0,
+                'M', 'M', 0, 42, 0, 0, 0, 8,
+                0, 1,
+                0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, (byte) orientation, 0, 0,
+                0, 0, 0, 0
+        };
+        int app0Length = ((jpeg[4] & 0xFF) << 8) | (jpeg[5] & 0xFF);
+        int insertAt = 4 + app0Length;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, insertAt);
+        out.write(exif, 0, exif.length);
+        out.write(jpeg, insertAt, jpeg.length - insertAt);
+        return out.toByteArray();
+    }
+
+    private static boolean containsExif(byte[] jpeg) {
+        for (int i = 0; i + 3 < jpeg.length; i++) {
+            if (jpeg[i] == 'E' && jpeg[i + 1] == 'x' && jpeg[i + 2] == 'i' && jpeg[i + 3] == 'f') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static BufferedImage read(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return ImageIO.read(in);
+        }
+    }
+}
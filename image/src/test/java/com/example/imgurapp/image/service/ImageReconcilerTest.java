@@ -0,0 +1,148 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.entity.Image;
+import com.example.imgurapp.image.entity.ReconcileCheckpoint;
+import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.repository.ImageRepository;
+import com.example.imgurapp.image.repository.ReconcileCheckpointRepository;
+import com.sun.net.httpserver.HttpExchange;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs ImageReconciler chunk by chunk against a local stub of the Imgur API
+ * */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reconcile_test",
+        "app.reconcile.enabled=true",
+        "app.reconcile.initial-delay=PT1H",
+        "app.reconcile.chunk-size=2",
+        "app.reconcile.pass-interval=0s",
+        "resilience4j.retry.configs.default.wait-duration=10ms"
+})
+public class ImageReconcilerTest {
+
+    private static final Set<String> gone = ConcurrentHashMap.newKeySet();
+
+    private static final Set<String> failing = ConcurrentHashMap.newKeySet();
+
+    private static final Map<String, String> links = new ConcurrentHashMap<>();
+
+    @RegisterExtension
+    static final ImgurStub imgurStub = new ImgurStub(ImageReconcilerTest::handle);
+
+    @Autowired
+    private ImageReconciler imageReconciler;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private ReconcileCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private User user;
+
+    @DynamicPropertySource
+    static void imgurStub(DynamicPropertyRegistry registry) {
+        imgurStub.register(registry);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        gone.clear();
+        failing.clear();
+        links.clear();
+        imageRepository.deleteAll();
+        checkpointRepository.deleteAll();
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(circuitBreaker -> circuitBreaker.reset());
+        user = userService.getUserByUserName("reconciler")
+                .orElseGet(() -> userService.registerUser("Reconciler", "reconciler", "reconciler@example.com", "password123"));
+    }
+
+    @Test
+    public void testPassDeletesRowsGoneFromImgurAndUpdatesMovedLinks() {
+        Image kept = save("kept1");
+        Image deleted = save("gone1");
+        Image moved = save("moved1");
+        Image last = save("kept2");
+        gone.add("gone1");
+        links.put("moved1", "https://i.imgur.com/moved1.jpeg");
+
+        imageReconciler.reconcile();
+        assertEquals(deleted.getId(), checkpoint().getLastId());
+        assertFalse(imageRepository.existsById(deleted.getId()));
+
+        imageReconciler.reconcile();
+        assertEquals(last.getId(), checkpoint().getLastId());
+        assertEquals("https://i.imgur.com/moved1.jpeg", imageRepository.findById(moved.getId()).orElseThrow().getUrl());
+
+        imageReconciler.reconcile();
+        ReconcileCheckpoint checkpoint = checkpoint();
+        assertNull(checkpoint.getPassStartedAt());
+        assertNotNull(checkpoint.getLastPassCompletedAt());
+        assertTrue(imageRepository.existsById(kept.getId()));
+        assertEquals(3, imageRepository.count());
+        assertTrue(meterRegistry.get("image.reconcile.images").tag("result", "missing").counter().count() >= 1);
+        assertTrue(meterRegistry.get("image.reconcile.lag").gauge().value() >= 0);
+    }
+
+    @Test
+    public void testChunkStopsAtAFailedLookupAndResumesThere() {
+        Image first = save("kept3");
+        Image failed = save("broken1");
+        failing.add("broken1");
+
+        imageReconciler.reconcile();
+        assertEquals(first.getId(), checkpoint().getLastId());
+        assertTrue(imageRepository.existsById(failed.getId()));
+
+        failing.clear();
+        imageReconciler.reconcile();
+        assertEquals(failed.getId(), checkpoint().getLastId());
+        assertNotNull(checkpoint().getPassStartedAt());
+    }
+
+    private Image save(String imageId) {
+        Image image = new Image();
+        image.setImageId(imageId);
+        image.setUrl("https://i.imgur.com/" + imageId + ".png");
+        image.setUser(user);
+        return imageRepository.save(image);
+    }
+
+    private ReconcileCheckpoint checkpoint() {
+        return checkpointRepository.findById(ImageReconciler.CHECKPOINT_NAME).orElseThrow();
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        String imageId = ImgurStub.imageId(exchange);
+        int status = gone.contains(imageId) ? 404 : failing.contains(imageId) ? 503 : 200;
+        String link = links.getOrDefault(imageId, "https://i.imgur.com/" + imageId + ".png");
+        ImgurStub.respond(exchange, status, status == 200
+                ? "{\"data\":{\"id\":\"" + imageId + "\",\"link\":\"" + link + "\"},\"success\":true,\"status\":200}"
+                : "{\"data\":{\"error\":\"Unable to find an image\"},\"success\":false,\"status\":" + status + "}");
+    }
+}
@@ -1,21 +1,29 @@
 package com.example.imgurapp.image.service;
 
+import com.example.imgurapp.image.dto.ImagePage;
+import com.example.imgurapp.image.dto.StoredImage;
 import com.example.imgurapp.image.entity.Image;
 import com.example.imgurapp.image.entity.User;
+import com.example.imgurapp.image.repository.ImageDeletionRepository;
 import com.example.imgurapp.image.repository.ImageRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,7 +33,22 @@ public class ImageServiceTest {
     private ImageRepository imageRepository;
 
     @Mock
-    private ImgurAPIService imgurAPIService;
+    private ImageBlobStore imageBlobStore;
+
+    @Mock
+    private ImageDeduplicator imageDeduplicator;
+
+    @Mock
+    private ImageOptimizer imageOptimizer;
+
+    @Mock
+    private ImageDeletionRepository imageDeletionRepository;
+
+    @Mock
+    private ImageStorageBackends storageBackends;
+
+    @Mock
+    private ImageStorageBackend storageBackend;
 
     @InjectMocks
     private ImageService imageService;
@@ -41,11 +64,10 @@ public class ImageServiceTest {
         String url = "https://imgur.com/abc123";
         String imageId = "image123";
 
-        Map<String, Object> imgurResponse = new HashMap<>();
-        imgurResponse.put("link", url);
-        imgurResponse.put("id", imageId);
-
-        when(imgurAPIService.uploadImage(multipartFile)).thenReturn(imgurResponse);
+        when(storageBackends.forUser(user)).thenReturn(storageBackend);
+        when(storageBackend.getName()).thenReturn("local");
+        when(imageOptimizer.optimize(multipartFile)).thenReturn(multipartFile);
+        when(storageBackend.upload(multipartFile)).thenReturn(new StoredImage(imageId, url, "image/png", 1, 1, 1024));
         when(imageRepository.save(any(Image.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         Image uploadedImage = imageService.uploadImage(user, multipartFile);
@@ -53,8 +75,69 @@ public class ImageServiceTest {
         assertNotNull(uploadedImage);
         assertEquals(url, uploadedImage.getUrl());
         assertEquals(imageId, uploadedImage.getImageId());
+        assertEquals("local", uploadedImage.getBackend());
         verify(imageRepository, times(1)).save(any(Image.class));
+        verify(imageOptimizer).discard(multipartFile);
+    }
+
+    @Test
+    public void testUploadOfKnownContentReusesExistingImage() {
+        Image existing = new Image();
+        existing.setId(5L);
+        existing.setImageId("image123");
+        when(multipartFile.getSize()).thenReturn(1024L);
+        when(imageBlobStore.hashUpload(multipartFile)).thenReturn(Optional.of("hash"));
+        when(imageDeduplicator.findDuplicate(user, "hash", 1024L)).thenReturn(Optional.of(existing));
+
+        Image uploadedImage = imageService.uploadImage(user, multipartFile);
+
+        assertEquals(existing, uploadedImage);
+        verifyNoInteractions(storageBackends);
+        verify(imageRepository, never()).save(any(Image.class));
+    }
+
+    @Test
+    public void testDeleteImageQueuesTheImgurDeletion() {
+        when(user.getUserId()).thenReturn(7L);
+        when(imageRepository.deleteByIdAndUserId(5L, 7L)).thenReturn(1);
+
+        assertTrue(imageService.deleteImage(user, 5L));
+
+        verify(imageDeletionRepository).queueForImage(eq(5L), eq(7L), any());
+        verifyNoInteractions(storageBackends);
+    }
+
+    @Test
+    public void testGetImagesByUserReturnsNextCursor() {
+        when(user.getUserId()).thenReturn(7L);
+        when(imageRepository.findByUserUserIdAndIdGreaterThanOrderByIdAsc(eq(7L), eq(10L), eq(Limit.of(3))))
+                .thenReturn(images(11L, 12L, 13L));
+
+        ImagePage page = imageService.getImagesByUser(user, 10L, 2);
+
+        assertEquals(2, page.images().size());
+        assertEquals(12L, page.nextCursor());
     }
 
+    @Test
+    public void testGetImagesByUserLastPageHasNoCursor() {
+        when(user.getUserId()).thenReturn(7L);
+        when(imageRepository.findByUserUserIdAndIdGreaterThanOrderByIdAsc(eq(7L), eq(0L), eq(Limit.of(3))))
+                .thenReturn(images(1L, 2L));
+
+        ImagePage page = imageService.getImagesByUser(user, null, 2);
+
+        assertEquals(2, page.images().size());
+        assertNull(page.nextCursor());
+    }
 
+    private static List<Image> images(Long... ids) {
+        List<Image> images = new ArrayList<>();
+        for (Long id : ids) {
+            Image image = new Image();
+            image.setId(id);
+            images.add(image);
+        }
+        return images;
+    }
 }
@@ -0,0 +1,52 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.StorageProperties;
+import com.example.imgurapp.image.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ImageStorageBackendsTest {
+
+    @Test
+    public void testUsersOfATierUploadToItsBackendAndOthersToTheDefault() {
+        ImageStorageBackend imgur = backend("imgur");
+        ImageStorageBackend local = backend("local");
+        StorageProperties properties = new StorageProperties();
+        StorageProperties.Tier tier = new StorageProperties.Tier();
+        tier.setBackend("local");
+        tier.setUsers(List.of("fast"));
+        properties.getTiers().put("low-latency", tier);
+
+        ImageStorageBackends backends = new ImageStorageBackends(List.of(imgur, local), properties);
+
+        assertSame(local, backends.forUser(user("fast")));
+        assertSame(imgur, backends.forUser(user("other")));
+        assertSame(local, backends.get("local"));
+    }
+
+    @Test
+    public void testBackendsThatAreNotEnabledAreRefusedAtStartup() {
+        StorageProperties properties = new StorageProperties();
+        properties.setBackend("s3");
+
+        assertThrows(IllegalStateException.class,
+                () -> new ImageStorageBackends(List.of(backend("imgur")), properties));
+    }
+
+    private static ImageStorageBackend backend(String name) {
+        ImageStorageBackend backend = mock(ImageStorageBackend.class);
+        when(backend.getName()).thenReturn(name);
+        return backend;
+    }
+
+    private static User user(String userName) {
+        User user = new User();
+        user.setUserName(userName);
+        return user;
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.ImgurBatchProperties;
+import com.example.imgurapp.image.config.ImgurHttpClientConfig;
+import com.example.imgurapp.image.config.ImgurHttpProperties;
+import com.example.imgurapp.image.dto.ImgurImage;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exercises ImgurAPIService against a local stub of the Imgur API. The surefire heap is capped
+ * (see pom.xml), so the large upload only passes if the file is streamed rather than buffered.
+ * */
+public class ImgurAPIServiceTest {
+
+    private static final long LARGE_FILE_SIZE = 128L * 1024 * 1024;
+
+    private HttpServer stubServer;
+
+    private CloseableHttpClient httpClient;
+
+    private ImgurAPIService imgurAPIService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AtomicLong receivedBytes = new AtomicLong();
+
+    private final AtomicReference<byte[]> receivedDigest = new AtomicReference<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        stubServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stubServer.createContext("/3/image", this::handleUpload);
+        stubServer.start();
+
+        ImgurHttpClientConfig config = new ImgurHttpClientConfig();
+        ImgurHttpProperties properties = new ImgurHttpProperties();
+        httpClient = config.imgurHttpClient(config.imgurConnectionManager(properties), properties,
+                TimeLimiterRegistry.ofDefaults());
+
+        imgurAPIService = new ImgurAPIService();
+        ReflectionTestUtils.setField(imgurAPIService, "restTemplate",
+                new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient)));
+        ReflectionTestUtils.setField(imgurAPIService, "rateLimitTracker", new ImgurRateLimitTracker(new ImgurBatchProperties()));
+        ReflectionTestUtils.setField(imgurAPIService, "observationRegistry", ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(imgurAPIService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(imgurAPIService, "clientId", "test-client");
+        ReflectionTestUtils.setField(imgurAPIService, "baseUrl",
+                "http://127.0.0.1:" + stubServer.getAddress().getPort() + "/3");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        httpClient.close();
+        stubServer.stop(0);
+    }
+
+    @Test
+    public void testUploadImageStreamsLargeFile() throws Exception {
+        GeneratedMultipartFile file = new GeneratedMultipartFile(LARGE_FILE_SIZE);
+
+        ImgurImage result = imgurAPIService.uploadImage(file);
+
+        assertEquals("abc123", result.id());
+        assertEquals("https://i.imgur.com/abc123.png", result.link());
+        assertEquals(640, result.width());
+        assertEquals(480, result.height());
+        assertEquals(LARGE_FILE_SIZE, receivedBytes.get());
+        assertArrayEquals(expectedDigest(LARGE_FILE_SIZE), receivedDigest.get());
+        assertEquals(LARGE_FILE_SIZE, (long) meterRegistry.summary("imgur.upload.payload").totalAmount());
+        assertEquals(1, meterRegistry.timer("imgur.upload.encode").count());
+        assertEquals(1, meterRegistry.timer("imgur.upload.network").count());
+    }
+
+    /**
+     * Decodes the <code>{"image":"..."}</code> body chunk by chunk and records the size and
+     * digest of the decoded payload.
+     * */
+    private void handleUpload(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            long contentLength = Long.parseLong(exchange.getRequestHeaders().getFirst("Content-Length"));
+            byte[] prefix = in.readNBytes(10);
+            assertEquals("{\"image\":\"", new String(prefix, StandardCharsets.US_ASCII));
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long remaining = contentLength - 12;
+            long decodedBytes = 0;
+            byte[] chunk = new byte[8192];
+            while (remaining > 0) {
+                int read = in.readNBytes(chunk, 0, (int) Math.min(chunk.length, remaining));
+                ByteBuffer decoded = Base64.getDecoder().decode(ByteBuffer.wrap(chunk, 0, read));
+                decodedBytes += decoded.remaining();
+                digest.update(decoded);
+                remaining -= read;
+            }
+            assertEquals("\"}", new String(in.readAllBytes(), StandardCharsets.US_ASCII));
+            receivedBytes.set(decodedBytes);
+            receivedDigest.set(digest.digest());
+
+            byte[] response = """
+                    {"data":{"id":"abc123","title":null,"datetime":1700000000,"type":"image/png","animated":false,
+                    "width":640,"height":480,"size":1024,"tags":[],"ad_config":{"safeFlags":["in_gallery"],"showsAds":false},
+                    "link":"https://i.imgur.com/abc123.png"},"success":true,"status":200}"""
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+        } catch (Exception e) {
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static byte[] expectedDigest(long size) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream in = new PatternInputStream(size)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * An input stream producing a deterministic byte pattern without backing storage.
+     * */
+    private static class PatternInputStream extends InputStream {
+
+        private final long size;
+
+        private long position;
+
+        PatternInputStream(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public int read() {
+            if (position >= size) {
+                return -1;
+            }
+            return patternByte(position++) & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= size) {
+                return -1;
+            }
+            int count = (int) Math.min(len, size - position);
+            for (int i = 0; i < count; i++) {
+                b[off + i] = patternByte(position++);
+            }
+            return count;
+        }
+
+        private static byte patternByte(long index) {
+            return (byte) (index * 31 + (index >>> 11));
+        }
+    }
+
+    /**
+     * A multipart file whose content is generated on demand. It refuses to materialise its bytes,
+     * so any code path that buffers the whole upload fails the test.
+     * */
+    private static class GeneratedMultipartFile implements MultipartFile {
+
+        private final long size;
+
+        GeneratedMultipartFile(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return "large.png";
+        }
+
+        @Override
+        public String getContentType() {
+            return "image/png";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            throw new UnsupportedOperationException("Upload must be streamed");
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new PatternInputStream(size);
+        }
+
+        @Override
+        public void transferTo(File dest) {
+            throw new UnsupportedOperationException("Upload must be streamed");
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.dto.ImgurImage;
+import com.sun.net.httpserver.HttpExchange;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs ImgurAPIService through its Resilience4j aspects against a local stub of the Imgur API
+ * */
+@SpringBootTest(properties = {
+        "resilience4j.retry.configs.default.wait-duration=10ms",
+        "resilience4j.timelimiter.instances.imgurDetails.timeout-duration=200ms",
+        "resilience4j.timelimiter.instances.imgurDownload.timeout-duration=5s"
+})
+public class ImgurResilienceTest {
+
+    private static final AtomicInteger requests = new AtomicInteger();
+
+    private static volatile int status = 200;
+
+    private static volatile long delayMillis;
+
+    private static volatile boolean operationHeaderSent;
+
+    @RegisterExtension
+    static final ImgurStub imgurStub = new ImgurStub(ImgurResilienceTest::handle);
+
+    @Autowired
+    private ImgurAPIService imgurAPIService;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void imgurStub(DynamicPropertyRegistry registry) {
+        imgurStub.register(registry);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        requests.set(0);
+        status = 200;
+        delayMillis = 0;
+        operationHeaderSent = false;
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(circuitBreaker -> circuitBreaker.reset());
+    }
+
+    @Test
+    public void testServerErrorsAreRetriedAndServeStaleDetails() {
+        imgurAPIService.getImageDetails("stale123");
+        status = 503;
+        requests.set(0);
+
+        ImgurImage details = imgurAPIService.getImageDetails("stale123");
+
+        assertEquals("stale123", details.id());
+        assertEquals(3, requests.get());
+        assertEquals(3, meterRegistry.get("imgur.api")
+                .tags("operation", ImgurAPIService.DETAILS, "status", "503").timer().count());
+    }
+
+    @Test
+    public void testDeletedImageIsNotServedStale() {
+        imgurAPIService.getImageDetails("deleted123");
+        status = 404;
+        requests.set(0);
+
+        assertThrows(RuntimeException.class, () -> imgurAPIService.getImageDetails("deleted123"));
+        assertEquals(1, requests.get());
+
+        status = 502;
+        assertThrows(RuntimeException.class, () -> imgurAPIService.getImageDetails("deleted123"));
+    }
+
+    @Test
+    public void testSlowResponseIsCutOffByTimeLimit() {
+        delayMillis = 5000;
+
+        long start = System.nanoTime();
+        assertThrows(RuntimeException.class, () -> imgurAPIService.getImageDetails("slow123"));
+
+        assertTrue(System.nanoTime() - start < 3_000_000_000L);
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void testDownloadIsNotCutOffByTheDetailsTimeLimit() {
+        delayMillis = 500;
+
+        byte[] content = imgurAPIService.downloadImage(imgurStub.getBaseUrl() + "/image/large123.png",
+                InputStream::readAllBytes);
+
+        assertTrue(content.length > 0);
+        assertEquals(1, requests.get());
+        assertFalse(operationHeaderSent);
+    }
+
+    @Test
+    public void testClientErrorIsNotRetried() {
+        status = 404;
+
+        assertThrows(RuntimeException.class, () -> imgurAPIService.deleteImage("missing123"));
+
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testOpenCircuitFailsFastWithoutCallingImgur() {
+        status = 503;
+        for (int i = 0; i < 10; i++) {
+            assertThrows(RuntimeException.class, () -> imgurAPIService.deleteImage("down123"));
+        }
+        requests.set(0);
+
+        assertThrows(RuntimeException.class, () -> imgurAPIService.deleteImage("down123"));
+
+        assertEquals(0, requests.get());
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        operationHeaderSent |= exchange.getRequestHeaders().containsKey(ImgurAPIService.OPERATION_HEADER);
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.close();
+                return;
+            }
+        }
+        ImgurStub.respond(exchange, status,
+                "{\"data\":{\"id\":\"" + ImgurStub.imageId(exchange) + "\"},\"success\":true,\"status\":" + status + "}");
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.imgurapp.image.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A local stub of the Imgur API: the requests to <code>/3/image</code> are answered by the
+ * handler of the test. Registered with <code>@RegisterExtension</code> it is stopped after the
+ * test class; benchmarks close it themselves.
+ * */
+public final class ImgurStub implements AfterAllCallback, AutoCloseable {
+
+    private static final String IMAGE_PATH = "/3/image";
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final HttpServer server;
+
+    public ImgurStub(HttpHandler handler) {
+        this(0, handler);
+    }
+
+    /**
+     * @param backlog The number of connections the server queues, 0 for the default
+     * @param handler Answers the image requests
+     * */
+    public ImgurStub(int backlog, HttpHandler handler) {
+        try {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), backlog);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        server.setExecutor(executor);
+        server.createContext(IMAGE_PATH, handler);
+        server.start();
+    }
+
+    /**
+     * @return The base URL to configure as <code>imgur.api.base-url</code>
+     * */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/3";
+    }
+
+    /**
+     * Points the application under test at the stub, from a <code>@DynamicPropertySource</code>
+     * */
+    public void register(DynamicPropertyRegistry registry) {
+        registry.add("imgur.api.base-url", this::getBaseUrl);
+    }
+
+    /**
+     * @return The image id in the path of a request, empty for an upload
+     * */
+    public static String imageId(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        return path.length() > IMAGE_PATH.length() ? path.substring(IMAGE_PATH.length() + 1) : "";
+    }
+
+    /**
+     * Sends a JSON response and closes the exchange
+     * */
+    public static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        respond(exchange, status, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends a JSON response and closes the exchange
+     * */
+    public static void respond(HttpExchange exchange, int status, byte[] json) throws IOException {
+        try (exchange) {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, json.length);
+            exchange.getResponseBody().write(json);
+        }
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        close();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.imgurapp.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryRateLimitStoreTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-05-01T12:00:00Z"));
+
+    private final InMemoryRateLimitStore store = new InMemoryRateLimitStore(1000, clock);
+
+    @Test
+    public void testBucketAllowsBurstThenRefillsOneTokenPerPeriod() {
+        for (int i = 0; i < 5; i++) {
+            RateLimitStore.Consumption consumption = store.tryConsume("user", 5, Duration.ofSeconds(2), 1);
+            assertTrue(consumption.granted());
+            assertEquals(4 - i, consumption.remaining());
+        }
+
+        RateLimitStore.Consumption refused = store.tryConsume("user", 5, Duration.ofSeconds(2), 1);
+        assertFalse(refused.granted());
+        assertEquals(0, refused.remaining());
+        assertEquals(Duration.ofSeconds(2), refused.retryAfter());
+        assertEquals(Duration.ofSeconds(10), refused.resetAfter());
+
+        clock.advance(Duration.ofSeconds(2));
+        assertTrue(store.tryConsume("user", 5, Duration.ofSeconds(2), 1).granted());
+        assertFalse(store.tryConsume("user", 5, Duration.ofSeconds(2), 1).granted());
+
+        clock.advance(Duration.ofMinutes(1));
+        assertEquals(2, store.tryConsume("user", 5, Duration.ofSeconds(2), 3).remaining());
+    }
+
+    @Test
+    public void testBucketsAreKeptPerKey() {
+        assertTrue(store.tryConsume("first", 1, Duration.ofMinutes(1), 1).granted());
+        assertFalse(store.tryConsume("first", 1, Duration.ofMinutes(1), 1).granted());
+
+        assertTrue(store.tryConsume("second", 1, Duration.ofMinutes(1), 1).granted());
+    }
+
+    @Test
+    public void testRefundedTokensCanBeTakenAgainButNeverOverfillTheBucket() {
+        assertTrue(store.tryConsume("user", 3, Duration.ofSeconds(2), 3).granted());
+        store.refund("user", Duration.ofSeconds(2), 2);
+        assertEquals(0, store.tryConsume("user", 3, Duration.ofSeconds(2), 2).remaining());
+
+        store.refund("user", Duration.ofSeconds(2), 10);
+        assertEquals(0, store.tryConsume("user", 3, Duration.ofSeconds(2), 3).remaining());
+        assertFalse(store.tryConsume("user", 3, Duration.ofSeconds(2), 1).granted());
+    }
+
+    @Test
+    public void testCounterStopsAtLimitAndReleases() {
+        Instant resetAt = Instant.parse("2024-05-02T00:00:00Z");
+
+        assertTrue(store.tryIncrement("bytes", 100, 60, resetAt).granted());
+        RateLimitStore.Consumption refused = store.tryIncrement("bytes", 100, 50, resetAt);
+        assertFalse(refused.granted());
+        assertEquals(40, refused.remaining());
+        assertEquals(Duration.ofHours(12), refused.retryAfter());
+
+        store.release("bytes", 60);
+        assertEquals(50, store.tryIncrement("bytes", 100, 50, resetAt).remaining());
+    }
+
+    @Test
+    public void testConcurrentConsumersNeverExceedCapacity() throws Exception {
+        int threads = 8;
+        Instant resetAt = Instant.parse("2024-05-02T00:00:00Z");
+        AtomicInteger tokens = new AtomicInteger();
+        AtomicInteger increments = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 10_000; i++) {
+                    if (store.tryConsume("shared", 1000, Duration.ofHours(1), 1).granted()) {
+                        tokens.incrementAndGet();
+                    }
+                    if (store.tryIncrement("count", 2500, 1, resetAt).granted()) {
+                        increments.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        assertEquals(1000, tokens.get());
+        assertEquals(2500, increments.get());
+    }
+
+    /**
+     * A clock that only moves when told to
+     * */
+    static class MutableClock extends Clock {
+
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.StorageProperties;
+import com.example.imgurapp.image.dto.StoredImage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalStorageBackendTest {
+
+    @TempDir
+    private Path directory;
+
+    private LocalStorageBackend backend;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        StorageProperties properties = new StorageProperties();
+        properties.getLocal().setEnabled(true);
+        properties.getLocal().setDirectory(directory);
+        properties.getLocal().setBaseUrl("https://cdn.example.com/images/");
+        backend = new LocalStorageBackend(properties);
+    }
+
+    @Test
+    public void testUploadedImageIsFoundWithItsDimensionsAndDeleted() throws IOException {
+        byte[] jpeg = jpeg(64, 48);
+
+        StoredImage stored = backend.upload(new MockMultipartFile("file", "photo.jpg", "image/jpeg", jpeg));
+
+        Path file = directory.resolve(stored.id().substring(0, 2)).resolve(stored.id());
+        assertArrayEquals(jpeg, Files.readAllBytes(file));
+        assertEquals(new StoredImage(stored.id(), "https://cdn.example.com/images/" + stored.id().substring(0, 2)
+                + "/" + stored.id(), "image/jpeg", 64, 48, jpeg.length), stored);
+        assertEquals(Optional.of(stored), backend.find(stored.id()));
+        assertArrayEquals(jpeg, backend.read(stored.id(), InputStream::readAllBytes).orElseThrow());
+
+        backend.delete(stored.id());
+        assertFalse(Files.exists(file));
+        assertTrue(backend.find(stored.id()).isEmpty());
+        assertTrue(backend.read(stored.id(), InputStream::readAllBytes).isEmpty());
+        backend.delete(stored.id());
+    }
+
+    @Test
+    public void testIdsOutsideTheDirectoryAreNeverResolved() throws IOException {
+        Files.writeString(directory.resolve("secret.txt"), "secret");
+
+        assertTrue(backend.find("../secret.txt").isEmpty());
+        assertTrue(backend.find("secret.txt").isEmpty());
+        assertTrue(backend.read("../secret.txt", InputStream::readAllBytes).isEmpty());
+        backend.delete("../secret.txt");
+        assertTrue(Files.exists(directory.resolve("secret.txt")));
+    }
+
+    private static byte[] jpeg(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpeg", out);
+        return out.toByteArray();
+    }
+}
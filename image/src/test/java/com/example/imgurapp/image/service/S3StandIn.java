@@ -0,0 +1,165 @@
+package com.example.imgurapp.image.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+/**
+ * A minimal in-memory stand-in for an S3-compatible store such as MinIO, addressed in path style.
+ * It answers the object PUT, GET, HEAD and DELETE requests of S3StorageBackend, enough to run the
+ * backend without a real store.
+ * */
+public final class S3StandIn implements AutoCloseable {
+
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+
+    private final HttpServer server;
+
+    public S3StandIn() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return The endpoint to configure as <code>app.storage.s3.endpoint</code>
+     * */
+    public URI getEndpoint() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    /**
+     * @param path The path of an object, <code>/bucket/key</code>
+     * @return The content of the object, or null if there is none
+     * */
+    public byte[] getContent(String path) {
+        StoredObject object = objects.get(path);
+        return object == null ? null : object.content();
+    }
+
+    /**
+     * @return The number of objects stored
+     * */
+    public int size() {
+        return objects.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            if (!exchange.getRequestMethod().equals("PUT")) {
+                //A streamed PUT fails on a connection of the JDK server reused after a request
+                //without a body, so those connections are not kept alive
+                exchange.getResponseHeaders().add("Connection", "close");
+            }
+            switch (exchange.getRequestMethod()) {
+                case "PUT" -> {
+                    byte[] content = read(exchange);
+                    Map<String, String> metadata = new HashMap<>();
+                    exchange.getRequestHeaders().forEach((name, values) -> {
+                        if (name.toLowerCase(Locale.ROOT).startsWith("x-amz-meta-")) {
+                            metadata.put(name.toLowerCase(Locale.ROOT), values.get(0));
+                        }
+                    });
+                    objects.put(path, new StoredObject(content, exchange.getRequestHeaders().getFirst("Content-Type"), metadata));
+                    //The SDK checks the ETag of a PUT against the MD5 of what it sent
+                    exchange.getResponseHeaders().add("ETag", "\"" + md5(content) + "\"");
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                case "HEAD" -> {
+                    StoredObject object = objects.get(path);
+                    if (object == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    exchange.getResponseHeaders().add("Content-Type", object.contentType());
+                    exchange.getResponseHeaders().add("Content-Length", String.valueOf(object.content().length));
+                    exchange.getResponseHeaders().add("ETag", "\"" + md5(object.content()) + "\"");
+                    object.metadata().forEach((name, value) -> exchange.getResponseHeaders().add(name, value));
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                case "GET" -> {
+                    StoredObject object = objects.get(path);
+                    if (object == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    exchange.getResponseHeaders().add("Content-Type", object.contentType());
+                    exchange.getResponseHeaders().add("ETag", "\"" + md5(object.content()) + "\"");
+                    exchange.sendResponseHeaders(200, object.content().length);
+                    exchange.getResponseBody().write(object.content());
+                }
+                case "DELETE" -> {
+                    objects.remove(path);
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    /**
+     * Reads the request body, decoding the signed chunks the SDK sends over plain HTTP
+     * */
+    private static byte[] read(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        String contentSha256 = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        if (contentSha256 == null || !contentSha256.startsWith("STREAMING-")) {
+            return in.readAllBytes();
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        while (true) {
+            String header = readLine(in);
+            int size = Integer.parseInt(header.split(";")[0], 16);
+            if (size == 0) {
+                //Skips the trailing checksum, so the connection can be reused
+                in.transferTo(OutputStream.nullOutputStream());
+                return content.toByteArray();
+            }
+            content.write(in.readNBytes(size));
+            readLine(in);
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (int b = in.read(); b != '\n' && b != -1; b = in.read()) {
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static String md5(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record StoredObject(byte[] content, String contentType, Map<String, String> metadata) {
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.StorageConfig;
+import com.example.imgurapp.image.config.StorageProperties;
+import com.example.imgurapp.image.dto.StoredImage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs S3StorageBackend against an in-memory stand-in for an S3-compatible store
+ * */
+public class S3StorageBackendTest {
+
+    private S3StandIn standIn;
+
+    private S3Client s3Client;
+
+    private S3StorageBackend backend;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        standIn = new S3StandIn();
+        StorageProperties properties = new StorageProperties();
+        properties.getS3().setEnabled(true);
+        properties.getS3().setEndpoint(standIn.getEndpoint());
+        properties.getS3().setBucket("media");
+        properties.getS3().setPathStyleAccess(true);
+        properties.getS3().setAccessKey("access");
+        properties.getS3().setSecretKey("secret");
+        s3Client = new StorageConfig(properties).storageS3Client(properties);
+        backend = new S3StorageBackend(s3Client, properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        s3Client.close();
+        standIn.close();
+    }
+
+    @Test
+    public void testUploadedImageIsFoundWithItsDimensionsAndDeleted() throws IOException {
+        byte[] png = png(40, 30);
+
+        StoredImage stored = backend.upload(new MockMultipartFile("file", "image.png", "image/png", png));
+
+        assertTrue(stored.id().endsWith(".png"));
+        assertEquals(40, stored.width());
+        assertEquals(30, stored.height());
+        assertEquals(standIn.getEndpoint() + "/media/images/" + stored.id(), stored.link());
+        assertArrayEquals(png, standIn.getContent("/media/images/" + stored.id()));
+
+        Optional<StoredImage> found = backend.find(stored.id());
+        assertEquals(Optional.of(stored), found);
+        assertArrayEquals(png, backend.read(stored.id(), InputStream::readAllBytes).orElseThrow());
+
+        backend.delete(stored.id());
+        assertEquals(0, standIn.size());
+        assertTrue(backend.find(stored.id()).isEmpty());
+        assertTrue(backend.read(stored.id(), InputStream::readAllBytes).isEmpty());
+    }
+
+    @Test
+    public void testUnknownIdsAreNotFound() {
+        assertTrue(backend.find("0123456789abcdef0123456789abcdef.png").isEmpty());
+        assertTrue(backend.find("../other-bucket/key").isEmpty());
+        backend.delete("0123456789abcdef0123456789abcdef.png");
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
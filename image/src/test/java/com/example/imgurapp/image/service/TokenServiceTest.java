@@ -0,0 +1,55 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.TokenProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenServiceTest {
+
+    private TokenService tokenService(String secret, Duration ttl) {
+        TokenProperties properties = new TokenProperties();
+        properties.setSecret(secret);
+        properties.setTtl(ttl);
+        return new TokenService(properties);
+    }
+
+    @Test
+    public void testIssuedTokenIsVerified() {
+        TokenService tokenService = tokenService("secret", Duration.ofMinutes(5));
+
+        String token = tokenService.issueToken("john123");
+        Optional<String> result = tokenService.verifyToken(token);
+
+        assertEquals(Optional.of("john123"), result);
+    }
+
+    @Test
+    public void testTokenSignedWithAnotherSecretIsRejected() {
+        String token = tokenService("other-secret", Duration.ofMinutes(5)).issueToken("john123");
+
+        Optional<String> result = tokenService("secret", Duration.ofMinutes(5)).verifyToken(token);
+
+        assertFalse(result.isPresent());
+    }
+
+    @Test
+    public void testExpiredTokenIsRejected() {
+        TokenService tokenService = tokenService("secret", Duration.ofSeconds(-1));
+
+        String token = tokenService.issueToken("john123");
+
+        assertFalse(tokenService.verifyToken(token).isPresent());
+    }
+
+    @Test
+    public void testMalformedTokenIsRejected() {
+        TokenService tokenService = tokenService("secret", Duration.ofMinutes(5));
+
+        assertFalse(tokenService.verifyToken("not-a-token").isPresent());
+        assertFalse(tokenService.verifyToken("a.b.c").isPresent());
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.UploadProperties;
+import com.example.imgurapp.image.dto.UploadJob;
+import com.example.imgurapp.image.entity.Image;
+import com.example.imgurapp.image.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class UploadJobServiceTest {
+
+    @TempDir
+    private Path spoolDirectory;
+
+    private ImageService imageService;
+
+    private UploadJobService uploadJobService;
+
+    private User user;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        UploadProperties properties = new UploadProperties();
+        properties.setWorkers(1);
+        properties.setQueueCapacity(1);
+        properties.setSpoolDirectory(spoolDirectory);
+
+        imageService = mock(ImageService.class);
+        uploadJobService = new UploadJobService(imageService, properties, new MockEnvironment());
+
+        user = new User();
+        user.setUserName("john123");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        uploadJobService.shutdown();
+    }
+
+    @Test
+    public void testQueuedUploadCompletesAndRemovesSpooledFile() throws Exception {
+        Image image = new Image();
+        image.setImageId("abc123");
+        when(imageService.uploadImage(any(User.class), any())).thenReturn(image);
+
+        UploadJob job = uploadJobService.submit(user, file()).orElseThrow();
+
+        UploadJob result = awaitCompletion(job.jobId());
+        assertEquals(UploadJob.Status.COMPLETED, result.status());
+        assertEquals("abc123", result.image().getImageId());
+        try (var spooled = Files.list(spoolDirectory)) {
+            assertEquals(0, spooled.count());
+        }
+    }
+
+    @Test
+    public void testUploadIsRejectedWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(imageService.uploadImage(any(User.class), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new Image();
+        });
+
+        try {
+            UploadJob running = uploadJobService.submit(user, file()).orElseThrow();
+            awaitStatus(running.jobId(), UploadJob.Status.RUNNING);
+            assertTrue(uploadJobService.submit(user, file()).isPresent());
+
+            assertFalse(uploadJobService.submit(user, file()).isPresent());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testJobOfAnotherUserIsNotVisible() {
+        when(imageService.uploadImage(any(User.class), any())).thenReturn(new Image());
+        UploadJob job = uploadJobService.submit(user, file()).orElseThrow();
+
+        User other = new User();
+        other.setUserName("jane456");
+
+        assertEquals(Optional.empty(), uploadJobService.getJob(other, job.jobId()));
+    }
+
+    @Test
+    public void testPendingJobsAreKeptPastTheRetentionOfFinishedJobs() throws Exception {
+        UploadProperties properties = new UploadProperties();
+        properties.setWorkers(1);
+        properties.setQueueCapacity(1);
+        properties.setSpoolDirectory(spoolDirectory);
+        properties.setJobRetention(Duration.ZERO);
+        UploadJobService shortRetention = new UploadJobService(imageService, properties, new MockEnvironment());
+        CountDownLatch release = new CountDownLatch(1);
+        when(imageService.uploadImage(any(User.class), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new Image();
+        });
+
+        try {
+            UploadJob running = shortRetention.submit(user, file()).orElseThrow();
+            UploadJob queued = shortRetention.submit(user, file()).orElseThrow();
+            Thread.sleep(100);
+
+            assertEquals(UploadJob.Status.RUNNING, shortRetention.getJob(user, running.jobId()).orElseThrow().status());
+            assertEquals(UploadJob.Status.QUEUED, shortRetention.getJob(user, queued.jobId()).orElseThrow().status());
+
+            //Once finished, the jobs expire right away
+            release.countDown();
+            for (int i = 0; i < 100 && shortRetention.getJob(user, queued.jobId()).isPresent(); i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(Optional.empty(), shortRetention.getJob(user, running.jobId()));
+            assertEquals(Optional.empty(), shortRetention.getJob(user, queued.jobId()));
+        } finally {
+            release.countDown();
+            shortRetention.shutdown();
+        }
+    }
+
+    private static MockMultipartFile file() {
+        return new MockMultipartFile("file", "image.png", "image/png", new byte[]{1, 2, 3});
+    }
+
+    private UploadJob awaitCompletion(String jobId) throws InterruptedException {
+        return awaitStatus(jobId, UploadJob.Status.COMPLETED);
+    }
+
+    private UploadJob awaitStatus(String jobId, UploadJob.Status status) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            UploadJob job = uploadJobService.getJob(user, jobId).orElseThrow();
+            if (job.status() == status) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        fail("Job " + jobId + " did not reach " + status);
+        return null;
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.config.ImgurBatchProperties;
+import com.example.imgurapp.image.config.RateLimitConfig;
+import com.example.imgurapp.image.config.RateLimitProperties;
+import com.example.imgurapp.image.dto.RateLimitDecision;
+import com.example.imgurapp.image.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UploadRateLimiterTest {
+
+    private final InMemoryRateLimitStoreTest.MutableClock clock =
+            new InMemoryRateLimitStoreTest.MutableClock(Instant.parse("2024-05-01T23:59:00Z"));
+
+    private final RateLimitProperties properties = new RateLimitProperties();
+
+    private final SharedStoreStandIn sharedStore = new SharedStoreStandIn(new InMemoryRateLimitStore(1000, clock));
+
+    @AfterEach
+    public void tearDown() {
+        sharedStore.close();
+    }
+
+    @Test
+    public void testUploadsBeyondBurstAreRefusedWithRetryAfter() {
+        properties.setCapacity(2);
+        properties.setRefillPeriod(Duration.ofSeconds(30));
+        UploadRateLimiter limiter = new UploadRateLimiter(new InMemoryRateLimitStore(1000, clock), properties, clock);
+        User user = user(1L);
+
+        RateLimitDecision first = limiter.tryAcquire(user, 1, 100);
+        assertTrue(first.allowed());
+        assertEquals(2, first.limit());
+        assertEquals(1, first.remaining());
+        assertEquals(499, first.dailyUploadsRemaining());
+        assertEquals(Duration.ofMinutes(1), first.dailyReset());
+        assertTrue(limiter.tryAcquire(user, 1, 100).allowed());
+
+        RateLimitDecision refused = limiter.tryAcquire(user, 1, 100);
+        assertFalse(refused.allowed());
+        assertEquals(0, refused.remaining());
+        assertEquals(Duration.ofSeconds(30), refused.retryAfter());
+
+        assertTrue(limiter.tryAcquire(user(2L), 1, 100).allowed());
+    }
+
+    @Test
+    public void testDailyQuotasStartOverAtMidnight() {
+        properties.setDailyUploads(3);
+        properties.setDailyBytes(DataSize.ofBytes(1000));
+        UploadRateLimiter limiter = new UploadRateLimiter(new InMemoryRateLimitStore(1000, clock), properties, clock);
+        User user = user(1L);
+
+        assertTrue(limiter.tryAcquire(user, 2, 600).allowed());
+        RateLimitDecision tooLarge = limiter.tryAcquire(user, 1, 500);
+        assertFalse(tooLarge.allowed());
+        assertEquals(400, tooLarge.dailyBytesRemaining());
+        assertEquals(Duration.ofMinutes(1), tooLarge.retryAfter());
+        //The refused upload does not count against the daily number of uploads
+        assertEquals(0, limiter.tryAcquire(user, 1, 100).dailyUploadsRemaining());
+        assertFalse(limiter.tryAcquire(user, 1, 100).allowed());
+
+        clock.advance(Duration.ofMinutes(1));
+        RateLimitDecision nextDay = limiter.tryAcquire(user, 1, 100);
+        assertTrue(nextDay.allowed());
+        assertEquals(2, nextDay.dailyUploadsRemaining());
+        assertEquals(Duration.ofHours(24), nextDay.dailyReset());
+    }
+
+    @Test
+    public void testBatchLargerThanTheBucketIsRejectedWithoutTakingTokens() {
+        properties.setCapacity(10);
+        UploadRateLimiter limiter = new UploadRateLimiter(new InMemoryRateLimitStore(1000, clock), properties, clock);
+        User user = user(1L);
+
+        assertEquals(10, limiter.getMaxBatch());
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire(user, 11, 100));
+
+        RateLimitDecision fullBucket = limiter.tryAcquire(user, 10, 100);
+        assertTrue(fullBucket.allowed());
+        assertEquals(0, fullBucket.remaining());
+        assertEquals(490, fullBucket.dailyUploadsRemaining());
+    }
+
+    @Test
+    public void testBatchesLargerThanTheBucketAreRefusedAtStartup() {
+        properties.setCapacity(10);
+        ImgurBatchProperties batchProperties = new ImgurBatchProperties();
+        batchProperties.setMaxItems(10);
+        new RateLimitConfig(properties, batchProperties);
+
+        batchProperties.setMaxItems(11);
+        assertThrows(IllegalStateException.class, () -> new RateLimitConfig(properties, batchProperties));
+
+        properties.setEnabled(false);
+        new RateLimitConfig(properties, batchProperties);
+    }
+
+    @Test
+    public void testRefusalByDailyQuotaGivesBackTheToken() {
+        properties.setCapacity(2);
+        properties.setRefillPeriod(Duration.ofMinutes(1));
+        properties.setDailyBytes(DataSize.ofBytes(1000));
+        UploadRateLimiter limiter = new UploadRateLimiter(new InMemoryRateLimitStore(1000, clock), properties, clock);
+        User user = user(1L);
+
+        RateLimitDecision tooLarge = limiter.tryAcquire(user, 1, 2000);
+        assertFalse(tooLarge.allowed());
+        assertEquals(2, tooLarge.remaining());
+
+        assertTrue(limiter.tryAcquire(user, 1, 100).allowed());
+        assertTrue(limiter.tryAcquire(user, 1, 100).allowed());
+    }
+
+    @Test
+    public void testReleasedUploadDoesNotCount() {
+        properties.setCapacity(2);
+        properties.setRefillPeriod(Duration.ofMinutes(1));
+        properties.setDailyUploads(3);
+        properties.setDailyBytes(DataSize.ofBytes(1000));
+        UploadRateLimiter limiter = new UploadRateLimiter(new InMemoryRateLimitStore(1000, clock), properties, clock);
+        User user = user(1L);
+
+        assertTrue(limiter.tryAcquire(user, 1, 600).allowed());
+        assertTrue(limiter.tryAcquire(user, 1, 300).allowed());
+        limiter.release(user, 1, 600);
+
+        RateLimitDecision decision = limiter.tryAcquire(user, 1, 700);
+        assertTrue(decision.allowed());
+        assertEquals(0, decision.remaining());
+        assertEquals(1, decision.dailyUploadsRemaining());
+        assertEquals(0, decision.dailyBytesRemaining());
+    }
+
+    @Test
+    public void testNodesSharingAStoreShareTheLimits() {
+        properties.setCapacity(3);
+        properties.setRefillPeriod(Duration.ofMinutes(1));
+        UploadRateLimiter firstNode = new UploadRateLimiter(sharedStore, properties, clock);
+        UploadRateLimiter secondNode = new UploadRateLimiter(sharedStore, properties, clock);
+        User user = user(1L);
+
+        assertTrue(firstNode.tryAcquire(user, 2, 100).allowed());
+        RateLimitDecision decision = secondNode.tryAcquire(user, 1, 100);
+        assertTrue(decision.allowed());
+        assertEquals(0, decision.remaining());
+        assertEquals(497, decision.dailyUploadsRemaining());
+
+        assertFalse(firstNode.tryAcquire(user, 1, 100).allowed());
+        assertTrue(sharedStore.calls.get() >= 7);
+    }
+
+    @Test
+    public void testDisabledLimiterAllowsEverything() {
+        properties.setEnabled(false);
+        UploadRateLimiter limiter = new UploadRateLimiter(sharedStore, properties, clock);
+
+        for (int i = 0; i < 100; i++) {
+            assertSame(RateLimitDecision.UNLIMITED, limiter.tryAcquire(user(1L), 1, 100));
+        }
+        assertEquals(0, sharedStore.calls.get());
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setUserId(id);
+        user.setUserName("user" + id);
+        return user;
+    }
+
+    /**
+     * Stands in for a store shared by several nodes: every operation is sent to a single thread
+     * owning the state, as a remote store would run it, and each call is counted as a round trip.
+     * */
+    private static class SharedStoreStandIn implements RateLimitStore {
+
+        private final ExecutorService server = Executors.newSingleThreadExecutor();
+
+        private final RateLimitStore state;
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        SharedStoreStandIn(RateLimitStore state) {
+            this.state = state;
+        }
+
+        @Override
+        public Consumption tryConsume(String key, long capacity, Duration refillPeriod, long tokens) {
+            return call(() -> state.tryConsume(key, capacity, refillPeriod, tokens));
+        }
+
+        @Override
+        public void refund(String key, Duration refillPeriod, long tokens) {
+            call(() -> {
+                state.refund(key, refillPeriod, tokens);
+                return null;
+            });
+        }
+
+        @Override
+        public Consumption tryIncrement(String key, long limit, long amount, Instant resetAt) {
+            return call(() -> state.tryIncrement(key, limit, amount, resetAt));
+        }
+
+        @Override
+        public void release(String key, long amount) {
+            call(() -> {
+                state.release(key, amount);
+                return null;
+            });
+        }
+
+        private <T> T call(Callable<T> operation) {
+            calls.incrementAndGet();
+            try {
+                return server.submit(operation).get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        void close() {
+            server.shutdown();
+        }
+    }
+}
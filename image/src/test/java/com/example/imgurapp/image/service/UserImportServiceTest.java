@@ -0,0 +1,91 @@
+package com.example.imgurapp.image.service;
+
+import com.example.imgurapp.image.dto.UserImportRecord;
+import com.example.imgurapp.image.dto.UserImportResult;
+import com.example.imgurapp.image.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "app.users.bulk-import.key=import-key",
+        "app.users.bulk-import.batch-size=2"
+})
+public class UserImportServiceTest {
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BCryptPasswordEncoder passwordEncoder;
+
+    @Test
+    public void testConcurrentRegistrationsOfOneNameInsertOnce() {
+        List<CompletableFuture<?>> registrations = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            registrations.add(userService.registerUserAsync("Race", "racer", "race@example.com", "password123"));
+        }
+
+        int created = 0;
+        int conflicts = 0;
+        for (CompletableFuture<?> registration : registrations) {
+            try {
+                registration.join();
+                created++;
+            } catch (CompletionException e) {
+                assertInstanceOf(UserNameTakenException.class, e.getCause());
+                conflicts++;
+            }
+        }
+        assertEquals(1, created);
+        assertEquals(7, conflicts);
+    }
+
+    @Test
+    public void testImportInsertsMissingUsersAndReportsTheRest() {
+        userService.registerUser("Existing", "importexisting", "existing@example.com", "password123");
+        String hash = passwordEncoder.encode("migrated");
+        List<UserImportRecord> records = List.of(
+                new UserImportRecord("Migrated", "importmigrated", "migrated@example.com", null, hash),
+                new UserImportRecord("Plain", "importplain", "plain@example.com", "plain123", null),
+                new UserImportRecord("Existing", "importexisting", "existing@example.com", "password123", null),
+                new UserImportRecord("Twice", "importmigrated", "twice@example.com", null, hash),
+                new UserImportRecord("No Password", "importnopassword", "nopassword@example.com", null, null),
+                new UserImportRecord("Bad Hash", "importbadhash", "badhash@example.com", null, "not-a-hash"),
+                new UserImportRecord("Long", "importlong", "x".repeat(300) + "@example.com", "long123", null));
+
+        UserImportResult result = userImportService.importUsers(records);
+
+        assertEquals(2, result.imported());
+        assertEquals(List.of("importmigrated", "importexisting"), result.duplicates());
+        assertEquals(List.of("importnopassword", "importbadhash", "importlong"), result.invalid());
+        assertEquals(hash, userRepository.findByUserName("importmigrated").orElseThrow().getPassword());
+        assertTrue(userService.authenticateUser("importplain", "plain123").isPresent());
+        assertTrue(userService.getUserProfile("importmigrated").isPresent());
+
+        UserImportResult rerun = userImportService.importUsers(records.subList(0, 2));
+        assertEquals(0, rerun.imported());
+        assertEquals(List.of("importmigrated", "importplain"), rerun.duplicates());
+    }
+
+    @Test
+    public void testImportNeedsTheConfiguredKey() {
+        assertTrue(userImportService.isAuthorized("import-key"));
+        assertFalse(userImportService.isAuthorized("other-key"));
+        assertFalse(userImportService.isAuthorized(null));
+    }
+}
@@ -1,15 +1,29 @@
 package com.example.imgurapp.image.service;
 
+import com.example.imgurapp.image.config.AppCacheProperties;
+import com.example.imgurapp.image.config.CacheConfig;
+import com.example.imgurapp.image.config.UserProperties;
+import com.example.imgurapp.image.dto.UserProfile;
 import com.example.imgurapp.image.entity.User;
 import com.example.imgurapp.image.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
+import java.sql.SQLException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -25,9 +39,31 @@ public class UserServiceTest {
     @Mock
     private BCryptPasswordEncoder passwordEncoder;
 
+    @Mock
+    private PasswordHasher passwordHasher;
+
+    @Spy
+    private CacheManager cacheManager = new CacheConfig().cacheManager(new AppCacheProperties());
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private UserProperties userProperties = new UserProperties();
+
     @InjectMocks
     private UserService userService;
 
+    @BeforeEach
+    public void setUp() {
+        userService.startRegistrationPool();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userService.shutdown();
+    }
+
     @Test
     public void testRegsiterUserSuccess() {
         String userName = "john123";
@@ -42,13 +78,52 @@ public class UserServiceTest {
         mockUser.setPassword(password);
 
         when(userRepository.save(any(User.class))).thenReturn(mockUser);
-        when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+        when(passwordHasher.encode(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
 
         User result = userService.registerUser(userName, name, email, password);
 
         assertNotNull(result);
         assertEquals(userName, result.getUserName());
         verify(userRepository, times(1)).save(any(User.class));
+        verify(userRepository, never()).findByUserName(anyString());
+    }
+
+    @Test
+    public void testRegisterUserWithTakenUserNameFails() {
+        when(passwordHasher.encode(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+        when(userRepository.save(any(User.class))).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                new SQLException("Unique index or primary key violation: PUBLIC.UK_APP_USER_USER_NAME", "23505")));
+
+        assertThrows(UserNameTakenException.class,
+                () -> userService.registerUser("John Doe", "john123", "john@example.com", "password123"));
+    }
+
+    @Test
+    public void testRegisterUserBreakingAnotherConstraintIsNotReportedAsTaken() {
+        when(passwordHasher.encode(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+        when(userRepository.save(any(User.class))).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                new SQLException("Value too long for column EMAIL", "22001")));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> userService.registerUser("John Doe", "john123", "john@example.com", "password123"));
+    }
+
+    @Test
+    public void testUserIsInsertedOffTheHashingThread() {
+        CompletableFuture<String> hash = new CompletableFuture<>();
+        when(passwordHasher.encode(anyString())).thenReturn(hash);
+        AtomicReference<String> insertingThread = new AtomicReference<>();
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+            insertingThread.set(Thread.currentThread().getName());
+            return invocation.getArgument(0);
+        });
+
+        CompletableFuture<User> registration = userService.registerUserAsync("John Doe", "john123", "john@example.com",
+                "password123");
+        hash.complete("encodedPassword");
+
+        assertEquals("john123", registration.join().getUserName());
+        assertTrue(insertingThread.get().startsWith("user-registration-"));
     }
 
     @Test
@@ -61,4 +136,38 @@ public class UserServiceTest {
 
         assertFalse(result.isPresent());
     }
+
+    @Test
+    public void testUserProfileIsReadOnceAndCached() {
+        UserProfile profile = new UserProfile(1L, "John Doe", "john123", "john@example.com");
+        when(userRepository.findProfileByUserName("john123")).thenReturn(Optional.of(profile));
+
+        assertEquals(Optional.of(profile), userService.getUserProfile("john123"));
+        assertEquals(Optional.of(profile), userService.getUserProfile("john123"));
+
+        verify(userRepository, times(1)).findProfileByUserName("john123");
+        verify(userRepository, never()).findByUserName(anyString());
+    }
+
+    @Test
+    public void testUnknownUserNameIsCachedUntilRegistered() {
+        when(userRepository.findProfileByUserName("john123")).thenReturn(Optional.empty());
+        when(passwordHasher.encode(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            user.setUserId(1L);
+            return user;
+        });
+
+        assertTrue(userService.getUserProfile("john123").isEmpty());
+        assertTrue(userService.getUserProfile("john123").isEmpty());
+        verify(userRepository, times(1)).findProfileByUserName("john123");
+
+        userService.registerUser("John Doe", "john123", "john@example.com", "password123");
+
+        UserProfile profile = userService.getUserProfile("john123").orElseThrow();
+        assertEquals(1L, profile.userId());
+        assertEquals("john@example.com", profile.email());
+        verify(userRepository, times(1)).findProfileByUserName("john123");
+    }
 }